@@ -1,4 +1,5 @@
 var telegramVersion = "9.2.1"
+var jmhVersion = "1.37"
 
 plugins {
 	java
@@ -54,3 +55,37 @@ dependencies {
 tasks.test {
 	useJUnitPlatform()
 }
+
+// JMH бенчмарки горячих путей: src/jmh/java
+val jmh: SourceSet by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output
+	runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+configurations[jmh.compileOnlyConfigurationName].extendsFrom(configurations.compileOnly.get())
+configurations[jmh.annotationProcessorConfigurationName].extendsFrom(configurations.annotationProcessor.get())
+
+dependencies {
+	"jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+	"jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+// ./gradlew jmh                         — все бенчмарки
+// ./gradlew jmh -PjmhIncludes=Proxy     — только подходящие по regexp
+// Результаты: build/reports/jmh/results.json
+tasks.register<JavaExec>("jmh") {
+	group = "verification"
+	description = "Runs JMH benchmarks and writes JSON results to build/reports/jmh"
+	classpath = jmh.runtimeClasspath
+	mainClass.set("org.openjdk.jmh.Main")
+
+	val resultFile = layout.buildDirectory.file("reports/jmh/results.json")
+	outputs.file(resultFile)
+	outputs.upToDateWhen { false }
+	doFirst { resultFile.get().asFile.parentFile.mkdirs() }
+
+	args("-rf", "json", "-rff", resultFile.get().asFile.absolutePath)
+	(project.findProperty("jmhIncludes") as String?)?.let { args(it) }
+}
@@ -0,0 +1,59 @@
+package org.bot.spring.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.ChatQueueProperties;
+import org.bot.spring.service.ChatQueueExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Постановка задач в очереди чатов из нескольких потоков long polling.
+ * {@code chats = 1} — все потоки пишут в одну очередь, {@code chats = 1000} — почти без конфликтов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ChatQueueBenchmark {
+
+    @Param({"1", "16", "1000"})
+    public int chats;
+
+    private ChatQueueExecutorService chatQueueExecutorService;
+
+    @Setup
+    public void setUp() {
+        ChatQueueProperties properties = new ChatQueueProperties();
+        properties.setMaxDepth(Integer.MAX_VALUE);
+        chatQueueExecutorService = new ChatQueueExecutorService(properties, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        chatQueueExecutorService.shutdown();
+    }
+
+    @Benchmark
+    public void submitTask() {
+        long chatId = ThreadLocalRandom.current().nextInt(chats);
+        chatQueueExecutorService.submitTask(chatId, () -> {
+        });
+    }
+}
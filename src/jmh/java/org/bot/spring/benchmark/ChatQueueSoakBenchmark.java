@@ -0,0 +1,72 @@
+package org.bot.spring.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.ChatQueueProperties;
+import org.bot.spring.service.ChatQueueExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный прогон: по одной задаче в каждом из {@code chats} разных чатов, затем ожидание,
+ * пока все ящики разобраны и удалены. Каждая итерация берёт новые chat_id, так что утечка ящиков
+ * видна как рост памяти между итерациями: {@code ./gradlew jmh -PjmhIncludes=ChatQueueSoak}
+ * с профилировщиком {@code -prof gc}. Если после итерации остались ящики, прогон падает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChatQueueSoakBenchmark {
+
+    @Param({"1000000"})
+    public int chats;
+
+    private ChatQueueExecutorService chatQueueExecutorService;
+    private long nextChatId;
+
+    @Setup
+    public void setUp() {
+        ChatQueueProperties properties = new ChatQueueProperties();
+        chatQueueExecutorService = new ChatQueueExecutorService(properties, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        chatQueueExecutorService.shutdown();
+    }
+
+    @Benchmark
+    public int distinctChats() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(chats);
+        for (int i = 0; i < chats; i++) {
+            chatQueueExecutorService.submitTask(nextChatId++, done::countDown);
+        }
+        if (!done.await(2, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Задачи не выполнились за 2 минуты");
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (chatQueueExecutorService.getChatCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        int left = chatQueueExecutorService.getChatCount();
+        if (left > 0) {
+            throw new IllegalStateException("После разбора осталось ящиков: " + left);
+        }
+        return left;
+    }
+}
@@ -0,0 +1,47 @@
+package org.bot.spring.benchmark;
+
+import org.bot.spring.dto.DownloadVideoCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка командной строки yt-dlp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DownloadVideoCommandBenchmark {
+
+    private DownloadVideoCommand command;
+
+    @Setup
+    public void setUp() {
+        command = DownloadVideoCommand.builder()
+                .videoUrl("https://www.youtube.com/watch?v=dQw4w9WgXcQ")
+                .videoId("18")
+                .folderPath("/tmp/")
+                .fileName("-1001234567890-4242-user.mp4")
+                .proxy("socks5://10.0.0.1:1080")
+                .format("mp4")
+                .build();
+    }
+
+    @Benchmark
+    public List<String> listCommands() {
+        return command.getListCommands();
+    }
+}
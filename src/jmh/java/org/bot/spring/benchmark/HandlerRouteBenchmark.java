@@ -0,0 +1,65 @@
+package org.bot.spring.benchmark;
+
+import org.bot.spring.handlers.GenericMessageHandler;
+import org.bot.spring.handlers.InstagramMessageHandler;
+import org.bot.spring.handlers.MessageHandler;
+import org.bot.spring.handlers.MessageHandlerRouter;
+import org.bot.spring.handlers.VkVideoMessageHandler;
+import org.bot.spring.handlers.YouTubeMessageHandler;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.bot.spring.service.ytdlp.YtDlpExtractors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выбор обработчика {@link MessageHandlerRouter} по таблице доменов:
+ * ссылка в начале, ссылка в тексте и сообщение без ссылки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerRouteBenchmark {
+
+    @Param({
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "Смотри, что нашёл вчера вечером https://www.instagram.com/reel/C8abcDEF123/?igsh=MTc4MmM1YmI2Ng==",
+            "Смотри https://vkvideo.ru/video-12345_456239017 отличное видео",
+            "Обычное сообщение в чате без каких-либо ссылок, которое бот должен быстро пропустить"
+    })
+    public String text;
+
+    private MessageHandlerRouter router;
+
+    @Setup
+    public void setUp() {
+        YouTubeMessageHandler youTubeHandler = new YouTubeMessageHandler(null, null, null, null, null, null, null);
+        InstagramMessageHandler instagramHandler = new InstagramMessageHandler(null, null, null, null, null, null, null, null, null);
+        VkVideoMessageHandler vkHandler = new VkVideoMessageHandler(null, null, null, null, null, null, null);
+        YtDlpExtractors extractors = new YtDlpExtractors();
+        extractors.setNames(Set.of("tiktok", "vimeo", "twitter", "reddit"));
+        GenericMessageHandler genericHandler = new GenericMessageHandler(null, null, null, null, null, null, null, extractors);
+        router = new MessageHandlerRouter(List.of(youTubeHandler, instagramHandler, vkHandler, genericHandler),
+                new UrlCanonicalizer());
+    }
+
+    @Benchmark
+    public MessageHandler route() {
+        return router.route(text);
+    }
+}
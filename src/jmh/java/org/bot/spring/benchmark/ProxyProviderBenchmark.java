@@ -0,0 +1,137 @@
+package org.bot.spring.benchmark;
+
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.proxy.ProxyHealthChecker;
+import org.bot.spring.service.proxy.ProxyPool;
+import org.bot.spring.service.proxy.ProxyProvider;
+import org.bot.spring.service.proxy.source.ProxySource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выдача прокси из пула размером как у реальных источников (~2000 записей, socks4 + socks5).
+ * <p>
+ * {@code legacy*} — прежняя выдача: фильтрация всего списка stream'ом и новый список на каждый вызов;
+ * остальные — индексированный {@link ProxyPool}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyProviderBenchmark {
+
+    static final int POOL_SIZE = 2000;
+
+    private ProxyProvider proxyProvider;
+    private ProxyPool weightedPool;
+    private List<ProxyDto> legacyProxies;
+    private final AtomicInteger legacyIndex = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        ProxyProperties properties = new ProxyProperties();
+        properties.getCheck().setEnabled(false);
+        proxyProvider = new ProxyProvider(List.of(new StaticSource(generateProxies(POOL_SIZE))),
+                new ProxyHealthChecker(properties), new ProxyFeedback(properties), properties);
+        proxyProvider.refreshAll();
+
+        legacyProxies = generateProxies(POOL_SIZE);
+        List<ProxyHealth> alive = new ArrayList<>();
+        for (int i = 0; i < legacyProxies.size(); i += 4) {
+            alive.add(new ProxyHealth(legacyProxies.get(i), 50 + i % 1000, Instant.now()));
+        }
+        weightedPool = new ProxyPool(legacyProxies, alive, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public ProxyDto legacyNextSocks5Proxy() {
+        List<ProxyDto> socks5List = legacyProxies.stream()
+                .filter(p -> "socks5".equalsIgnoreCase(p.getVersion()))
+                .toList();
+        int index = legacyIndex.getAndUpdate(i -> (i + 1) % socks5List.size());
+        return socks5List.get(index);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ProxyDto legacyNextSocks5ProxyContended() {
+        return legacyNextSocks5Proxy();
+    }
+
+    @Benchmark
+    public ProxyDto nextLiveProxyWeighted() {
+        return weightedPool.nextLive();
+    }
+
+    @Benchmark
+    public ProxyDto nextProxyByCountry() {
+        return proxyProvider.getNextProxy("DE");
+    }
+
+    @Benchmark
+    public ProxyDto nextProxy() {
+        return proxyProvider.getNextProxy();
+    }
+
+    @Benchmark
+    public ProxyDto nextSocks5Proxy() {
+        return proxyProvider.getNextSocks5Proxy();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ProxyDto nextSocks5ProxyContended() {
+        return proxyProvider.getNextSocks5Proxy();
+    }
+
+    /**
+     * 85% socks5 (TheSpeedX + ProxyScrape), остальное socks4 (free-proxy-list).
+     */
+    static List<ProxyDto> generateProxies(int count) {
+        String[] countries = {"", "US", "DE", "SG", "RU", "NL", "FR", "BR"};
+        List<ProxyDto> proxies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String ip = "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+            String version = i % 100 < 85 ? "socks5" : "socks4";
+            proxies.add(new ProxyDto(ip, 1080 + i % 100, countries[i % countries.length], version));
+        }
+        return proxies;
+    }
+
+    record StaticSource(List<ProxyDto> proxies) implements ProxySource {
+
+        @Override
+        public List<ProxyDto> getProxies() {
+            return proxies;
+        }
+
+        @Override
+        public void refresh() {
+        }
+
+        @Override
+        public String getName() {
+            return "Static";
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.bot.spring.benchmark;
+
+import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.dto.CanonicalUrl;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ссылки {@link UrlCanonicalizer} против прежнего пути: regexp {@code extractUrl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlCanonicalizerBenchmark {
+
+    @Param({
+            "https://youtu.be/dQw4w9WgXcQ?si=g7e39Pj57vySWStC",
+            "Смотри https://www.instagram.com/reel/C8abcDEF123/?igsh=MTc4MmM1YmI2Ng== прикольно",
+            "https://vkvideo.ru/video-220754053_456239520?list=ln-abc",
+            "Обычное сообщение в чате без каких-либо ссылок, которое бот должен быстро пропустить"
+    })
+    public String text;
+
+    private UrlCanonicalizer canonicalizer;
+    private YtDlpService ytDlpService;
+
+    @Setup
+    public void setUp() {
+        canonicalizer = new UrlCanonicalizer();
+        ytDlpService = new YtDlpService(new DownloadProperties(), new YtDlpWorkerPool(new YtDlpWorkerProperties()), new TelegramApiProperties(), new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
+    }
+
+    @Benchmark
+    public CanonicalUrl canonicalizer() {
+        return canonicalizer.findFirst(text);
+    }
+
+    @Benchmark
+    public String regex() {
+        return ytDlpService.extractUrl(text);
+    }
+}
@@ -0,0 +1,87 @@
+package org.bot.spring.benchmark;
+
+import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.dto.FormatCatalog;
+import org.bot.spring.dto.VideoFormatDto;
+import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.ytdlp.FormatCatalogParser;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор вывода yt-dlp: таблица {@code -F} против JSON {@code -J}, и извлечение URL из сообщения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YtDlpParsingBenchmark {
+
+    private YtDlpService ytDlpService;
+    private List<String> formatTableLines;
+    private byte[] catalogJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        DownloadProperties properties = new DownloadProperties();
+        properties.setMaxFileSizeMB(new BigDecimal(30));
+        ytDlpService = new YtDlpService(properties, new YtDlpWorkerPool(new YtDlpWorkerProperties()), new TelegramApiProperties(), new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
+        formatTableLines = readFixture("/fixtures/youtube-F.txt").lines().toList();
+        catalogJson = readFixture("/fixtures/youtube-J.json").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<VideoFormatDto> extractedFormatTable() {
+        List<VideoFormatDto> formats = new ArrayList<>();
+        for (String line : formatTableLines) {
+            ytDlpService.extracted(line, formats);
+        }
+        return formats;
+    }
+
+    @Benchmark
+    public FormatCatalog parseJsonCatalog() throws IOException {
+        return FormatCatalogParser.parse(new ByteArrayInputStream(catalogJson));
+    }
+
+    @Benchmark
+    public String extractUrlFromText() {
+        return ytDlpService.extractUrl("Посмотри это видео: https://youtube.com/watch?v=dQw4w9WgXcQ&si=abc, оно очень интересное!");
+    }
+
+    @Benchmark
+    public String extractUrlNoUrl() {
+        return ytDlpService.extractUrl("Просто текст без ссылок, но достаточно длинный, чтобы регулярке было что сканировать");
+    }
+
+    static String readFixture(String resource) throws IOException {
+        try (InputStream in = YtDlpParsingBenchmark.class.getResourceAsStream(resource)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
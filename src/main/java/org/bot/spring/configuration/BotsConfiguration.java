@@ -8,6 +8,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
 import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.longpolling.util.DefaultGetUpdatesGenerator;
+import org.telegram.telegrambots.meta.TelegramUrl;
 
 @Configuration
 @RequiredArgsConstructor
@@ -18,12 +20,15 @@ public class BotsConfiguration {
 
     @Bean
     public CommandLineRunner runner(
-            TelegramBotsLongPollingApplication telegramBotsLongPollingApplication
+            TelegramBotsLongPollingApplication telegramBotsLongPollingApplication,
+            TelegramUrl telegramUrl
     ) {
         return (args) -> {
             telegramBotsLongPollingApplication
                     .registerBot(
                             botProperties.getToken(),
+                            () -> telegramUrl,
+                            new DefaultGetUpdatesGenerator(),
                             messageProcessor
                     );
         };
@@ -1,20 +1,48 @@
 package org.bot.spring.configuration;
 
 import lombok.RequiredArgsConstructor;
+import okhttp3.OkHttpClient;
 import org.bot.spring.configuration.properties.BotProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
+import org.telegram.telegrambots.meta.TelegramUrl;
+
+import java.net.URI;
 
 @Configuration
 @RequiredArgsConstructor
 public class TelegramClientConfiguration {
 
     private final BotProperties botProperties;
+    private final TelegramApiProperties telegramApiProperties;
+
+    /**
+     * HTTP-клиент Bot API: общий для {@link OkHttpTelegramClient} и потоковой отправки видео
+     */
+    @Bean
+    public OkHttpClient telegramHttpClient() {
+        return new OkHttpClient.Builder().build();
+    }
+
+    /**
+     * Адрес сервера Bot API: публичный или свой {@code telegram-bot-api}
+     */
+    @Bean
+    public TelegramUrl telegramUrl() {
+        URI uri = URI.create(telegramApiProperties.getUrl());
+        int port = uri.getPort() != -1 ? uri.getPort() : ("http".equals(uri.getScheme()) ? 80 : 443);
+        return TelegramUrl.builder()
+                .schema(uri.getScheme())
+                .host(uri.getHost())
+                .port(port)
+                .build();
+    }
 
     @Bean
-    public OkHttpTelegramClient telegramClient() {
-        return new OkHttpTelegramClient(botProperties.getToken());
+    public OkHttpTelegramClient telegramClient(OkHttpClient telegramHttpClient, TelegramUrl telegramUrl) {
+        return new OkHttpTelegramClient(telegramHttpClient, botProperties.getToken(), telegramUrl);
     }
 
 }
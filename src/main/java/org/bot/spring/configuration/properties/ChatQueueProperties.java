@@ -0,0 +1,18 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки очередей сообщений чатов.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "chat-queue")
+public class ChatQueueProperties {
+    /** Сколько сообщений чата может ждать обработки, остальные отклоняются */
+    private int maxDepth = 20;
+    /** Сообщить в чат, что сообщения отклоняются (один раз, пока очередь не освободится) */
+    private boolean notifyOnReject = true;
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 
 @Data
 @Component
@@ -12,4 +13,28 @@ import java.math.BigDecimal;
 public class DownloadProperties {
     private BigDecimal maxFileSizeMB = new BigDecimal(50);
     private String downloadPath = "/tmp/";
+    /** Выбирать формат и скачивать видео одним запуском yt-dlp вместо {@code -F} + {@code -f <id>} */
+    private boolean singlePass = false;
+    /** Предпочтительный контейнер */
+    private String preferredContainer = "mp4";
+    /** Максимальная высота кадра */
+    private int preferredHeight = 720;
+    /** Способ получения списка форматов: {@code json} ({@code yt-dlp -J}) или {@code table} (разбор {@code -F}) */
+    private FormatProbe formatProbe = FormatProbe.TABLE;
+    /**
+     * Отдавать видео одним файлом из stdout yt-dlp прямо в запрос к Telegram, без временного файла.
+     * Не действует при {@code download.selection.enabled}: выбор формата по каталогу важнее
+     */
+    private boolean streaming = false;
+    /** Размер буфера между yt-dlp и запросом к Telegram при потоковой отправке */
+    private int streamBufferMB = 8;
+    /** Не чаще какого интервала обновлять статусное сообщение с прогрессом загрузки */
+    private Duration progressInterval = Duration.ofSeconds(3);
+    /** Сколько ссылок из одного сообщения скачивать; несколько видео уходят одним альбомом */
+    private int maxLinksPerMessage = 5;
+
+    public enum FormatProbe {
+        JSON,
+        TABLE
+    }
 }
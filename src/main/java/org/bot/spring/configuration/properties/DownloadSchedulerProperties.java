@@ -0,0 +1,32 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.bot.spring.dto.Platform;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Ограничения на количество одновременных загрузок.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "download.scheduler")
+public class DownloadSchedulerProperties {
+    /** Сколько загрузок может выполняться одновременно во всех чатах */
+    private int maxConcurrent = 4;
+    /** Лимиты по платформам; для платформы без лимита действует только общий */
+    private Map<Platform, Integer> perPlatform = new EnumMap<>(Map.of(
+            Platform.YOUTUBE, 2,
+            Platform.INSTAGRAM, 1,
+            Platform.VK, 2,
+            Platform.GENERIC, 1
+    ));
+    /** Сколько загрузок может ждать свободного места, остальные отклоняются сразу */
+    private int maxWaiting = 50;
+    /** Сколько загрузка ждёт свободного места, прежде чем будет отклонена */
+    private Duration waitTimeout = Duration.ofMinutes(5);
+}
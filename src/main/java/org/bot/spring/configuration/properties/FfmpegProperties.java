@@ -0,0 +1,47 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Обработка скачанного видео через ffmpeg: перепаковка с {@code +faststart},
+ * а если видео больше лимита — перекодирование или нарезка на части.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ffmpeg")
+public class FfmpegProperties {
+    /** Включить обработку скачанных файлов */
+    private boolean enabled = false;
+    /** Одновременных запусков ffmpeg, 0 — половина ядер (но не меньше одного) */
+    private int poolSize = 0;
+    /** Приоритет процесса ({@code nice -n}), 0 — без изменения */
+    private int niceness = 10;
+    /** Максимальное время обработки одного файла, включая ожидание в очереди */
+    private Duration timeout = Duration.ofMinutes(10);
+    /** Видео больше этого размера не скачивается: перекодировать его слишком долго */
+    private BigDecimal maxSourceSizeMB = new BigDecimal(200);
+    /** Доля лимита размера, на которую рассчитывается битрейт: запас на контейнер и погрешность кодека */
+    private double sizeMargin = 0.9;
+    /** Битрейт звука при перекодировании, кбит/с */
+    private int audioBitrateKbps = 96;
+    /** Если на видео остаётся меньше, перекодировать бессмысленно — качество будет неприемлемым */
+    private int minVideoBitrateKbps = 150;
+    /** Пресет libx264 */
+    private String preset = "veryfast";
+    /** Что делать с видео больше лимита */
+    private Oversize oversize = Oversize.ENCODE;
+    /** Максимум частей при нарезке; больше 10 частей отправляются несколькими альбомами */
+    private int maxParts = 10;
+
+    public enum Oversize {
+        /** Перекодировать с пониженным битрейтом в один файл */
+        ENCODE,
+        /** Нарезать без перекодирования на части по ключевым кадрам и отправить альбомом */
+        SPLIT
+    }
+}
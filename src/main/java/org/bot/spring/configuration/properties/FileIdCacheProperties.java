@@ -0,0 +1,23 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки кэша file_id уже загруженных в Telegram видео.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.file-id")
+public class FileIdCacheProperties {
+    private boolean enabled = true;
+    /** Максимальное количество записей, при превышении вытесняются давно не использованные */
+    private int maxEntries = 5000;
+    /** Время жизни записи */
+    private Duration ttl = Duration.ofDays(30);
+    /** Файл снимка кэша; пусто — кэш живёт только в памяти */
+    private String snapshotPath = "";
+}
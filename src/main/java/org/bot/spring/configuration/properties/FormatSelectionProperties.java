@@ -0,0 +1,48 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.bot.spring.dto.Platform;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Выбор формата по каталогу {@code yt-dlp -J} с учётом бюджета размера.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "download.selection")
+public class FormatSelectionProperties {
+    /** Выбирать формат сервисом по каталогу форматов (включая пары видео + аудио), а не выражением {@code -f} */
+    private boolean enabled = false;
+    /** Доля лимита размера, доступная видео: запас на контейнер и неточность оценки по битрейту */
+    private double budgetRatio = 0.95;
+    /** Стратегия для платформ без своей настройки */
+    private Strategy defaults = new Strategy();
+    /** Стратегии по платформам */
+    private Map<Platform, Strategy> perPlatform = new EnumMap<>(Platform.class);
+
+    public Strategy strategy(Platform platform) {
+        return perPlatform.getOrDefault(platform, defaults);
+    }
+
+    @Data
+    public static class Strategy {
+        private Objective objective = Objective.QUALITY;
+        /** Максимальное разрешение по короткой стороне кадра (720 — и для 1280x720, и для 720x1280) */
+        private int maxHeight = 720;
+        /** Контейнер видеодорожки, null — любой */
+        private String container = "mp4";
+        /** Рассматривать отдельные видео- и аудиодорожки, которые yt-dlp склеит через ffmpeg */
+        private boolean separateStreams = true;
+    }
+
+    public enum Objective {
+        /** Наибольшее разрешение и битрейт, которые помещаются в бюджет */
+        QUALITY,
+        /** Самый маленький файл */
+        SMALLEST
+    }
+}
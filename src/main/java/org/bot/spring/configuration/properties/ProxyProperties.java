@@ -0,0 +1,79 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Пул прокси для обхода блокировок при скачивании.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "proxy")
+public class ProxyProperties {
+    /** Обновление пула из источников */
+    private Refresh refresh = new Refresh();
+    /** Проверка прокси перед выдачей */
+    private Check check = new Check();
+    /** Учёт результатов реальных загрузок через прокси */
+    private Feedback feedback = new Feedback();
+    /** Параллельный запрос метаданных через несколько прокси */
+    private Hedge hedge = new Hedge();
+
+    @Data
+    public static class Refresh {
+        /** Файл двоичного снимка пула; пусто — пул при старте пуст до первого обновления */
+        private String snapshotPath = "";
+        /** Интервал обновления, когда живых прокси нет */
+        private Duration minInterval = Duration.ofMinutes(2);
+        /** Интервал обновления, когда живых прокси не меньше {@code targetLive} */
+        private Duration maxInterval = Duration.ofMinutes(30);
+        /** Сколько живых прокси достаточно, чтобы обновлять пул реже всего */
+        private int targetLive = 100;
+    }
+
+    @Data
+    public static class Check {
+        /** Выдавать прокси, прошедшие проверку, а пока таких нет — socks5 из всего пула; false — выдавать все загруженные */
+        private boolean enabled = true;
+        /** Одновременных проверок */
+        private int concurrency = 200;
+        /** Таймаут TCP-подключения к прокси */
+        private Duration connectTimeout = Duration.ofSeconds(3);
+        /** Таймаут ответа прокси на каждом шаге рукопожатия */
+        private Duration readTimeout = Duration.ofSeconds(5);
+        /** Куда прокси должен открыть соединение */
+        private String targetHost = "www.instagram.com";
+        private int targetPort = 443;
+        /** Проверять TLS-рукопожатие с {@code targetHost} через туннель */
+        private boolean tls = true;
+        /** Сколько прокси считается живым после успешной проверки */
+        private Duration maxAge = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Feedback {
+        /** Вес нового замера в скользящей средней скорости (EWMA) */
+        private double ewmaAlpha = 0.3;
+        /** Подряд неудачных загрузок, после которых прокси выводится из ротации */
+        private int failureThreshold = 3;
+        /** Сколько прокси не выдаётся после срабатывания; затем допускается одна пробная загрузка */
+        private Duration openDuration = Duration.ofMinutes(10);
+        /** Закреплять за платформой прокси последней успешной загрузки */
+        private boolean sticky = true;
+    }
+
+    @Data
+    public static class Hedge {
+        /** Запрашивать метаданные через несколько прокси и скачивать через первый ответивший */
+        private boolean enabled = true;
+        /** Сколько прокси пробовать (K) */
+        private int attempts = 3;
+        /** Пауза перед запуском следующей попытки, пока предыдущие не ответили; 0 — все сразу */
+        private Duration delay = Duration.ofSeconds(2);
+        /** Общее время на получение метаданных */
+        private Duration timeout = Duration.ofSeconds(60);
+    }
+}
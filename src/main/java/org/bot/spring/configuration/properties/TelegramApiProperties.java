@@ -0,0 +1,30 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Сервер Bot API, с которым работает бот.
+ * <p>
+ * По умолчанию — публичный {@code api.telegram.org}: файлы загружаются multipart-запросом,
+ * размер ограничен {@code download.max-file-size-mb} (Telegram принимает до 50 MB).
+ * Со своим {@code telegram-bot-api --local} видео передаётся путём {@code file://} без копирования
+ * в тело запроса, а лимит поднимается до {@link #localMaxFileSizeMB}. Каталог загрузок
+ * должен быть доступен серверу по тому же пути.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "telegram.api")
+public class TelegramApiProperties {
+    public static final String PUBLIC_URL = "https://api.telegram.org";
+
+    /** Адрес сервера Bot API */
+    private String url = PUBLIC_URL;
+    /** Сервер запущен с {@code --local}: принимает пути к файлам и файлы до 2000 MB */
+    private boolean local = false;
+    /** Лимит размера видео для локального сервера */
+    private BigDecimal localMaxFileSizeMB = new BigDecimal(2000);
+}
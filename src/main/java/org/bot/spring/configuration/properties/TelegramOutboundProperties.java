@@ -0,0 +1,22 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ограничения частоты исходящих запросов к Bot API.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "telegram.outbound")
+public class TelegramOutboundProperties {
+    /** Запросов в секунду на всего бота (лимит Telegram — 30) */
+    private double globalPerSecond = 30;
+    /** Запросов в секунду в один чат (лимит Telegram — около 1) */
+    private double chatPerSecond = 1;
+    /** Сколько запросов в чат можно отправить подряд без ожидания */
+    private int chatBurst = 3;
+    /** Сколько раз повторять запрос после ответа 429 */
+    private int maxRetries = 3;
+}
@@ -0,0 +1,32 @@
+package org.bot.spring.configuration.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки пула долгоживущих воркеров yt-dlp.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "yt-dlp.worker")
+public class YtDlpWorkerProperties {
+    /** Включает пул; при выключенном пуле каждый вызов запускает отдельный процесс */
+    private boolean enabled = false;
+    /** Количество воркеров в пуле */
+    private int poolSize = 2;
+    /** После скольких запросов воркер перезапускается */
+    private int maxJobsPerWorker = 50;
+    /** Интерпретатор python, в котором установлен yt-dlp */
+    private String pythonExecutable = "python3";
+    /** Сколько ждать готовности воркера после запуска */
+    private Duration startupTimeout = Duration.ofSeconds(30);
+    /** Сколько ждать свободного воркера, прежде чем запустить отдельный процесс */
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+    /** Максимальная длительность одного запроса */
+    private Duration requestTimeout = Duration.ofMinutes(10);
+    /** Таймаут ответа на health check */
+    private Duration pingTimeout = Duration.ofSeconds(5);
+}
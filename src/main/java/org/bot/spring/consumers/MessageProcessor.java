@@ -3,10 +3,15 @@ package org.bot.spring.consumers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bot.spring.configuration.properties.BotProperties;
+import org.bot.spring.configuration.properties.ChatQueueProperties;
+import org.bot.spring.configuration.properties.DownloadProperties;
 import org.bot.spring.dto.MessageContext;
 import org.bot.spring.handlers.MessageHandler;
+import org.bot.spring.handlers.MessageHandlerRouter;
 import org.bot.spring.service.ChatQueueExecutorService;
+import org.bot.spring.service.ChatQueueExecutorService.Submission;
 import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
 import org.telegram.telegrambots.meta.api.objects.Update;
@@ -23,22 +28,30 @@ import static java.util.Objects.nonNull;
 public class MessageProcessor implements LongPollingUpdateConsumer {
 
     private final BotProperties botProperties;
-    private final List<MessageHandler> messageHandlers;
+    private final MessageHandlerRouter messageHandlerRouter;
     private final TelegramMessageService telegramMessageService;
     private final ChatQueueExecutorService chatQueueExecutorService;
+    private final ChatQueueProperties chatQueueProperties;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final DownloadProperties downloadProperties;
+    private final MultiLinkProcessor multiLinkProcessor;
 
     @Override
     public void consume(List<Update> updates) {
         for (var update : updates) {
             Long chatId = extractChatId(update);
             if (chatId != null) {
-                chatQueueExecutorService.submitTask(chatId, () -> {
+                Submission submission = chatQueueExecutorService.submitTask(chatId, () -> {
                     try {
                         processUpdate(update);
                     } catch (Exception e) {
                         log.error("Ошибка при обработке обновления", e);
                     }
                 });
+                if (submission == Submission.OVERFLOW && chatQueueProperties.isNotifyOnReject()) {
+                    telegramMessageService.sendTextMessage(chatId,
+                            "Слишком много сообщений в очереди, новые ссылки пропускаются, пока очередь не разберётся");
+                }
             }
         }
     }
@@ -104,24 +117,33 @@ public class MessageProcessor implements LongPollingUpdateConsumer {
                 receivedMessage.getFrom().getUserName()
         );
 
-        // Поиск подходящего обработчика
-        boolean handled = false;
-        for (MessageHandler handler : messageHandlers) {
-            if (handler.canHandle(text)) {
-                log.info("Обработчик {} выбран для обработки сообщения", handler.getClass().getSimpleName());
-                try {
-                    handler.handle(text, context);
-                } catch (Exception e) {
-                    log.error("Ошибка при обработке сообщения хендлером {}", handler.getClass().getSimpleName(), e);
-                    telegramMessageService.sendTextMessage(chatId, "Произошла ошибка при обработке: " + e.getMessage());
-                }
-                handled = true;
-                break;
+        // Несколько ссылок — параллельная загрузка и один альбом
+        List<String> urls = urlCanonicalizer.findAllUrls(text, downloadProperties.getMaxLinksPerMessage());
+        if (urls.size() > 1) {
+            try {
+                multiLinkProcessor.process(text, urls, context);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Обработка ссылок прервана");
             }
+            return;
         }
 
-        if (!handled) {
+        // Поиск подходящего обработчика
+        MessageHandler handler = messageHandlerRouter.route(text);
+        if (handler == null) {
             log.info("Не найден подходящий обработчик для сообщения: {}", text);
+            return;
+        }
+
+        log.info("Обработчик {} выбран для обработки сообщения", handler.getClass().getSimpleName());
+        try {
+            // Обработчик выполняется синхронно в задаче чата, поэтому порядок сообщений в чате сохраняется.
+            // Место в очереди загрузок он занимает сам и только на время скачивания
+            handler.handle(text, context);
+        } catch (Exception e) {
+            log.error("Ошибка при обработке сообщения хендлером {}", handler.getClass().getSimpleName(), e);
+            telegramMessageService.sendTextMessage(chatId, "Произошла ошибка при обработке: " + e.getMessage());
         }
     }
 
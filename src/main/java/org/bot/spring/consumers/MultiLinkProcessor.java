@@ -0,0 +1,201 @@
+package org.bot.spring.consumers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.dto.AlbumVideo;
+import org.bot.spring.dto.MessageContext;
+import org.bot.spring.exceptions.DownloadRejectedException;
+import org.bot.spring.exceptions.FileSizeExceededException;
+import org.bot.spring.exceptions.YtDlpExitException;
+import org.bot.spring.handlers.MessageHandler;
+import org.bot.spring.handlers.MessageHandlerRouter;
+import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.PreparedVideo;
+import org.bot.spring.service.telegram.StatusBoard;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.bot.spring.service.TelegramMessageService.await;
+
+/**
+ * Сообщение с несколькими ссылками.
+ * <p>
+ * Видео скачиваются параллельно (место в очереди загрузок своей платформы каждое занимает
+ * только на время скачивания) в рамках одной задачи чата и отправляются одним {@code sendMediaGroup} в порядке ссылок.
+ * Ход загрузки всех ссылок показывает одно статусное сообщение ({@link StatusBoard}).
+ * Исходное сообщение удаляется, только если отправлены все видео.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MultiLinkProcessor {
+
+    private final MessageHandlerRouter messageHandlerRouter;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final TelegramMessageService telegramMessageService;
+    private final VideoFileIdCache fileIdCache;
+
+    /**
+     * @param urls ссылки из сообщения по порядку, без повторов
+     */
+    public void process(String text, List<String> urls, MessageContext context) throws InterruptedException {
+        List<String> supported = new ArrayList<>();
+        List<MessageHandler> handlers = new ArrayList<>();
+        for (String url : urls) {
+            MessageHandler handler = messageHandlerRouter.routeUrl(url);
+            if (handler == null) {
+                log.info("Не найден обработчик для ссылки: {}", url);
+                continue;
+            }
+            supported.add(url);
+            handlers.add(handler);
+        }
+        if (supported.isEmpty()) {
+            log.info("Не найден подходящий обработчик для сообщения: {}", text);
+            return;
+        }
+
+        StatusBoard board = new StatusBoard(telegramMessageService, context.getChatId(),
+                supported.stream().map(urlCanonicalizer::host).toList());
+        PreparedVideo[] prepared = new PreparedVideo[supported.size()];
+        try {
+            download(supported, handlers, context, board, prepared);
+            int sent = send(supported, prepared, context, board);
+            finish(text, urls, context, board, sent, supported.size() == urls.size());
+        } finally {
+            for (PreparedVideo video : prepared) {
+                if (video != null) {
+                    video.close();
+                }
+            }
+        }
+    }
+
+    private void download(List<String> urls, List<MessageHandler> handlers, MessageContext context,
+                          StatusBoard board, PreparedVideo[] prepared) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < urls.size(); i++) {
+                int index = i;
+                String url = urls.get(i);
+                MessageHandler handler = handlers.get(i);
+                executor.execute(() -> {
+                    try {
+                        prepared[index] = handler.prepare(url, context, board.line(index));
+                        if (prepared[index] == null) {
+                            board.set(index, "не удалось загрузить видео");
+                        }
+                    } catch (IOException e) {
+                        log.error("Ошибка загрузки видео {}: {}", url, e.getMessage());
+                        board.set(index, "процесс был прерван " + e.getMessage());
+                    } catch (YtDlpExitException e) {
+                        log.error("Ошибка загрузки видео {}: \n{}", url, e.getMessage());
+                        board.set(index, "не удалось скачать файл по техническим причинам");
+                    } catch (FileSizeExceededException | DownloadRejectedException e) {
+                        log.error("Ошибка загрузки видео {}: {}", url, e.getMessage());
+                        board.set(index, e.getMessage());
+                    } catch (RuntimeException e) {
+                        log.error("Ошибка при обработке ссылки {}", url, e);
+                        board.set(index, "произошла ошибка при обработке");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        board.set(index, "процесс был прерван");
+                    }
+                });
+            }
+            // close() ждёт завершения всех загрузок
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Отправляет все скачанные видео одним альбомом и сохраняет новые file_id в кэш.
+     *
+     * @return сколько ссылок отправлено
+     */
+    private int send(List<String> urls, PreparedVideo[] prepared, MessageContext context,
+                     StatusBoard board) throws InterruptedException {
+        List<AlbumVideo> album = new ArrayList<>();
+        int[] offsets = new int[prepared.length];
+        int count = 0;
+        for (int i = 0; i < prepared.length; i++) {
+            offsets[i] = album.size();
+            if (prepared[i] != null) {
+                album.addAll(prepared[i].albumVideos(urls.get(i)));
+                count++;
+            }
+        }
+        if (album.isEmpty()) {
+            return 0;
+        }
+
+        List<Message> messages;
+        try {
+            messages = await(telegramMessageService.sendMediaGroup(context.getChatId(), album));
+        } catch (TelegramApiException e) {
+            log.error("Ошибка отправки альбома: {}", e.getMessage());
+            for (int i = 0; i < prepared.length; i++) {
+                if (prepared[i] != null) {
+                    // file_id из кэша мог устареть — следующая попытка скачает видео заново
+                    if (prepared[i].lease() == null) {
+                        fileIdCache.evict(prepared[i].key());
+                    }
+                    board.set(i, "не удалось отправить видео в Telegram");
+                }
+            }
+            return 0;
+        }
+
+        for (int i = 0; i < prepared.length; i++) {
+            PreparedVideo video = prepared[i];
+            if (video != null) {
+                board.set(i, "отправлено");
+            }
+            // Нарезанное видео — несколько file_id, в кэш не попадает
+            if (video == null || video.fileId() != null || !video.isSingle() || offsets[i] >= messages.size()) {
+                continue;
+            }
+            String fileId = telegramMessageService.extractFileId(messages.get(offsets[i]));
+            fileIdCache.put(video.key(), fileId);
+            video.lease().publishFileId(fileId);
+        }
+        log.info("Отправлено {} видео одним альбомом", count);
+        return count;
+    }
+
+    /**
+     * Итоговый текст статуса; исходное сообщение удаляется, только если отправлено всё
+     */
+    private void finish(String text, List<String> urls, MessageContext context, StatusBoard board,
+                        int sent, boolean allSupported) throws InterruptedException {
+        if (sent == 0) {
+            return;
+        }
+        String textWithoutUrls = text;
+        for (String url : urls) {
+            textWithoutUrls = textWithoutUrls.replace(url, "");
+        }
+        String messageText = "Видео отправлены пользователем " + context.getUsername() + ": " + textWithoutUrls.strip();
+        if (!allSupported || sent < board.size()) {
+            // Строки с ошибками остаются видны, итог дописывается к ним
+            board.append(messageText);
+            return;
+        }
+        board.finish(messageText);
+        try {
+            await(telegramMessageService.deleteMessage(context.getChatId(), context.getMessageId()));
+        } catch (TelegramApiException e) {
+            log.warn("Не удалось удалить исходное сообщение: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.bot.spring.dto;
+
+import java.io.File;
+
+/**
+ * Элемент альбома: видео, уже загруженное в Telegram ({@code fileId}), или файл для загрузки.
+ *
+ * @param caption подпись под элементом или null
+ */
+public record AlbumVideo(String fileId, File file, String caption) {
+
+    public static AlbumVideo ofFileId(String fileId, String caption) {
+        return new AlbumVideo(fileId, null, caption);
+    }
+
+    public static AlbumVideo ofFile(File file, String caption) {
+        return new AlbumVideo(null, file, caption);
+    }
+}
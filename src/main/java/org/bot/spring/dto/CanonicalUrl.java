@@ -0,0 +1,19 @@
+package org.bot.spring.dto;
+
+/**
+ * Разобранная ссылка на видео.
+ *
+ * @param platform  платформа по хосту
+ * @param contentId идентификатор видео на платформе или null, если его не удалось выделить
+ * @param cleanUrl  ссылка без трекинговых параметров ({@code si}, {@code igsh}, ...);
+ *                  для неизвестных платформ — исходная ссылка
+ */
+public record CanonicalUrl(Platform platform, String contentId, String cleanUrl) {
+
+    /**
+     * Идентичность видео: одинакова для всех вариантов ссылки на одно и то же видео.
+     */
+    public String identity() {
+        return contentId != null ? contentId : cleanUrl;
+    }
+}
@@ -0,0 +1,22 @@
+package org.bot.spring.dto;
+
+/**
+ * Состояние загрузки из строки прогресса yt-dlp.
+ *
+ * @param downloadedBytes скачано байт
+ * @param totalBytes      размер файла (точный или оценка yt-dlp), null если неизвестен
+ * @param bytesPerSecond  скорость загрузки, null если ещё не посчитана
+ * @param etaSeconds      оставшееся время, null если неизвестно
+ */
+public record DownloadProgress(long downloadedBytes, Long totalBytes, Double bytesPerSecond, Long etaSeconds) {
+
+    /**
+     * @return процент загрузки 0..100 или -1, если размер файла неизвестен
+     */
+    public int percent() {
+        if (totalBytes == null || totalBytes <= 0) {
+            return -1;
+        }
+        return (int) Math.min(100, downloadedBytes * 100 / totalBytes);
+    }
+}
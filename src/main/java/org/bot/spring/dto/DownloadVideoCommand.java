@@ -14,11 +14,36 @@ public class DownloadVideoCommand {
     String folderPath;
     String fileName;
     String proxy;
+    /** Платформа, для которой выполняется загрузка: результат загрузки через {@link #proxy} учитывается по ней */
+    Platform platform;
     String format;
+    /** Выражение {@code -f}, если конкретный {@link #videoId} ещё не известен */
+    String formatSelector;
+    /** Порядок сортировки форматов {@code -S} */
+    String formatSort;
+    /** Шаблон {@code --print}, печатается перед началом загрузки */
+    String printBeforeDownload;
+    /** Ограничение размера файла в байтах {@code --max-filesize} */
+    Long maxFileSizeBytes;
+    /** Писать видео в stdout ({@code -o -}) вместо файла */
+    boolean toStdout;
+    /** Контейнер для склейки отдельных видео- и аудиодорожек {@code --merge-output-format} */
+    String mergeOutputFormat;
+    /** Шаблон {@code --progress-template}, прогресс печатается отдельными строками */
+    String progressTemplate;
 
     public List<String> getListCommands() {
         List<String> list = new ArrayList<>();
         list.add("yt-dlp");
+        list.addAll(getArgs());
+        return list;
+    }
+
+    /**
+     * Аргументы yt-dlp без имени программы — для запуска в пуле воркеров.
+     */
+    public List<String> getArgs() {
+        List<String> list = new ArrayList<>();
         if (proxy != null && !proxy.isEmpty()) {
             list.add("--proxy");
             list.add(proxy);
@@ -26,12 +51,19 @@ public class DownloadVideoCommand {
         if (videoId != null) {
             list.add("-f");
             list.add(videoId);
+        } else if (formatSelector != null) {
+            list.add("-f");
+            list.add(formatSelector);
+        }
+        if (toStdout) {
+            list.add("-o");
+            list.add("-");
         }
-        if (folderPath != null) {
+        if (folderPath != null && !toStdout) {
             list.add("-P");
             list.add(folderPath);
         }
-        if (fileName != null) {
+        if (fileName != null && !toStdout) {
             list.add("-o");
             list.add(fileName);
         }
@@ -39,6 +71,30 @@ public class DownloadVideoCommand {
             list.add("-t");
             list.add(format);
         }
+        if (mergeOutputFormat != null) {
+            list.add("--merge-output-format");
+            list.add(mergeOutputFormat);
+        }
+        if (formatSort != null) {
+            list.add("-S");
+            list.add(formatSort);
+        }
+        if (maxFileSizeBytes != null) {
+            list.add("--max-filesize");
+            list.add(maxFileSizeBytes.toString());
+        }
+        if (printBeforeDownload != null) {
+            list.add("--no-simulate");
+            list.add("--print");
+            list.add("before_dl:" + printBeforeDownload);
+        }
+        if (progressTemplate != null) {
+            // --print включает --quiet, --progress возвращает вывод прогресса
+            list.add("--newline");
+            list.add("--progress");
+            list.add("--progress-template");
+            list.add("download:" + progressTemplate);
+        }
         list.add(videoUrl);
 
         return list;
@@ -0,0 +1,74 @@
+package org.bot.spring.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Метаданные видео из {@code yt-dlp -J}: идентификатор, длительность, превью и все форматы,
+ * включая отдельные видео- и аудиодорожки.
+ */
+@Data
+@NoArgsConstructor
+public class FormatCatalog {
+    /** Экстрактор yt-dlp (youtube, instagram, vk, ...) */
+    private String extractor;
+    /** Идентификатор видео у экстрактора */
+    private String id;
+    private String title;
+    /** Длительность в секундах, 0 если неизвестна */
+    private int durationSeconds;
+    /** URL превью */
+    private List<String> thumbnails = new ArrayList<>();
+    private List<Format> formats = new ArrayList<>();
+
+    /**
+     * Один формат видео. Неизвестные числовые значения равны 0.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Format {
+        private String id;
+        private String ext;
+        /** Видеокодек, "none" для аудиодорожки */
+        private String vcodec;
+        /** Аудиокодек, "none" для видеодорожки */
+        private String acodec;
+        /** Точный размер в байтах */
+        private long fileSize;
+        /** Оценка размера в байтах */
+        private long fileSizeApprox;
+        private int width;
+        private int height;
+        private int fps;
+        /** Средний битрейт, кбит/с */
+        private int tbr;
+
+        public boolean hasVideo() {
+            return vcodec != null ? !"none".equals(vcodec) : height > 0 || acodec == null;
+        }
+
+        public boolean hasAudio() {
+            return acodec != null ? !"none".equals(acodec) : vcodec == null;
+        }
+
+        /**
+         * @return точный размер, иначе оценочный, иначе 0
+         */
+        public long knownSize() {
+            return fileSize > 0 ? fileSize : fileSizeApprox;
+        }
+
+        /**
+         * @return разрешение в формате yt-dlp ({@code 640x360}) или null
+         */
+        public String resolution() {
+            if (width > 0 && height > 0) {
+                return width + "x" + height;
+            }
+            return hasVideo() ? null : "audio only";
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.bot.spring.dto;
+
+/**
+ * Выбранный формат: готовый (видео со звуком) или пара видеодорожка + аудиодорожка.
+ *
+ * @param video          формат с видео
+ * @param audio          аудиодорожка для склейки или null, если {@code video} уже со звуком
+ * @param estimatedBytes оценка размера итогового файла
+ */
+public record FormatSelection(FormatCatalog.Format video, FormatCatalog.Format audio, long estimatedBytes) {
+
+    /**
+     * @return выражение для {@code -f}: {@code 18} или {@code 136+140}
+     */
+    public String formatId() {
+        return audio == null ? video.getId() : video.getId() + "+" + audio.getId();
+    }
+
+    public boolean isMerged() {
+        return audio != null;
+    }
+
+    /**
+     * @return короткая сторона кадра: 720 и для горизонтального, и для вертикального 720p
+     */
+    public int shortSide() {
+        return Math.min(video.getWidth(), video.getHeight());
+    }
+
+    /**
+     * @return суммарный битрейт, кбит/с
+     */
+    public int totalTbr() {
+        return video.getTbr() + (audio != null ? audio.getTbr() : 0);
+    }
+}
@@ -0,0 +1,23 @@
+package org.bot.spring.dto;
+
+/**
+ * Видеоплатформа, определённая по ссылке.
+ */
+public enum Platform {
+    YOUTUBE("youtube"),
+    INSTAGRAM("instagram"),
+    VK("vk"),
+    /** Любой другой сайт */
+    GENERIC("generic");
+
+    /** Имя экстрактора yt-dlp */
+    private final String extractor;
+
+    Platform(String extractor) {
+        this.extractor = extractor;
+    }
+
+    public String getExtractor() {
+        return extractor;
+    }
+}
@@ -0,0 +1,24 @@
+package org.bot.spring.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Результат успешной проверки прокси.
+ *
+ * @param latencyMillis время от подключения до готового туннеля к целевому хосту
+ * @param checkedAt     время проверки
+ */
+public record ProxyHealth(ProxyDto proxy, long latencyMillis, Instant checkedAt) {
+
+    /**
+     * Вес при выборе прокси: чем быстрее туннель, тем чаще прокси выдаётся
+     */
+    public double score() {
+        return 1000.0 / (latencyMillis + 50);
+    }
+
+    public boolean isFresh(Duration maxAge, Instant now) {
+        return checkedAt.plus(maxAge).isAfter(now);
+    }
+}
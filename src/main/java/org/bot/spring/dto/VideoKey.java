@@ -0,0 +1,13 @@
+package org.bot.spring.dto;
+
+/**
+ * Идентичность видео для кэширования и дедупликации.
+ *
+ * @param extractor экстрактор yt-dlp (youtube, instagram, vk)
+ * @param videoId   идентификатор видео у экстрактора
+ * @param format    выбранный формат; пока выбор формата детерминирован настройками,
+ *                  сюда кладётся политика выбора (см. {@code YtDlpService#formatPolicy()}),
+ *                  чтобы искать в кэше до запроса метаданных
+ */
+public record VideoKey(String extractor, String videoId, String format) {
+}
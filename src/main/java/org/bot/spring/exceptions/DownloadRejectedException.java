@@ -0,0 +1,11 @@
+package org.bot.spring.exceptions;
+
+/**
+ * Загрузка не запущена: очередь ожидания переполнена или место не освободилось за отведённое время.
+ */
+public class DownloadRejectedException extends RuntimeException {
+
+    public DownloadRejectedException(String message) {
+        super(message);
+    }
+}
@@ -13,6 +13,18 @@ public class FileSizeExceededException extends RuntimeException {
         this.maxFileSizeInMB = maxFileSizeInMB;
     }
 
+    /**
+     * Размер файла неизвестен: yt-dlp сам пропустил загрузку по {@code --max-filesize}
+     */
+    public FileSizeExceededException(BigDecimal maxFileSizeInMB) {
+        super(String.format("Размер файла превышает максимально допустимый (%.2f MB).", maxFileSizeInMB));
+        this.fileSizeInMB = null;
+        this.maxFileSizeInMB = maxFileSizeInMB;
+    }
+
+    /**
+     * @return размер файла или null, если он неизвестен
+     */
     public BigDecimal getFileSizeInMB() {
         return fileSizeInMB;
     }
@@ -0,0 +1,12 @@
+package org.bot.spring.exceptions;
+
+/**
+ * Видео нельзя отдать потоком: yt-dlp не нашёл формат одним файлом, который можно писать в stdout.
+ * Обработчик в этом случае скачивает видео в файл.
+ */
+public class StreamingUnavailableException extends RuntimeException {
+
+    public StreamingUnavailableException(String message) {
+        super(message);
+    }
+}
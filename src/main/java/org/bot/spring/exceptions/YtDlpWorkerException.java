@@ -0,0 +1,28 @@
+package org.bot.spring.exceptions;
+
+/**
+ * Воркер yt-dlp не смог выполнить запрос (не запустился, упал, превысил таймаут).
+ * Повторить запрос через отдельный процесс yt-dlp можно, только если он {@link #isRetryable() повторяемый}:
+ * воркер не успел отдать ни одной строки и не исчерпал таймаут.
+ */
+public class YtDlpWorkerException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public YtDlpWorkerException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public YtDlpWorkerException(String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    /**
+     * @return true, если получатель вывода ещё ничего не получил и запрос можно выполнить заново
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -2,18 +2,36 @@ package org.bot.spring.handlers;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.dto.CanonicalUrl;
+import org.bot.spring.dto.DownloadVideoCommand;
 import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.VideoFormatDto;
+import org.bot.spring.dto.VideoKey;
+import org.bot.spring.exceptions.DownloadRejectedException;
 import org.bot.spring.exceptions.FileSizeExceededException;
+import org.bot.spring.exceptions.StreamingUnavailableException;
 import org.bot.spring.exceptions.YtDlpExitException;
 import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
 import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.DownloadScheduler;
+import org.bot.spring.service.download.InFlightDownloads;
+import org.bot.spring.service.download.PreparedVideo;
+import org.bot.spring.service.ffmpeg.FfmpegService;
+import org.bot.spring.service.telegram.ProgressReporter;
+import org.bot.spring.service.telegram.Status;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
 
 import static java.util.Objects.nonNull;
+import static org.bot.spring.service.TelegramMessageService.await;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -21,57 +39,249 @@ public abstract class AbstractMessageHandler implements MessageHandler {
 
     protected final YtDlpService ytDlpService;
     protected final TelegramMessageService telegramMessageService;
+    protected final VideoFileIdCache fileIdCache;
+    protected final UrlCanonicalizer urlCanonicalizer;
+    protected final InFlightDownloads inFlightDownloads;
+    protected final FfmpegService ffmpegService;
+    protected final DownloadScheduler downloadScheduler;
 
     @Override
     public void handle(String text, MessageContext context) {
-        Message message = null;
+        // Шаг 1: Отправить начальное сообщение, не дожидаясь ответа Telegram
+        Status status = telegramMessageService.sendStatusMessage(context.getChatId(), "Начата обработка сообщения");
         try {
-            // Шаг 1: Извлечь URL (если передан полный текст)
-            String videoUrl = ytDlpService.extractUrl(text);
+            // Шаг 2: Извлечь URL (если передан полный текст); ссылка без схемы — само сообщение
+            String videoUrl = urlCanonicalizer.findFirstUrl(text);
             if (videoUrl == null) {
                 videoUrl = text;
             }
             String textWithoutUrl = text.replace(videoUrl, "");
             log.info("Обработка видео: {}", videoUrl);
 
-            // Шаг 2: Отправить начальное сообщение
-            message = telegramMessageService.sendTextMessage(context.getChatId(), "Начата обработка сообщения");
-
-            // Шаг 3: Выполнить специфичную логику загрузки
-            String filePath = downloadVideo(videoUrl, context, message);
+            String messageText = "Видео отправлено пользователем " + context.getUsername() + ": " + textWithoutUrl;
 
-            if (filePath == null) {
-                telegramMessageService.editTextMessage(context.getChatId(), message.getMessageId(), "Не удалось загрузить видео");
-                return;
+            // Шаг 3: Если видео уже загружалось в Telegram — отправить по file_id без скачивания
+            VideoKey videoKey = videoKey(videoUrl);
+            String cachedFileId = fileIdCache.get(videoKey);
+            if (cachedFileId != null) {
+                try {
+                    await(telegramMessageService.sendVideoByFileId(context.getChatId(), cachedFileId, videoUrl));
+                    log.info("Видео отправлено из кэша file_id: {}", videoKey);
+                    finish(context, status, messageText);
+                    return;
+                } catch (TelegramApiException e) {
+                    fileIdCache.evict(videoKey);
+                }
             }
 
-            // Шаг 4: Отправить результат
-            File videoFile = new File(filePath);
-            String messageText = "Видео отправлено пользователем " + context.getUsername() + ": " + textWithoutUrl;
-            Object videoSendResult = telegramMessageService.sendVideo(context.getChatId(), videoFile, videoUrl);
-            if (nonNull(videoSendResult)) {
-                telegramMessageService.editTextMessage(context.getChatId(), message.getMessageId(), messageText);
-                telegramMessageService.deleteMessage(context.getChatId(), context.getMessageId());
-            } else {
-                telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), "Процесс загрузки был прерван");
-            }
+            // Шаг 4: Скачать видео или дождаться загрузки того же видео, запрошенной из другого чата.
+            // Файл удаляется, когда его отправит последний участник загрузки
+            try (InFlightDownloads.Lease lease = inFlightDownloads.join(videoKey)) {
+                Message videoSendResult;
+                if (lease.isLeader() && isStreamable()) {
+                    // Шаг 5 совмещён с загрузкой: видео уходит в Telegram прямо из yt-dlp
+                    videoSendResult = streamAsLeader(lease, videoUrl, context, status);
+                } else {
+                    String filePath = lease.isLeader()
+                            ? downloadAsLeader(lease, videoUrl, context, status)
+                            : awaitDownload(lease, status);
+
+                    if (filePath == null && lease.getFileId() == null) {
+                        status.update("Не удалось загрузить видео");
+                        return;
+                    }
+
+                    // Шаг 5: Отправить результат
+                    videoSendResult = sendDownloaded(lease, context, filePath, videoUrl);
+                }
 
-            // Шаг 5: Удалить временный файл
-            ytDlpService.deleteFile(filePath);
-            log.info("Видео успешно отправлено и удалено: {}", filePath);
+                if (nonNull(videoSendResult)) {
+                    // Нарезанное видео — альбом из нескольких file_id, в кэш не попадает
+                    if (lease.getParts().isEmpty()) {
+                        String fileId = telegramMessageService.extractFileId(videoSendResult);
+                        fileIdCache.put(videoKey, fileId);
+                        lease.publishFileId(fileId);
+                    }
+                    log.info("Видео успешно отправлено: {}", videoKey);
+                    finish(context, status, messageText);
+                } else {
+                    status.update("Процесс загрузки был прерван");
+                }
+            }
 
         } catch (YtDlpExitException fse) {
             log.error("Ошибка загрузки видео: \n{}", fse.getMessage());
-            telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(),
-                    "Не удалось скачать файл по техническим причинам =(\n" +
-                            "Пишите админу");
+            status.update("Не удалось скачать файл по техническим причинам =(\n" +
+                    "Пишите админу");
         } catch (FileSizeExceededException fse) {
             log.error("Ошибка загрузки видео: {}", fse.getMessage());
-            telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), fse.getMessage());
+            status.update(fse.getMessage());
+        } catch (DownloadRejectedException e) {
+            log.warn("Загрузка отклонена: {}", e.getMessage());
+            status.update(e.getMessage());
+        } catch (TelegramApiException e) {
+            log.error("Ошибка отправки видео: {}", e.getMessage());
+            status.update("Не удалось отправить видео в Telegram");
         } catch (InterruptedException | IOException e) {
             log.error("Ошибка загрузки видео: {}", e.getMessage());
-            telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), "Процесс был прерван " + e.getMessage());
+            status.update("Процесс был прерван " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PreparedVideo prepare(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException {
+        VideoKey videoKey = videoKey(videoUrl);
+        String cachedFileId = fileIdCache.get(videoKey);
+        if (cachedFileId != null) {
+            status.update("Найдено в кэше");
+            return PreparedVideo.cached(videoKey, cachedFileId);
+        }
+        // Потоковая отправка недоступна: видео уходит в Telegram в составе альбома, поэтому скачивается в файл
+        InFlightDownloads.Lease lease = inFlightDownloads.join(videoKey);
+        try {
+            String filePath = lease.isLeader()
+                    ? downloadAsLeader(lease, videoUrl, context, status)
+                    : awaitDownload(lease, status);
+            if (lease.getFileId() == null && filePath == null) {
+                lease.close();
+                return null;
+            }
+            status.update("Скачано");
+            return new PreparedVideo(videoKey, lease.getFileId(), filePath, lease.getParts(), lease);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Видео отправлено: показать итоговый текст и удалить исходное сообщение со ссылкой
+     */
+    private void finish(MessageContext context, Status status, String messageText) throws InterruptedException {
+        status.update(messageText);
+        try {
+            await(telegramMessageService.deleteMessage(context.getChatId(), context.getMessageId()));
+        } catch (TelegramApiException e) {
+            log.warn("Не удалось удалить исходное сообщение: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Скачивание ведущим; место в {@link DownloadScheduler} занято только на время работы yt-dlp и ffmpeg
+     */
+    private String downloadAsLeader(InFlightDownloads.Lease lease, String videoUrl, MessageContext context,
+                                    Status status) throws IOException, InterruptedException {
+        try {
+            String filePath = downloadScheduler.call(getPlatform(), () -> {
+                String downloaded = downloadVideo(videoUrl, context, status);
+                if (downloaded != null && ffmpegService.isEnabled()) {
+                    fitToLimit(lease, downloaded, status);
+                }
+                return downloaded;
+            });
+            lease.complete(filePath);
+            return filePath;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            lease.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Перепаковать видео для быстрого старта воспроизведения, а если оно больше лимита —
+     * перекодировать или нарезать на части
+     */
+    private void fitToLimit(InFlightDownloads.Lease lease, String filePath, Status status)
+            throws IOException, InterruptedException {
+        long maxBytes = ytDlpService.getMaxFileSizeBytes();
+        if (new File(filePath).length() <= maxBytes) {
+            ffmpegService.fitToLimit(Path.of(filePath), maxBytes);
+        } else if (ffmpegService.isSplitting()) {
+            status.update("Видео больше лимита, делю на части...");
+            lease.publishParts(ffmpegService.split(Path.of(filePath), maxBytes).stream()
+                    .map(Path::toString)
+                    .toList());
+        } else {
+            status.update("Видео больше лимита, сжимаю...");
+            ffmpegService.fitToLimit(Path.of(filePath), maxBytes);
+        }
+    }
+
+    /**
+     * Потоковая загрузка ведущим; ожидающие получат file_id. Если формата одним файлом нет
+     * или он больше лимита, но ffmpeg доведёт его до лимита, — загрузка в файл.
+     * Здесь загрузка с сайта и есть отправка в Telegram, поэтому место в {@link DownloadScheduler} держится на всё время.
+     */
+    private Message streamAsLeader(InFlightDownloads.Lease lease, String videoUrl, MessageContext context,
+                                   Status status) throws IOException, InterruptedException, TelegramApiException {
+        try {
+            Message result = downloadScheduler.call(getPlatform(), () -> streamVideo(videoUrl, context, status));
+            lease.publishFileId(telegramMessageService.extractFileId(result));
+            lease.complete(null);
+            return result;
+        } catch (StreamingUnavailableException e) {
+            log.info("Потоковая загрузка недоступна, скачиваю в файл: {}", videoUrl);
+            return sendDownloaded(lease, context, downloadAsLeader(lease, videoUrl, context, status), videoUrl);
+        } catch (FileSizeExceededException e) {
+            if (!canFitAfterDownload(e)) {
+                lease.fail(e);
+                throw e;
+            }
+            log.info("Видео больше лимита, скачиваю в файл для ffmpeg: {}", videoUrl);
+            return sendDownloaded(lease, context, downloadAsLeader(lease, videoUrl, context, status), videoUrl);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            lease.fail(e);
+            throw e;
+        }
+    }
+
+    private String awaitDownload(InFlightDownloads.Lease lease, Status status) throws IOException, InterruptedException {
+        status.update("Это видео уже загружается, жду результат...");
+        return lease.awaitFile();
+    }
+
+    /**
+     * Отправляет скачанное видео; если другой участник загрузки уже получил file_id, файл повторно не загружается.
+     * Нарезанное видео отправляется альбомом, результат — сообщение с первой частью.
+     */
+    private Message sendDownloaded(InFlightDownloads.Lease lease, MessageContext context, String filePath,
+                                   String videoUrl) throws TelegramApiException, InterruptedException {
+        String fileId = lease.getFileId();
+        if (fileId != null) {
+            try {
+                return await(telegramMessageService.sendVideoByFileId(context.getChatId(), fileId, videoUrl));
+            } catch (TelegramApiException e) {
+                if (filePath == null) {
+                    throw e;
+                }
+            }
         }
+        if (filePath == null) {
+            return null;
+        }
+        List<String> parts = lease.getParts();
+        if (!parts.isEmpty()) {
+            List<Message> album = await(telegramMessageService.sendVideoAlbum(context.getChatId(),
+                    parts.stream().map(File::new).toList(), videoUrl));
+            return album.isEmpty() ? null : album.getFirst();
+        }
+        return await(telegramMessageService.sendVideo(context.getChatId(), new File(filePath), videoUrl));
+    }
+
+    /**
+     * Ключ видео для кэша file_id: разные варианты ссылки на одно видео дают один ключ
+     */
+    protected VideoKey videoKey(String videoUrl) {
+        CanonicalUrl canonical = urlCanonicalizer.canonicalize(videoUrl);
+        String identity = canonical != null ? canonical.identity() : videoUrl;
+        return new VideoKey(getPlatform().getExtractor(), identity, formatPolicy());
+    }
+
+    /**
+     * Политика выбора формата, входит в ключ кэша
+     */
+    protected String formatPolicy() {
+        return ytDlpService.formatPolicy(getPlatform());
     }
 
     /**
@@ -79,18 +289,133 @@ public abstract class AbstractMessageHandler implements MessageHandler {
      *
      * @param videoUrl URL видео
      * @param context контекст сообщения
-     * @param message сообщение для редактирования
+     * @param status статусное сообщение для отображения хода загрузки
      * @return путь к загруженному файлу или null, если загрузка не удалась
      */
-    protected abstract String downloadVideo(String videoUrl, MessageContext context, Message message) throws IOException, InterruptedException;
+    protected abstract String downloadVideo(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException;
+
+    /**
+     * Можно ли отдавать видео этой платформы потоком (формат одним файлом, без перепаковки)
+     */
+    protected boolean isStreamable() {
+        return false;
+    }
+
+    /**
+     * Выбрать формат и отправить видео в Telegram прямо из stdout yt-dlp, без временного файла.
+     *
+     * @return отправленное сообщение
+     * @throws StreamingUnavailableException если подходящего формата одним файлом нет
+     * @throws IOException                   в том числе если Telegram отклонил видео
+     */
+    protected Message streamVideo(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException {
+        status.update("Подбираю формат...");
+
+        String fileName = ytDlpService.createFilename(context);
+        ProgressReporter progress = progressReporter(status);
+        return ytDlpService.streamSinglePass(ytDlpService.streamingCommand(videoUrl),
+                selected -> notifyFormatSelected(progress, selected),
+                progress,
+                video -> {
+                    try {
+                        return await(telegramMessageService.sendVideoStream(context.getChatId(), video, fileName, videoUrl));
+                    } catch (TelegramApiException e) {
+                        throw new IOException("Telegram отклонил видео: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * Выбрать формат и скачать видео одним запуском yt-dlp.
+     * Статусное сообщение обновляется, как только yt-dlp выбрал формат.
+     * Если в лимит не помещается ни один формат, но ffmpeg может довести видео до лимита,
+     * формат выбирается заново в пределах {@code ffmpeg.max-source-size-mb}.
+     *
+     * @param fileName    имя итогового файла
+     * @param remuxFormat пресет {@code -t} для перепаковки или null
+     * @return путь к загруженному файлу
+     */
+    protected String downloadSinglePass(String videoUrl, MessageContext context, Status status,
+                                        String fileName, String remuxFormat) throws IOException, InterruptedException {
+        status.update("Подбираю формат...");
+
+        DownloadVideoCommand command = ytDlpService.singlePassCommand(videoUrl, fileName, remuxFormat);
+        ProgressReporter progress = progressReporter(status);
+        try {
+            ytDlpService.downloadSinglePass(command, selected -> notifyFormatSelected(progress, selected), progress);
+        } catch (FileSizeExceededException e) {
+            if (!canFitAfterDownload(e)) {
+                throw e;
+            }
+            status.update("Видео больше лимита, скачиваю, чтобы уменьшить...");
+            command = ytDlpService.singlePassCommand(videoUrl, fileName, remuxFormat, ffmpegService.getMaxSourceSizeBytes());
+            ytDlpService.downloadSinglePass(command, selected -> notifyFormatSelected(progress, selected), progress);
+        }
+        return command.getOutputPath();
+    }
+
+    /**
+     * Видео больше лимита, но после загрузки ffmpeg сожмёт или нарежет его
+     * (размер неизвестен или не больше {@code ffmpeg.max-source-size-mb})
+     */
+    private boolean canFitAfterDownload(FileSizeExceededException e) {
+        return ffmpegService.isEnabled() && (e.getFileSizeInMB() == null || ffmpegService.canFit(e.getFileSizeInMB()));
+    }
+
+    /**
+     * Выбрать по каталогу форматов лучший вариант под бюджет размера (в том числе видео + аудио) и скачать его.
+     *
+     * @param fileName    имя итогового файла
+     * @param remuxFormat пресет {@code -t} для перепаковки или null
+     * @return путь к загруженному файлу или null, если подходящего формата нет
+     */
+    protected String downloadAdaptive(String videoUrl, MessageContext context, Status status,
+                                      String fileName, String remuxFormat) throws IOException, InterruptedException {
+        status.update("Подбираю формат...");
+        VideoFormatDto selected = ytDlpService.selectFormat(videoUrl, getPlatform());
+        if (selected == null) {
+            status.update("Не найден подходящий формат.");
+            return null;
+        }
+        checkFileSizeAndNotify(selected.getFileSizeInMB());
+
+        ProgressReporter progress = progressReporter(status);
+        notifyFormatSelected(progress, selected);
+        DownloadVideoCommand command = DownloadVideoCommand.builder()
+                .videoId(selected.getId())
+                .fileName(fileName)
+                .videoUrl(videoUrl)
+                .folderPath(ytDlpService.pathToDownload())
+                .format(remuxFormat)
+                .mergeOutputFormat(remuxFormat == null ? selected.getContainer() : null)
+                .progressTemplate(ytDlpService.progressTemplate())
+                .build();
+        ytDlpService.downloadVideo(command, progress);
+        return command.getOutputPath();
+    }
+
+    private void notifyFormatSelected(ProgressReporter progress, VideoFormatDto selected) {
+        log.info("Выбран формат: {}", selected);
+        progress.stage(String.format("Загружаю видео (формат %s, %s)...",
+                selected.getContainer(),
+                selected.getResolution()));
+    }
+
+    /**
+     * Показ прогресса загрузки в статусном сообщении, не чаще {@code download.progress-interval}
+     */
+    protected ProgressReporter progressReporter(Status status) {
+        return new ProgressReporter(status, ytDlpService.getProgressInterval());
+    }
 
     /**
-     * Проверить размер файла и отправить сообщение, если превышен
+     * Проверить размер файла и отправить сообщение, если превышен.
+     * Файл больше лимита допускается, если его затем можно перекодировать через ffmpeg.
      *
      * @param fileSizeInMB размер файла в MB
      */
     protected void checkFileSizeAndNotify(BigDecimal fileSizeInMB) {
-        if (ytDlpService.isFileSizeExceeded(fileSizeInMB)) {
+        if (ytDlpService.isFileSizeExceeded(fileSizeInMB) && !ffmpegService.canFit(fileSizeInMB)) {
             throw new FileSizeExceededException(fileSizeInMB, ytDlpService.getMaxFileSize());
         }
     }
@@ -0,0 +1,71 @@
+package org.bot.spring.handlers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.DownloadScheduler;
+import org.bot.spring.service.download.InFlightDownloads;
+import org.bot.spring.service.ffmpeg.FfmpegService;
+import org.bot.spring.service.telegram.Status;
+import org.bot.spring.service.ytdlp.YtDlpExtractors;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Ссылки на сайты без отдельного обработчика, для которых в yt-dlp есть экстрактор
+ * ({@link YtDlpExtractors}). Формат выбирает сам yt-dlp за один запуск, видео перепаковывается в mp4.
+ */
+@Slf4j
+@Component
+public class GenericMessageHandler extends AbstractMessageHandler {
+
+    private final YtDlpExtractors extractors;
+
+    public GenericMessageHandler(YtDlpService ytDlpService,
+                                 TelegramMessageService telegramMessageService,
+                                 VideoFileIdCache fileIdCache,
+                                 UrlCanonicalizer urlCanonicalizer,
+                                 InFlightDownloads inFlightDownloads,
+                                 FfmpegService ffmpegService,
+                                 DownloadScheduler downloadScheduler,
+                                 YtDlpExtractors extractors) {
+        super(ytDlpService, telegramMessageService, fileIdCache, urlCanonicalizer, inFlightDownloads, ffmpegService,
+                downloadScheduler);
+        this.extractors = extractors;
+    }
+
+    @Override
+    public Platform getPlatform() {
+        return Platform.GENERIC;
+    }
+
+    /**
+     * Своих доменов нет: {@link MessageHandlerRouter} выбирает этот обработчик,
+     * если хост не подошёл ни одному другому и для сайта есть экстрактор
+     */
+    @Override
+    public List<String> hosts() {
+        return List.of();
+    }
+
+    /**
+     * @param host хост ссылки без {@code www.} в нижнем регистре
+     */
+    public boolean supports(String host) {
+        return extractors.supports(host);
+    }
+
+    @Override
+    protected String downloadVideo(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException {
+        if (ytDlpService.isAdaptiveSelection()) {
+            return downloadAdaptive(videoUrl, context, status, ytDlpService.createFilename(context, "mp4"), "mp4");
+        }
+        return downloadSinglePass(videoUrl, context, status, ytDlpService.createFilename(context, "mp4"), "mp4");
+    }
+}
@@ -2,79 +2,109 @@ package org.bot.spring.handlers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.Platform;
 import org.bot.spring.dto.DownloadVideoCommand;
+import org.bot.spring.dto.FormatCatalog;
 import org.bot.spring.dto.VideoFormatDto;
+import org.bot.spring.exceptions.YtDlpExitException;
 import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
 import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.DownloadScheduler;
+import org.bot.spring.service.download.InFlightDownloads;
+import org.bot.spring.service.ffmpeg.FfmpegService;
+import org.bot.spring.service.proxy.ProxyHedger;
 import org.bot.spring.service.proxy.ProxyProvider;
+import org.bot.spring.service.telegram.ProgressReporter;
+import org.bot.spring.service.telegram.Status;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.objects.message.Message;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.List;
 
-//TODO: доделать логику по прокси, пока нас спасёт только сингапур :)
-// + логика чеканья списка прокси через yt-dlp -F запросы к метаданным
 @Slf4j
 @Component
 public class InstagramMessageHandler extends AbstractMessageHandler {
 
-    private static final String[] INSTAGRAM_PREFIXES = {
-            "https://instagram.com",
-            "https://www.instagram.com",
-            "http://instagram.com",
-            "http://www.instagram.com"
-    };
+    private static final int MAX_DOWNLOAD_ATTEMPTS = 3;
+
     private final ProxyProvider proxyProvider;
+    private final ProxyHedger proxyHedger;
 
     public InstagramMessageHandler(YtDlpService ytDlpService,
                                    TelegramMessageService telegramMessageService,
-                                   ProxyProvider proxyProvider) {
-        super(ytDlpService, telegramMessageService);
+                                   VideoFileIdCache fileIdCache,
+                                   UrlCanonicalizer urlCanonicalizer,
+                                   InFlightDownloads inFlightDownloads,
+                                   FfmpegService ffmpegService,
+                                   DownloadScheduler downloadScheduler,
+                                   ProxyProvider proxyProvider,
+                                   ProxyHedger proxyHedger) {
+        super(ytDlpService, telegramMessageService, fileIdCache, urlCanonicalizer, inFlightDownloads, ffmpegService,
+                downloadScheduler);
         this.proxyProvider = proxyProvider;
+        this.proxyHedger = proxyHedger;
     }
 
     @Override
-    public boolean canHandle(String text) {
-        if (text == null || text.isEmpty()) {
-            return false;
-        }
-        // Happy path: сообщение начинается со ссылки
-        for (String prefix : INSTAGRAM_PREFIXES) {
-            if (text.startsWith(prefix)) {
-                return true;
-            }
-        }
-        // Fallback: ссылка где-то внутри текста
-        return text.toLowerCase().contains("instagram.com");
+    public Platform getPlatform() {
+        return Platform.INSTAGRAM;
     }
 
+    /**
+     * Instagram отдаёт один формат, выбора нет
+     */
     @Override
-    protected String downloadVideo(String videoUrl, MessageContext context, Message message) throws IOException, InterruptedException {
-        VideoFormatDto maxSize = ytDlpService.getMaxVideoSizeForInstagram(videoUrl);
+    protected String formatPolicy() {
+        return "best";
+    }
+
+    @Override
+    public List<String> hosts() {
+        return List.of("instagram.com");
+    }
+
+    @Override
+    protected String downloadVideo(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException {
+        VideoFormatDto maxSize;
+        String proxy;
+        if (proxyHedger.isEnabled()) {
+            // Метаданные запрашиваются через несколько прокси, скачиваем через первый ответивший
+            status.update("Подбираю прокси...");
+            ProxyHedger.Winner<FormatCatalog> winner = proxyHedger.race(getPlatform(),
+                    (candidate, onStart) -> ytDlpService.getFormatCatalog(videoUrl, candidate, onStart));
+            maxSize = ytDlpService.getLargestVideo(winner.result());
+            proxy = winner.proxy();
+        } else {
+            maxSize = ytDlpService.getMaxVideoSizeForInstagram(videoUrl);
+            proxy = proxyProvider.getCurrentProxy(getPlatform());
+        }
         // Проверить размер файла
         checkFileSizeAndNotify(maxSize.getFileSizeInMB().divide(BigDecimal.TWO, RoundingMode.DOWN));
-        DownloadVideoCommand command = null;
-        //Прокси пока выключены
-        String proxy = proxyProvider.getCurrentProxy();
-        for (int i = 0; i < 3; i++) {
+        ProgressReporter progress = progressReporter(status);
+        Exception lastError = null;
+        for (int attempt = 1; attempt <= MAX_DOWNLOAD_ATTEMPTS; attempt++) {
+            DownloadVideoCommand command = DownloadVideoCommand.builder()
+                    .fileName(ytDlpService.createFilename(context))
+                    .videoUrl(videoUrl)
+                    .folderPath(ytDlpService.pathToDownload())
+                    .progressTemplate(ytDlpService.progressTemplate())
+                    .proxy(proxy)
+                    .platform(getPlatform())
+                    .build();
             try {
-                command = DownloadVideoCommand.builder()
-                        .fileName(ytDlpService.createFilename(context))
-                        .videoUrl(videoUrl)
-                        .folderPath(ytDlpService.pathToDownload())
-                        .build();
-                ytDlpService.downloadVideo(command);
-            } catch (Exception e) {
-                i++;
-                if (i == 3) throw new RuntimeException("Не удалось скачать видео через прокси");
-                proxy = proxyProvider.getNextProxy().toYtDlpFormat();
-                log.info("Повторная попытка скачать через прокси - {}", proxy);
+                ytDlpService.downloadVideo(command, progress);
+                return command.getOutputPath();
+            } catch (IOException | YtDlpExitException e) {
+                lastError = e;
+                proxy = proxyProvider.getCurrentProxy(getPlatform());
+                log.info("Попытка {} не удалась, повторяю через прокси - {}", attempt, proxy);
             }
         }
-        if (command == null) throw new RuntimeException("Не удалось скачать видео через прокси");
-        return command.getOutputPath();
+        throw new IOException("Не удалось скачать видео через прокси", lastError);
     }
 
 }
@@ -1,9 +1,35 @@
 package org.bot.spring.handlers;
 
 import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.service.download.PreparedVideo;
+import org.bot.spring.service.telegram.Status;
+
+import java.io.IOException;
+import java.util.List;
 
 //TODO: добавить тикток
 public interface MessageHandler {
-    boolean canHandle(String text);
+    /**
+     * Платформа, ссылки которой обрабатывает обработчик
+     */
+    Platform getPlatform();
+
+    /**
+     * Домены, ссылки на которые обрабатывает обработчик. Поддомены подходят тоже:
+     * {@code youtube.com} покрывает {@code music.youtube.com}. По ним {@link MessageHandlerRouter}
+     * строит таблицу выбора обработчика.
+     */
+    List<String> hosts();
+
     void handle(String text, MessageContext context);
+
+    /**
+     * Скачать видео по ссылке (или взять file_id из кэша), не отправляя его:
+     * несколько ссылок из одного сообщения уходят одним альбомом.
+     * Вызывающий отправляет результат и закрывает его.
+     *
+     * @return подготовленное видео или null, если скачать не удалось
+     */
+    PreparedVideo prepare(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException;
 }
@@ -0,0 +1,96 @@
+package org.bot.spring.handlers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Выбор обработчика по хосту ссылки.
+ * <p>
+ * При старте домены всех обработчиков ({@link MessageHandler#hosts()}) раскладываются в таблицу.
+ * Для сообщения ссылка извлекается один раз, затем хост и его родительские домены ищутся в таблице:
+ * {@code music.youtube.com} → {@code youtube.com} → {@code com}. Совпадение только по целой метке,
+ * поэтому {@code notyoutube.com} и {@code vk.com} в параметрах YouTube-ссылки не влияют на выбор.
+ * Если домен не найден, ссылку берёт {@link GenericMessageHandler}, когда для сайта есть экстрактор yt-dlp.
+ */
+@Slf4j
+@Component
+public class MessageHandlerRouter {
+
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final Map<String, MessageHandler> byHost = new HashMap<>();
+    private final GenericMessageHandler genericHandler;
+
+    public MessageHandlerRouter(List<MessageHandler> handlers, UrlCanonicalizer urlCanonicalizer) {
+        this.urlCanonicalizer = urlCanonicalizer;
+        GenericMessageHandler generic = null;
+        for (MessageHandler handler : handlers) {
+            if (handler instanceof GenericMessageHandler genericMessageHandler) {
+                generic = genericMessageHandler;
+            }
+            for (String host : handler.hosts()) {
+                MessageHandler previous = byHost.putIfAbsent(host.toLowerCase(Locale.ROOT), handler);
+                if (previous != null && previous != handler) {
+                    log.warn("Домен {} заявлен обработчиками {} и {}, используется первый", host,
+                            previous.getClass().getSimpleName(), handler.getClass().getSimpleName());
+                }
+            }
+        }
+        this.genericHandler = generic;
+    }
+
+    /**
+     * Обработчик для первой ссылки в сообщении. Если ссылки со схемой нет,
+     * адресом считается всё сообщение из одного слова ({@code youtu.be/X}).
+     *
+     * @return обработчик или null, если сообщение не содержит поддерживаемой ссылки
+     */
+    public MessageHandler route(String text) {
+        String url = urlCanonicalizer.findFirstUrl(text);
+        if (url == null) {
+            url = singleWord(text);
+        }
+        return routeUrl(url);
+    }
+
+    /**
+     * @return обработчик для ссылки или null, если сайт не поддерживается
+     */
+    public MessageHandler routeUrl(String url) {
+        String host = urlCanonicalizer.host(url);
+        if (host == null) {
+            return null;
+        }
+        String domain = host;
+        while (true) {
+            MessageHandler handler = byHost.get(domain);
+            if (handler != null) {
+                return handler;
+            }
+            int dot = domain.indexOf('.');
+            if (dot < 0) {
+                break;
+            }
+            domain = domain.substring(dot + 1);
+        }
+        return genericHandler != null && genericHandler.supports(host) ? genericHandler : null;
+    }
+
+    private String singleWord(String text) {
+        if (text == null) {
+            return null;
+        }
+        String word = text.strip();
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isWhitespace(word.charAt(i))) {
+                return null;
+            }
+        }
+        return word.indexOf('.') > 0 ? word : null;
+    }
+}
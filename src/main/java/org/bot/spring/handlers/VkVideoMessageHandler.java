@@ -3,11 +3,18 @@ package org.bot.spring.handlers;
 import lombok.extern.slf4j.Slf4j;
 import org.bot.spring.dto.DownloadVideoCommand;
 import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.Platform;
 import org.bot.spring.dto.VideoFormatDto;
 import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
 import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.DownloadScheduler;
+import org.bot.spring.service.download.InFlightDownloads;
+import org.bot.spring.service.ffmpeg.FfmpegService;
+import org.bot.spring.service.telegram.ProgressReporter;
+import org.bot.spring.service.telegram.Status;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.objects.message.Message;
 
 import java.io.IOException;
 import java.util.List;
@@ -16,46 +23,41 @@ import java.util.List;
 @Component
 public class VkVideoMessageHandler extends AbstractMessageHandler {
 
-    private static final String[] VK_VIDEO_PREFIXES = {
-            "https://vk.com",
-            "https://www.vk.com",
-            "http://vk.com",
-            "http://www.vk.com",
-            "https://vk.ru",
-            "https://www.vk.ru",
-            "http://vk.ru",
-            "http://www.vk.ru",
-            "https://vkvideo.ru",
-            "http://vkvideo.ru"
-    };
-
-    public VkVideoMessageHandler(YtDlpService ytDlpService, TelegramMessageService telegramMessageService) {
-        super(ytDlpService, telegramMessageService);
+    public VkVideoMessageHandler(YtDlpService ytDlpService, TelegramMessageService telegramMessageService,
+                                 VideoFileIdCache fileIdCache,
+                                 UrlCanonicalizer urlCanonicalizer,
+                                 InFlightDownloads inFlightDownloads,
+                                 FfmpegService ffmpegService,
+                                 DownloadScheduler downloadScheduler) {
+        super(ytDlpService, telegramMessageService, fileIdCache, urlCanonicalizer, inFlightDownloads, ffmpegService,
+                downloadScheduler);
     }
 
     @Override
-    public boolean canHandle(String text) {
-        if (text == null || text.isEmpty()) {
-            return false;
-        }
-        // Happy path: сообщение начинается со ссылки
-        for (String prefix : VK_VIDEO_PREFIXES) {
-            if (text.startsWith(prefix)) {
-                return true;
-            }
-        }
-        // Fallback: ссылка где-то внутри текста
-        return text.contains("vk.com") || text.contains("vk.ru") || text.contains("vkvideo.ru");
+    public Platform getPlatform() {
+        return Platform.VK;
+    }
+
+    @Override
+    public List<String> hosts() {
+        return List.of("vk.com", "vk.ru", "vkvideo.ru");
     }
 
     @Override
-    protected String downloadVideo(String videoUrl, MessageContext context, Message message) throws IOException, InterruptedException {
+    protected String downloadVideo(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException {
+        if (ytDlpService.isAdaptiveSelection()) {
+            return downloadAdaptive(videoUrl, context, status, ytDlpService.createFilename(context, "mp4"), "mp4");
+        }
+        if (ytDlpService.isSinglePass()) {
+            return downloadSinglePass(videoUrl, context, status, ytDlpService.createFilename(context, "mp4"), "mp4");
+        }
+
         // Шаг 2: Получить список доступных форматов
-        telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), "Получаю список форматов...");
+        status.update("Получаю список форматов...");
         List<VideoFormatDto> formats = ytDlpService.getAvailableFormats(videoUrl);
 
         if (formats.isEmpty()) {
-            telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), "Не удалось получить форматы видео.");
+            status.update("Не удалось получить форматы видео.");
             return null;
         }
 
@@ -63,11 +65,7 @@ public class VkVideoMessageHandler extends AbstractMessageHandler {
         VideoFormatDto selected = ytDlpService.selectBestFormat(formats);
 
         if (selected == null) {
-            telegramMessageService.editOrsendNewTextMessage(
-                    context.getChatId(),
-                    message.getMessageId(),
-                    "Не найден подходящий формат."
-            );
+            status.update("Не найден подходящий формат.");
             return null;
         }
 
@@ -77,22 +75,20 @@ public class VkVideoMessageHandler extends AbstractMessageHandler {
         log.info("Выбран формат: {}", selected);
 
         // Шаг 4: Загрузить видео
-        telegramMessageService.editOrsendNewTextMessage(
-                context.getChatId(),
-                message.getMessageId(),
-                String.format("Загружаю видео (формат %s, %s)...",
-                        selected.getContainer(),
-                        selected.getResolution())
-        );
+        ProgressReporter progress = progressReporter(status);
+        progress.stage(String.format("Загружаю видео (формат %s, %s)...",
+                selected.getContainer(),
+                selected.getResolution()));
 
         var command = DownloadVideoCommand.builder()
                 .videoId(selected.getId())
                 .fileName(ytDlpService.createFilename(context, "mp4"))
                 .videoUrl(videoUrl)
                 .folderPath(ytDlpService.pathToDownload())
+                .progressTemplate(ytDlpService.progressTemplate())
                 .format("mp4")
                 .build();
-        ytDlpService.downloadVideo(command);
+        ytDlpService.downloadVideo(command, progress);
         return command.getOutputPath();
     }
 
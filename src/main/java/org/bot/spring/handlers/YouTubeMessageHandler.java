@@ -2,12 +2,19 @@ package org.bot.spring.handlers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.Platform;
 import org.bot.spring.dto.DownloadVideoCommand;
 import org.bot.spring.dto.VideoFormatDto;
 import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
 import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.DownloadScheduler;
+import org.bot.spring.service.download.InFlightDownloads;
+import org.bot.spring.service.ffmpeg.FfmpegService;
+import org.bot.spring.service.telegram.ProgressReporter;
+import org.bot.spring.service.telegram.Status;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.objects.message.Message;
 
 import java.io.IOException;
 import java.util.List;
@@ -16,43 +23,47 @@ import java.util.List;
 @Component
 public class YouTubeMessageHandler extends AbstractMessageHandler {
 
-    private static final String[] YOUTUBE_PREFIXES = {
-            "https://youtube.com",
-            "https://www.youtube.com",
-            "https://youtu.be",
-            "http://youtube.com",
-            "http://www.youtube.com",
-            "http://youtu.be"
-    };
-
     public YouTubeMessageHandler(YtDlpService ytDlpService,
-                                 TelegramMessageService telegramMessageService) {
-        super(ytDlpService, telegramMessageService);
+                                 TelegramMessageService telegramMessageService,
+                                 VideoFileIdCache fileIdCache,
+                                 UrlCanonicalizer urlCanonicalizer,
+                                 InFlightDownloads inFlightDownloads,
+                                 FfmpegService ffmpegService,
+                                 DownloadScheduler downloadScheduler) {
+        super(ytDlpService, telegramMessageService, fileIdCache, urlCanonicalizer, inFlightDownloads, ffmpegService,
+                downloadScheduler);
     }
 
     @Override
-    public boolean canHandle(String text) {
-        if (text == null || text.isEmpty()) {
-            return false;
-        }
-        // Happy path: сообщение начинается со ссылки
-        for (String prefix : YOUTUBE_PREFIXES) {
-            if (text.startsWith(prefix)) {
-                return true;
-            }
-        }
-        // Fallback: ссылка где-то внутри текста
-        return text.contains("youtube.com") || text.contains("youtu.be");
+    public Platform getPlatform() {
+        return Platform.YOUTUBE;
+    }
+
+    @Override
+    public List<String> hosts() {
+        return List.of("youtube.com", "youtu.be", "youtube-nocookie.com");
     }
 
     @Override
-    protected String downloadVideo(String videoUrl, MessageContext context, Message message) throws IOException, InterruptedException {
+    protected boolean isStreamable() {
+        return ytDlpService.isStreaming();
+    }
+
+    @Override
+    protected String downloadVideo(String videoUrl, MessageContext context, Status status) throws IOException, InterruptedException {
+        if (ytDlpService.isAdaptiveSelection()) {
+            return downloadAdaptive(videoUrl, context, status, ytDlpService.createFilename(context), null);
+        }
+        if (ytDlpService.isSinglePass()) {
+            return downloadSinglePass(videoUrl, context, status, ytDlpService.createFilename(context), null);
+        }
+
         // Шаг 2: Получить список доступных форматов
-        telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), "Получаю список форматов...");
+        status.update("Получаю список форматов...");
         List<VideoFormatDto> formats = ytDlpService.getAvailableFormats(videoUrl);
 
         if (formats.isEmpty()) {
-            telegramMessageService.editOrsendNewTextMessage(context.getChatId(), message.getMessageId(), "Не удалось получить форматы видео.");
+            status.update("Не удалось получить форматы видео.");
             return null;
         }
 
@@ -60,11 +71,7 @@ public class YouTubeMessageHandler extends AbstractMessageHandler {
         VideoFormatDto selected = ytDlpService.selectBestFormat(formats);
 
         if (selected == null) {
-            telegramMessageService.editOrsendNewTextMessage(
-                    context.getChatId(),
-                    message.getMessageId(),
-                    "Не найден подходящий формат."
-            );
+            status.update("Не найден подходящий формат.");
             return null;
         }
 
@@ -74,21 +81,19 @@ public class YouTubeMessageHandler extends AbstractMessageHandler {
         log.info("Выбран формат: {}", selected);
 
         // Шаг 4: Загрузить видео
-        telegramMessageService.editOrsendNewTextMessage(
-                context.getChatId(),
-                message.getMessageId(),
-                String.format("Загружаю видео (формат %s, %s)...",
-                        selected.getContainer(),
-                        selected.getResolution())
-        );
+        ProgressReporter progress = progressReporter(status);
+        progress.stage(String.format("Загружаю видео (формат %s, %s)...",
+                selected.getContainer(),
+                selected.getResolution()));
 
         var command = DownloadVideoCommand.builder()
                 .videoId(selected.getId())
                 .fileName(ytDlpService.createFilename(context))
                 .videoUrl(videoUrl)
                 .folderPath(ytDlpService.pathToDownload())
+                .progressTemplate(ytDlpService.progressTemplate())
                 .build();
-        ytDlpService.downloadVideo(command);
+        ytDlpService.downloadVideo(command, progress);
         return command.getOutputPath();
     }
 }
@@ -1,31 +1,154 @@
 package org.bot.spring.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.ChatQueueProperties;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.CompletableFuture;
+import java.util.ArrayDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Последовательное выполнение задач каждого чата.
+ * <p>
+ * У каждого чата свой почтовый ящик — очередь задач и не более одного потока, который её разбирает.
+ * <ol>
+ *   <li>Ящик создаётся первой задачей чата и удаляется, как только очередь опустела,
+ *       поэтому память не растёт с количеством когда-либо писавших чатов</li>
+ *   <li>Длина очереди ограничена {@code chat-queue.max-depth}, лишние задачи отклоняются</li>
+ * </ol>
+ * Очередь ящика и признак работы меняются только внутри {@code compute} по id чата.
+ */
 @Slf4j
 @Service
 public class ChatQueueExecutorService {
 
-    private final ConcurrentHashMap<Long, CompletableFuture<Void>> chatQueues = new ConcurrentHashMap<>();
+    /**
+     * Результат постановки задачи в очередь чата
+     */
+    public enum Submission {
+        ACCEPTED,
+        /** Задача отклонена, очередь чата только что переполнилась — стоит сообщить в чат.
+         * Снова вернётся, когда очередь разберётся хотя бы наполовину */
+        OVERFLOW,
+        /** Задача отклонена, в чат уже сообщали о переполнении */
+        REJECTED
+    }
+
+    private final ChatQueueProperties properties;
+    private final ConcurrentHashMap<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public ChatQueueExecutorService(ChatQueueProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.waitTimer = Timer.builder("bot.chat_queue.wait").register(meterRegistry);
+        this.rejected = Counter.builder("bot.chat_queue.rejected").register(meterRegistry);
+        Gauge.builder("bot.chat_queue.depth", pendingTasks, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("bot.chat_queue.chats", mailboxes, ConcurrentHashMap::size).register(meterRegistry);
+    }
 
-    public void submitTask(Long chatId, Runnable task) {
-        chatQueues.compute(chatId, (key, existingFuture) -> {
-            if (existingFuture == null || existingFuture.isDone()) {
-                log.debug("Создана новая очередь для чата {}", chatId);
-                return CompletableFuture.runAsync(task, executor);
-            } else {
-                log.debug("Задача добавлена в очередь чата {}", chatId);
-                return existingFuture.thenRunAsync(task, executor);
+    public Submission submitTask(Long chatId, Runnable task) {
+        Submission[] submission = {Submission.ACCEPTED};
+        boolean[] start = new boolean[1];
+        Mailbox mailbox = mailboxes.compute(chatId, (key, existing) -> {
+            Mailbox box = existing != null ? existing : new Mailbox(key);
+            if (box.queue.size() >= properties.getMaxDepth()) {
+                submission[0] = box.overflowReported ? Submission.REJECTED : Submission.OVERFLOW;
+                box.overflowReported = true;
+                return box;
+            }
+            box.queue.addLast(new Task(task, System.nanoTime()));
+            if (!box.running) {
+                box.running = true;
+                start[0] = true;
             }
+            return box;
         });
+
+        if (submission[0] != Submission.ACCEPTED) {
+            rejected.increment();
+            log.warn("Очередь чата {} переполнена, задача отклонена", chatId);
+            return submission[0];
+        }
+        pendingTasks.incrementAndGet();
+        if (start[0]) {
+            log.debug("Создана новая очередь для чата {}", chatId);
+            executor.execute(() -> drain(mailbox));
+        } else {
+            log.debug("Задача добавлена в очередь чата {}", chatId);
+        }
+        return Submission.ACCEPTED;
+    }
+
+    /**
+     * @return количество чатов, у которых есть задачи
+     */
+    public int getChatCount() {
+        return mailboxes.size();
+    }
+
+    /**
+     * @return количество задач, ожидающих выполнения во всех чатах
+     */
+    public int getPendingTasks() {
+        return pendingTasks.get();
+    }
+
+    private void drain(Mailbox mailbox) {
+        Task task;
+        while ((task = next(mailbox)) != null) {
+            pendingTasks.decrementAndGet();
+            waitTimer.record(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+            try {
+                task.runnable().run();
+            } catch (Exception e) {
+                log.error("Ошибка в задаче чата {}", mailbox.chatId, e);
+            }
+        }
+    }
+
+    /**
+     * Берёт следующую задачу; если очередь пуста — удаляет ящик, и следующая задача чата создаст новый.
+     */
+    private Task next(Mailbox mailbox) {
+        Task[] next = new Task[1];
+        mailboxes.computeIfPresent(mailbox.chatId, (key, box) -> {
+            next[0] = box.queue.pollFirst();
+            if (next[0] == null) {
+                box.running = false;
+                return null;
+            }
+            if (box.queue.size() <= properties.getMaxDepth() / 2) {
+                box.overflowReported = false;
+            }
+            return box;
+        });
+        return next[0];
+    }
+
+    private static final class Mailbox {
+        private final Long chatId;
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        private boolean running;
+        private boolean overflowReported;
+
+        private Mailbox(Long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private record Task(Runnable runnable, long enqueuedAt) {
     }
 
     @PreDestroy
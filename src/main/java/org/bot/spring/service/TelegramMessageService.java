@@ -2,110 +2,260 @@ package org.bot.spring.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.dto.AlbumVideo;
+import org.bot.spring.service.stream.TelegramVideoStreamUploader;
+import org.bot.spring.service.telegram.StatusMessage;
+import org.bot.spring.service.telegram.TelegramOutboundDispatcher;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
+import org.telegram.telegrambots.meta.api.methods.send.SendMediaGroup;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.send.SendVideo;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.media.InputMedia;
+import org.telegram.telegrambots.meta.api.objects.media.InputMediaVideo;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.io.File;
-import java.math.BigDecimal;
-
-import static java.util.Objects.nonNull;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Отправка сообщений в Telegram.
+ * <p>
+ * Все методы неблокирующие: запрос ставится в очередь {@link TelegramOutboundDispatcher}
+ * и выполняется через {@code executeAsync}. Ошибки приходят в возвращённый {@link CompletableFuture}
+ * и дополнительно пишутся в лог. Дождаться результата можно через {@link #await(CompletableFuture)} —
+ * это нужно только там, где от ответа зависит дальнейшая логика (file_id отправленного видео).
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TelegramMessageService {
 
+    /** Ограничение Bot API на число элементов в {@code sendMediaGroup} */
+    public static final int MAX_ALBUM_SIZE = 10;
+
     private final OkHttpTelegramClient telegramClient;
+    private final TelegramVideoStreamUploader videoStreamUploader;
+    private final TelegramOutboundDispatcher outboundDispatcher;
+    private final TelegramApiProperties telegramApiProperties;
 
     /**
      * Отправляет текстовое сообщение
      */
-    public Message sendTextMessage(long chatId, String text) {
-        try {
-            SendMessage sendMessage = SendMessage.builder()
+    public CompletableFuture<Message> sendTextMessage(long chatId, String text) {
+        SendMessage sendMessage = SendMessage.builder()
+                .chatId(chatId)
+                .text(text)
+                .build();
+        return logFailure(outboundDispatcher.submit(chatId, () -> telegramClient.executeAsync(sendMessage)),
+                "Ошибка при отправке сообщения");
+    }
+
+    /**
+     * Отправляет статусное сообщение, которое затем можно обновлять, не дожидаясь Telegram
+     */
+    public StatusMessage sendStatusMessage(long chatId, String text) {
+        return new StatusMessage(this, chatId, text, sendTextMessage(chatId, text));
+    }
+
+    /**
+     * Отправляет документ (файл)
+     */
+    public CompletableFuture<Message> sendVideo(long chatId, File file, String caption) {
+        return logFailure(uploadVideo(chatId, videoInput(file), caption), "Ошибка при отправке документа");
+    }
+
+    /**
+     * Ставит {@code sendVideo} в очередь загрузок чата, чтобы правки статуса не ждали конца загрузки
+     */
+    private CompletableFuture<Message> uploadVideo(long chatId, InputFile video, String caption) {
+        SendVideo sendVideo = SendVideo.builder()
+                .chatId(chatId)
+                .video(video)
+                .caption(caption)
+                .build();
+        return outboundDispatcher.submitUpload(chatId, () -> telegramClient.executeAsync(sendVideo));
+    }
+
+    /**
+     * Отправляет части видео альбомами ({@code sendMediaGroup}) по {@value #MAX_ALBUM_SIZE} штук, подпись — у первой части.
+     */
+    public CompletableFuture<List<Message>> sendVideoAlbum(long chatId, List<File> parts, String caption) {
+        List<AlbumVideo> videos = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            videos.add(AlbumVideo.ofFile(parts.get(i), i == 0 ? caption : null));
+        }
+        return sendMediaGroup(chatId, videos);
+    }
+
+    /**
+     * Отправляет видео альбомами ({@code sendMediaGroup}) по {@value #MAX_ALBUM_SIZE} штук в исходном порядке.
+     * Все файлы альбома загружаются одним запросом; альбомы одного чата уходят по очереди загрузок,
+     * так что видео приходят по порядку, а правки статуса чата не ждут конца загрузки.
+     * Частоту запросов ограничивает {@link TelegramOutboundDispatcher}.
+     * Bot API не принимает альбом из одного элемента, такой остаток уходит обычным видео.
+     *
+     * @return отправленные сообщения, по одному на видео, в том же порядке
+     */
+    public CompletableFuture<List<Message>> sendMediaGroup(long chatId, List<AlbumVideo> videos) {
+        List<CompletableFuture<List<Message>>> albums = new ArrayList<>();
+        for (int from = 0; from < videos.size(); from += MAX_ALBUM_SIZE) {
+            List<AlbumVideo> chunk = videos.subList(from, Math.min(from + MAX_ALBUM_SIZE, videos.size()));
+            if (chunk.size() == 1) {
+                AlbumVideo video = chunk.getFirst();
+                // Через ту же очередь загрузок, что и альбомы, чтобы остаток не обогнал их
+                InputFile input = video.fileId() != null ? new InputFile(video.fileId()) : videoInput(video.file());
+                albums.add(uploadVideo(chatId, input, video.caption()).thenApply(List::of));
+                continue;
+            }
+            List<InputMedia> medias = new ArrayList<>();
+            for (AlbumVideo video : chunk) {
+                medias.add(inputMedia(video));
+            }
+            SendMediaGroup sendMediaGroup = SendMediaGroup.builder()
                     .chatId(chatId)
-                    .text(text)
+                    .medias(medias)
                     .build();
-            return telegramClient.execute(sendMessage);
-        } catch (TelegramApiException e) {
-            log.error("Ошибка при отправке сообщения: {}", e.getMessage(), e);
-            return null;
+            albums.add(outboundDispatcher.submitUpload(chatId, () -> telegramClient.executeAsync(sendMediaGroup)));
+        }
+        CompletableFuture<List<Message>> result = CompletableFuture.allOf(albums.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> albums.stream()
+                        .flatMap(album -> album.join().stream())
+                        .toList());
+        return logFailure(result, "Ошибка при отправке альбома");
+    }
+
+    private InputMediaVideo inputMedia(AlbumVideo video) {
+        InputMediaVideo media;
+        if (video.fileId() != null) {
+            media = new InputMediaVideo(video.fileId());
+        } else if (telegramApiProperties.isLocal()) {
+            media = new InputMediaVideo("file://" + video.file().getAbsolutePath());
+        } else {
+            media = new InputMediaVideo(video.file().getName());
+            media.setMedia(video.file(), video.file().getName());
         }
+        media.setSupportsStreaming(true);
+        media.setCaption(video.caption());
+        return media;
     }
 
     /**
-     * Пытается отредактировать сообщение, либо отправляет текстовое сообщение
+     * Отправляет видео из потока, не сохраняя его в файл.
+     * Поток читается в отдельном потоке, вызывающий может сразу вернуться к своей работе.
      */
-    public Message editOrsendNewTextMessage(long chatId, Integer messageId, String text) {
-        if (nonNull(messageId) && messageId != 0) {
-            Object flag = editTextMessage(chatId, messageId, text);
-            if (flag == null) return sendTextMessage(chatId, text);
-            return null;
-        } else {
-            return sendTextMessage(chatId, text);
+    public CompletableFuture<Message> sendVideoStream(long chatId, InputStream video, String fileName, String caption) {
+        return logFailure(outboundDispatcher.submitBlocking(chatId, () -> videoStreamUploader.sendVideo(chatId, video, fileName, caption)),
+                "Ошибка при потоковой отправке видео");
+    }
+
+    /**
+     * Повторно отправляет уже загруженное в Telegram видео по его file_id
+     */
+    public CompletableFuture<Message> sendVideoByFileId(long chatId, String fileId, String caption) {
+        SendVideo sendVideo = SendVideo.builder()
+                .chatId(chatId)
+                .video(new InputFile(fileId))
+                .caption(caption)
+                .build();
+        return logFailure(outboundDispatcher.submit(chatId, () -> telegramClient.executeAsync(sendVideo)),
+                "Ошибка при отправке видео по file_id");
+    }
+
+    /**
+     * Локальный сервер Bot API читает файл сам по пути {@code file://},
+     * публичному файл передаётся в теле multipart-запроса
+     */
+    private InputFile videoInput(File file) {
+        if (telegramApiProperties.isLocal()) {
+            return new InputFile("file://" + file.getAbsolutePath());
         }
+        return new InputFile(file);
     }
 
     /**
-     * Отправляет документ (файл)
+     * Возвращает file_id видео из отправленного сообщения или null
      */
-    public Message sendVideo(long chatId, File file, String caption) {
-        try {
-            SendVideo sendVideo = SendVideo.builder()
-                    .chatId(chatId)
-                    .video(new InputFile(file))
-                    .caption(caption)
-                    .build();
-            return telegramClient.execute(sendVideo);
-        } catch (TelegramApiException e) {
-            log.error("Ошибка при отправке документа: {}", e.getMessage(), e);
+    public String extractFileId(Message message) {
+        if (message == null) {
             return null;
         }
+        if (message.getVideo() != null) {
+            return message.getVideo().getFileId();
+        }
+        if (message.getAnimation() != null) {
+            return message.getAnimation().getFileId();
+        }
+        if (message.getDocument() != null) {
+            return message.getDocument().getFileId();
+        }
+        return null;
     }
 
     /**
      * Отправляет документ без подписи
      */
-    public Message sendVideo(long chatId, File file) {
+    public CompletableFuture<Message> sendVideo(long chatId, File file) {
         return sendVideo(chatId, file, null);
     }
 
     /**
-     * Редактирует ранее отправленное сообщение по его Id
+     * Редактирует ранее отправленное сообщение по его Id.
+     * Несколько ещё не отправленных правок одного сообщения схлопываются в последнюю.
      */
-    public Object editTextMessage(long chatId, int messageId, String text) {
-        try {
-            EditMessageText editMessageText = EditMessageText.builder()
-                    .chatId(chatId)
-                    .messageId(messageId)
-                    .text(text)
-                    .build();
-            telegramClient.execute(editMessageText);
-            return BigDecimal.ONE;
-        } catch (TelegramApiException e) {
-            log.error("Ошибка при редактировании сообщения: {}", e.getMessage(), e);
-            return null;
-        }
+    public CompletableFuture<Serializable> editTextMessage(long chatId, int messageId, String text) {
+        EditMessageText editMessageText = EditMessageText.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .text(text)
+                .build();
+        return logFailure(outboundDispatcher.submitEdit(chatId, messageId, () -> telegramClient.executeAsync(editMessageText)),
+                "Ошибка при редактировании сообщения");
     }
 
     /**
      * Удаляет ранее отправленное сообщение по его Id - добавление видео
      */
-    public Object deleteMessage(Long chatId, Integer messageId) {
+    public CompletableFuture<Boolean> deleteMessage(long chatId, int messageId) {
+        DeleteMessage deleteMessage = new DeleteMessage(String.valueOf(chatId), messageId);
+        return logFailure(outboundDispatcher.submit(chatId, () -> telegramClient.executeAsync(deleteMessage)),
+                "Ошибка при удалении сообщения");
+    }
+
+    /**
+     * Ждёт результата запроса там, где без него нельзя продолжить.
+     *
+     * @throws TelegramApiException если Telegram отклонил запрос или он не был отправлен
+     */
+    public static <T> T await(CompletableFuture<T> request) throws TelegramApiException, InterruptedException {
         try {
-            DeleteMessage deleteMessage = new DeleteMessage(chatId.toString(), messageId);
-            telegramClient.execute(deleteMessage);
-            return BigDecimal.ONE;
-        } catch (TelegramApiException e) {
-            log.error("Ошибка при удалении сообщения: {}", e.getMessage(), e);
-            return null;
+            return request.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TelegramApiException telegramApiException) {
+                throw telegramApiException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new TelegramApiException(e.getCause());
         }
     }
+
+    private static <T> CompletableFuture<T> logFailure(CompletableFuture<T> request, String description) {
+        return request.whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("{}: {}", description, error.getMessage(), error);
+            }
+        });
+    }
 }
@@ -0,0 +1,333 @@
+package org.bot.spring.service;
+
+import org.bot.spring.dto.CanonicalUrl;
+import org.bot.spring.dto.Platform;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Приводит разные варианты ссылок на одно видео к одному виду.
+ * <p>
+ * {@code youtu.be/X}, {@code youtube.com/watch?v=X&si=...} и {@code m.youtube.com/shorts/X} — одно видео,
+ * так же как {@code vkvideo.ru/video-1_2} и {@code vk.com/video-1_2}. Ссылка разбирается один раз
+ * линейным проходом (без регулярных выражений) в {@link CanonicalUrl}: платформа, идентификатор и чистая ссылка.
+ * Результат используется для выбора обработчика, ключей кэша и дедупликации.
+ */
+@Component
+public class UrlCanonicalizer {
+
+    private static final int YOUTUBE_ID_LENGTH = 11;
+
+    /**
+     * Находит первую ссылку {@code http(s)://} в тексте и разбирает её.
+     * Границы ссылки те же, что у {@link YtDlpService#extractUrl(String)}.
+     *
+     * @return разобранная ссылка или null, если ссылки в тексте нет
+     */
+    public CanonicalUrl findFirst(String text) {
+        return canonicalize(findFirstUrl(text));
+    }
+
+    /**
+     * Находит первую ссылку {@code http(s)://} в тексте.
+     *
+     * @return ссылка как есть или null, если ссылки в тексте нет
+     */
+    public String findFirstUrl(String text) {
+        if (text == null) {
+            return null;
+        }
+        int start = indexOfScheme(text, 0);
+        if (start < 0) {
+            return null;
+        }
+        return text.substring(start, urlEnd(text, start));
+    }
+
+    /**
+     * Находит ссылки {@code http(s)://} в тексте по порядку. Разные записи одного видео
+     * ({@code youtu.be/X} и {@code youtube.com/watch?v=X}) считаются одной ссылкой, остаётся первая.
+     *
+     * @param limit сколько ссылок вернуть не больше
+     * @return ссылки как есть, пустой список, если ссылок нет
+     */
+    public List<String> findAllUrls(String text, int limit) {
+        if (text == null || limit <= 0) {
+            return List.of();
+        }
+        List<String> urls = new ArrayList<>();
+        Set<String> identities = new HashSet<>();
+        int start = 0;
+        while (urls.size() < limit && (start = indexOfScheme(text, start)) >= 0) {
+            int end = urlEnd(text, start);
+            String url = text.substring(start, end);
+            CanonicalUrl canonical = canonicalize(url);
+            if (identities.add(canonical != null ? canonical.identity() : url)) {
+                urls.add(url);
+            }
+            start = end;
+        }
+        return urls;
+    }
+
+    /**
+     * Хост ссылки (схема необязательна) в нижнем регистре, без {@code www.} и {@code m.}.
+     *
+     * @return хост или null, если его в ссылке нет
+     */
+    public String host(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        int pos = schemeLength(url);
+        return host(url, pos, authorityEnd(url, pos));
+    }
+
+    /**
+     * Разбирает одну ссылку (схема необязательна).
+     *
+     * @return разобранная ссылка или null, если в ней нет хоста
+     */
+    public CanonicalUrl canonicalize(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        int pos = schemeLength(url);
+        int authorityEnd = authorityEnd(url, pos);
+        String host = host(url, pos, authorityEnd);
+        if (host == null) {
+            return null;
+        }
+
+        int fragment = url.indexOf('#', authorityEnd);
+        int end = fragment < 0 ? url.length() : fragment;
+        int query = url.indexOf('?', authorityEnd);
+        if (query > end) {
+            query = -1;
+        }
+        String path = url.substring(authorityEnd, query < 0 ? end : query);
+        String queryString = query < 0 ? "" : url.substring(query + 1, end);
+
+        if (isHost(host, "youtube.com") || isHost(host, "youtube-nocookie.com") || host.equals("youtu.be")) {
+            return youtube(url, host, path, queryString);
+        }
+        if (isHost(host, "instagram.com")) {
+            return instagram(url, path);
+        }
+        if (isHost(host, "vk.com") || isHost(host, "vk.ru") || isHost(host, "vkvideo.ru")) {
+            return vk(url, path, queryString);
+        }
+        return new CanonicalUrl(Platform.GENERIC, null, url);
+    }
+
+    private int schemeLength(String url) {
+        if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            return 8;
+        }
+        if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            return 7;
+        }
+        return 0;
+    }
+
+    private int authorityEnd(String url, int pos) {
+        int authorityEnd = pos;
+        while (authorityEnd < url.length() && "/?#".indexOf(url.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+        return authorityEnd;
+    }
+
+    private String host(String url, int pos, int authorityEnd) {
+        int hostStart = url.lastIndexOf('@', authorityEnd - 1);
+        hostStart = hostStart >= pos ? hostStart + 1 : pos;
+        int hostEnd = url.indexOf(':', hostStart);
+        if (hostEnd < 0 || hostEnd > authorityEnd) {
+            hostEnd = authorityEnd;
+        }
+        if (hostStart == hostEnd) {
+            return null;
+        }
+        String host = url.substring(hostStart, hostEnd).toLowerCase(Locale.ROOT);
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        } else if (host.startsWith("m.")) {
+            host = host.substring(2);
+        }
+        return host;
+    }
+
+    private CanonicalUrl youtube(String url, String host, String path, String query) {
+        String id;
+        if (host.equals("youtu.be")) {
+            id = segment(path, 0);
+        } else {
+            String first = segment(path, 0);
+            if ("watch".equals(first)) {
+                id = queryParam(query, "v");
+            } else if ("shorts".equals(first) || "embed".equals(first) || "live".equals(first) || "v".equals(first)) {
+                id = segment(path, 1);
+            } else {
+                id = null;
+            }
+        }
+        if (!isYoutubeId(id)) {
+            return new CanonicalUrl(Platform.YOUTUBE, null, url);
+        }
+        return new CanonicalUrl(Platform.YOUTUBE, id, "https://www.youtube.com/watch?v=" + id);
+    }
+
+    private CanonicalUrl instagram(String url, String path) {
+        // /reel/X, /reels/X, /p/X, /tv/X, а также /<user>/reel/X
+        for (int i = 0; i < 2; i++) {
+            String kind = segment(path, i);
+            if ("reel".equals(kind) || "reels".equals(kind) || "p".equals(kind) || "tv".equals(kind)) {
+                String id = segment(path, i + 1);
+                if (id != null) {
+                    String cleanKind = "reels".equals(kind) ? "reel" : kind;
+                    return new CanonicalUrl(Platform.INSTAGRAM, id, "https://www.instagram.com/" + cleanKind + "/" + id + "/");
+                }
+            }
+        }
+        return new CanonicalUrl(Platform.INSTAGRAM, null, url);
+    }
+
+    private CanonicalUrl vk(String url, String path, String query) {
+        // vk.com/video-1_2, vkvideo.ru/video-1_2, vk.com/clip-1_2, vk.com/feed?z=video-1_2%2F...
+        String id = vkVideoId(path, "/video");
+        String kind = "video";
+        if (id == null) {
+            id = vkVideoId(path, "/clip");
+            kind = "clip";
+        }
+        if (id == null) {
+            String z = queryParam(query, "z");
+            if (z != null) {
+                id = vkVideoId("/" + z, "/video");
+                kind = "video";
+            }
+        }
+        if (id == null) {
+            return new CanonicalUrl(Platform.VK, null, url);
+        }
+        return new CanonicalUrl(Platform.VK, id, "https://vk.com/" + kind + id);
+    }
+
+    /**
+     * Ищет в строке {@code <prefix>[-]<digits>_<digits>} и возвращает часть после префикса.
+     */
+    private String vkVideoId(String path, String prefix) {
+        int from = 0;
+        while ((from = path.indexOf(prefix, from)) >= 0) {
+            int start = from + prefix.length();
+            int i = start;
+            if (i < path.length() && path.charAt(i) == '-') {
+                i++;
+            }
+            int ownerStart = i;
+            while (i < path.length() && isDigit(path.charAt(i))) {
+                i++;
+            }
+            if (i > ownerStart && i < path.length() && path.charAt(i) == '_') {
+                int idStart = ++i;
+                while (i < path.length() && isDigit(path.charAt(i))) {
+                    i++;
+                }
+                if (i > idStart) {
+                    return path.substring(start, i);
+                }
+            }
+            from = start;
+        }
+        return null;
+    }
+
+    /**
+     * @return n-й непустой сегмент пути или null
+     */
+    private String segment(String path, int n) {
+        int index = 0;
+        int i = 0;
+        while (i < path.length()) {
+            while (i < path.length() && path.charAt(i) == '/') {
+                i++;
+            }
+            int start = i;
+            while (i < path.length() && path.charAt(i) != '/') {
+                i++;
+            }
+            if (i > start) {
+                if (index == n) {
+                    return path.substring(start, i);
+                }
+                index++;
+            }
+        }
+        return null;
+    }
+
+    private String queryParam(String query, String name) {
+        int i = 0;
+        while (i < query.length()) {
+            int end = query.indexOf('&', i);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end - i > name.length() && query.startsWith(name, i) && query.charAt(i + name.length()) == '=') {
+                return query.substring(i + name.length() + 1, end);
+            }
+            i = end + 1;
+        }
+        return null;
+    }
+
+    private boolean isHost(String host, String domain) {
+        return host.endsWith(domain)
+                && (host.length() == domain.length() || host.charAt(host.length() - domain.length() - 1) == '.');
+    }
+
+    private boolean isYoutubeId(String id) {
+        if (id == null || id.length() != YOUTUBE_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int indexOfScheme(String text, int from) {
+        int i = from;
+        while ((i = text.indexOf("http", i)) >= 0) {
+            if (text.startsWith("://", i + 4) || text.startsWith("s://", i + 4)) {
+                return i;
+            }
+            i += 4;
+        }
+        return -1;
+    }
+
+    private int urlEnd(String text, int start) {
+        int i = start;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '!' || c == ',') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+}
@@ -4,21 +4,44 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.dto.DownloadProgress;
 import org.bot.spring.dto.DownloadVideoCommand;
+import org.bot.spring.dto.FormatCatalog;
+import org.bot.spring.dto.FormatSelection;
 import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.Platform;
 import org.bot.spring.dto.VideoFormatDto;
+import org.bot.spring.exceptions.FileSizeExceededException;
+import org.bot.spring.exceptions.StreamingUnavailableException;
 import org.bot.spring.exceptions.YtDlpExitException;
+import org.bot.spring.exceptions.YtDlpWorkerException;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.proxy.ProxyOutcome;
+import org.bot.spring.service.ytdlp.FormatCatalogParser;
+import org.bot.spring.service.ytdlp.FormatSelectionEngine;
+import org.bot.spring.service.ytdlp.FormatSelectorBuilder;
+import org.bot.spring.service.ytdlp.ProgressLineParser;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,28 +52,38 @@ import static java.util.Objects.nonNull;
 @RequiredArgsConstructor
 public class YtDlpService {
 
+    private static final BigDecimal BYTES_IN_MB = new BigDecimal(1024 * 1024);
+    private static final Pattern FORMAT_LINE_PATTERN = Pattern.compile(
+            "^\\s*([\\w-]+)\\s+(\\w+)\\s+([\\dx]+|audio only)");
+    private static final Pattern SIZE_PATTERN = Pattern.compile("([\\d.]+(KiB|MiB|GiB))");
+    private static final Pattern RESOLUTION_PATTERN = Pattern.compile("\\d+x\\d+");
+    private static final Pattern URL_PATTERN = Pattern.compile("(https?:\\/\\/[^\\s!,]+)");
+    private static final String SELECTED_FORMAT_MARKER = "[format]";
+    /** Часть сообщения yt-dlp о пропуске или обрыве загрузки по {@code --max-filesize} */
+    private static final String MAX_FILESIZE_MESSAGE = "larger than max-filesize";
+    /** Ошибка yt-dlp, когда ни одна альтернатива {@code -f} не подошла */
+    private static final String FORMAT_NOT_AVAILABLE_MESSAGE = "Requested format is not available";
+    private static final String SELECTED_FORMAT_TEMPLATE =
+            SELECTED_FORMAT_MARKER + "%(format_id)s|%(ext)s|%(resolution)s|%(filesize,filesize_approx|0)s";
+
     private final DownloadProperties downloadProperties;
+    private final YtDlpWorkerPool workerPool;
+    private final TelegramApiProperties telegramApiProperties;
+    private final FormatSelectionProperties formatSelectionProperties;
+    private final ProxyFeedback proxyFeedback;
 
     /**
      * Пытается найти самое большое видео в списке
      */
     public VideoFormatDto getMaxVideoSizeForInstagram(String url) throws IOException, InterruptedException {
-        List<VideoFormatDto> formats = new ArrayList<>();
-
-        ProcessBuilder processBuilder = new ProcessBuilder("yt-dlp", "-F", url);
-        processBuilder.redirectErrorStream(true);
-
-        Process process = processBuilder.start();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Пропускаем заголовок и разделитель
-                getMaxVideoSize(line, formats);
-            }
+        if (isJsonProbe()) {
+            return getLargestVideo(getFormatCatalog(url));
         }
 
-        int exitCode = process.waitFor();
+        List<VideoFormatDto> formats = new ArrayList<>();
+
+        // Пропускаем заголовок и разделитель
+        int exitCode = runYtDlp(List.of("-F", url), line -> getMaxVideoSize(line, formats));
         if (exitCode != 0) {
             throw new IOException("yt-dlp завершился с кодом " + exitCode);
         }
@@ -61,16 +94,26 @@ public class YtDlpService {
                 .get();
     }
 
-    public void getMaxVideoSize(String line, List<VideoFormatDto> formats) {
-        Pattern sizePattern = Pattern.compile("([\\d.]+(KiB|MiB|GiB))");
+    /**
+     * Самый большой формат с видео из каталога
+     */
+    public VideoFormatDto getLargestVideo(FormatCatalog catalog) {
+        return catalog.getFormats().stream()
+                .filter(FormatCatalog.Format::hasVideo)
+                .filter(it -> it.knownSize() > 0)
+                .max(Comparator.comparingLong(FormatCatalog.Format::knownSize))
+                .map(this::toVideoFormatDto)
+                .get();
+    }
 
+    public void getMaxVideoSize(String line, List<VideoFormatDto> formats) {
         if (line.contains("ID") || line.contains("[youtube]") || line.contains("[line]") || line.contains("----------") ||
                 line.contains("audio only") || line.contains("mhtml") ||
                 line.trim().isEmpty()) {
             return;
         }
 
-        Matcher sizeMatcher = sizePattern.matcher(line);
+        Matcher sizeMatcher = SIZE_PATTERN.matcher(line);
         if (sizeMatcher.find()) {
             String fullFileSize = sizeMatcher.group(1);
             String unit = sizeMatcher.group(2);
@@ -98,24 +141,23 @@ public class YtDlpService {
      * Получает список доступных форматов видео по URL
      */
     public List<VideoFormatDto> getAvailableFormats(String url) throws IOException, InterruptedException {
-        List<VideoFormatDto> formats = new ArrayList<>();
+        if (isJsonProbe()) {
+            // Как и при разборе -F: только форматы с видео и аудио, с известным размером и разрешением
+            return getFormatCatalog(url).getFormats().stream()
+                    .filter(it -> it.hasVideo() && it.hasAudio())
+                    .filter(it -> it.knownSize() > 0 && it.getWidth() > 0 && it.getHeight() > 0)
+                    .map(this::toVideoFormatDto)
+                    .toList();
+        }
 
-        ProcessBuilder processBuilder = new ProcessBuilder("yt-dlp", "-F", url);
-        processBuilder.redirectErrorStream(true);
+        List<VideoFormatDto> formats = new ArrayList<>();
 
-        Process process = processBuilder.start();
-        
         var ytDlpLog = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Пропускаем заголовок и разделитель
-                extracted(line, formats);
-                ytDlpLog.append(line);
-            }
-        }
-        
-        int exitCode = process.waitFor();
+        int exitCode = runYtDlp(List.of("-F", url), line -> {
+            // Пропускаем заголовок и разделитель
+            extracted(line, formats);
+            ytDlpLog.append(line);
+        });
         if (exitCode != 0) {
             throw new YtDlpExitException(exitCode, ytDlpLog.toString());
         }
@@ -124,18 +166,14 @@ public class YtDlpService {
     }
 
     public void extracted(String line, List<VideoFormatDto> formats) {
-        Pattern pattern = Pattern.compile(
-                "^\\s*([\\w-]+)\\s+(\\w+)\\s+([\\dx]+|audio only)");
-        Pattern sizePattern = Pattern.compile("([\\d.]+(KiB|MiB|GiB))");
-
         if (line.contains("ID") || line.contains("[youtube]") || line.contains("[line]") || line.contains("----------") ||
                 line.contains("audio only") || line.contains("video only") || line.contains("mhtml") ||
                 line.trim().isEmpty()) {
             return;
         }
 
-        Matcher matcher = pattern.matcher(line);
-        Matcher sizeMatcher = sizePattern.matcher(line);
+        Matcher matcher = FORMAT_LINE_PATTERN.matcher(line);
+        Matcher sizeMatcher = SIZE_PATTERN.matcher(line);
         if (matcher.find() && sizeMatcher.find()) {
             String idStr = matcher.group(1);
             String container = matcher.group(2);
@@ -150,7 +188,7 @@ public class YtDlpService {
             }
 
             // Пропускаем форматы без разрешения (например, только аудио)
-            if (!resolution.matches("\\d+x\\d+")) {
+            if (!RESOLUTION_PATTERN.matcher(resolution).matches()) {
                 return;
             }
 
@@ -175,17 +213,118 @@ public class YtDlpService {
     }
 
     /**
-     * Выбирает лучший формат по критериям:
+     * Получает метаданные видео через {@code yt-dlp -J}.
+     * <p>
+     * JSON разбирается потоково прямо из stdout процесса, без промежуточной строки.
+     * Пул воркеров здесь не используется: через него документ в несколько мегабайт пришёл бы
+     * одной экранированной строкой внутри ответа воркера и разбирался бы дважды.
+     */
+    public FormatCatalog getFormatCatalog(String url) throws IOException, InterruptedException {
+        return getFormatCatalog(List.of("-J", "--no-warnings", url), process -> { });
+    }
+
+    /**
+     * Получает каталог форматов через прокси отдельным процессом yt-dlp.
+     * Процесс передаётся в {@code onStart}, чтобы вызывающий мог завершить его досрочно.
+     */
+    public FormatCatalog getFormatCatalog(String url, String proxy, Consumer<Process> onStart)
+            throws IOException, InterruptedException {
+        return getFormatCatalog(List.of("-J", "--no-warnings", "--proxy", proxy, url), onStart);
+    }
+
+    private FormatCatalog getFormatCatalog(List<String> args, Consumer<Process> onStart)
+            throws IOException, InterruptedException {
+        List<String> commandLine = new ArrayList<>(args.size() + 1);
+        commandLine.add("yt-dlp");
+        commandLine.addAll(args);
+        Process process = new ProcessBuilder(commandLine).start();
+        onStart.accept(process);
+
+        var ytDlpLog = new StringBuilder();
+        Thread stderrReader = Thread.ofVirtual().start(() -> {
+            try (val reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ytDlpLog.append(line);
+                }
+            } catch (IOException e) {
+                log.debug("Ошибка чтения stderr yt-dlp: {}", e.getMessage());
+            }
+        });
+
+        FormatCatalog catalog;
+        try (InputStream stdout = process.getInputStream()) {
+            catalog = FormatCatalogParser.parse(stdout);
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+
+        int exitCode = process.waitFor();
+        stderrReader.join();
+        if (exitCode != 0) {
+            throw new YtDlpExitException(exitCode, ytDlpLog.toString());
+        }
+        return catalog;
+    }
+
+    private boolean isJsonProbe() {
+        return downloadProperties.getFormatProbe() == DownloadProperties.FormatProbe.JSON;
+    }
+
+    private VideoFormatDto toVideoFormatDto(FormatCatalog.Format format) {
+        VideoFormatDto dto = new VideoFormatDto();
+        dto.setId(format.getId());
+        dto.setContainer(format.getExt());
+        dto.setResolution(format.resolution());
+        dto.setFileSizeInMB(new BigDecimal(format.knownSize()).divide(BYTES_IN_MB, 4, RoundingMode.HALF_UP));
+        return dto;
+    }
+
+    /**
+     * Включён ли выбор формата по каталогу с учётом бюджета размера ({@link #selectFormat})
+     */
+    public boolean isAdaptiveSelection() {
+        return formatSelectionProperties.isEnabled();
+    }
+
+    /**
+     * Выбирает лучший формат, который помещается в бюджет размера, по стратегии платформы.
+     * Рассматриваются и готовые форматы, и пары видео + аудио (id вида {@code 136+140}).
+     * Если в бюджет не помещается ничего, возвращается самый маленький формат —
+     * его размер больше лимита, и проверка размера прервёт загрузку.
+     *
+     * @return формат или null, если форматов с известным размером нет
+     */
+    public VideoFormatDto selectFormat(String url, Platform platform) throws IOException, InterruptedException {
+        FormatSelection selection = FormatSelectionEngine.select(getFormatCatalog(url), getSizeBudgetBytes(),
+                formatSelectionProperties.strategy(platform));
+        if (selection == null) {
+            return null;
+        }
+        VideoFormatDto dto = new VideoFormatDto();
+        dto.setId(selection.formatId());
+        dto.setContainer(selection.video().getExt());
+        dto.setResolution(selection.video().resolution());
+        dto.setFileSizeInMB(new BigDecimal(selection.estimatedBytes()).divide(BYTES_IN_MB, 4, RoundingMode.HALF_UP));
+        return dto;
+    }
+
+    /**
+     * Бюджет размера для выбора формата: лимит с запасом на контейнер и неточность оценки
+     */
+    public long getSizeBudgetBytes() {
+        return (long) (getMaxFileSizeBytes() * formatSelectionProperties.getBudgetRatio());
+    }
+
+    /**
+     * Выбирает формат из таблицы {@code -F} (только форматы с видео и аудио):
      * - формат должен быть mp4
-     * - разрешение должно быть 720p
+     * - разрешение должно быть 640/360/240
      * - если несколько, выбирается с наименьшим размером файла
+     * <p>
+     * Лучшее качество в пределах лимита выбирает {@link #selectFormat} ({@code download.selection.enabled}).
      */
-    //TODO: нужно не просто выбирать удобный формат по разрешению
-    // сюда попадают только нормальные видео с аудио, надо только выбрать правильный размер файла
-    // сейчас мы выбираем по минимальному качеству, что не удобно
-    // надо найти среднее по размеру или близкое к максимальному видео, в районе 8-10 мегабайт максимум
-    // если максимум ниже 10 метров, то качает максимальное
-    // (сейчас предел закачки это 30мб, мб смысл брать 1\2 от максимума что бы определить среднее качество)
     public VideoFormatDto selectBestFormat(List<VideoFormatDto> formats) {
         return formats.stream()
                 .filter(f -> "mp4".equalsIgnoreCase(f.getContainer()))
@@ -210,26 +349,457 @@ public class YtDlpService {
      * Скачивает видео с помощью yt-dlp
      */
     public void downloadVideo(DownloadVideoCommand command) throws IOException, InterruptedException {
-        val process = new ProcessBuilder(command.getListCommands())
+        downloadVideo(command, progress -> { });
+    }
+
+    /**
+     * Скачивает видео с помощью yt-dlp, сообщая о ходе загрузки.
+     * Прогресс приходит, только если в команде задан {@link DownloadVideoCommand#getProgressTemplate()}.
+     */
+    public void downloadVideo(DownloadVideoCommand command, Consumer<DownloadProgress> onProgress)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        StringBuilder errors = new StringBuilder();
+        int exitCode;
+        try {
+            exitCode = runYtDlp(command.getArgs(), line -> {
+                if (line.startsWith("ERROR")) {
+                    errors.append(line).append('\n');
+                }
+                handleOutputLine(line, onProgress);
+            });
+        } catch (IOException e) {
+            reportProxy(command, ProxyOutcome.classify(e.getMessage()), 0);
+            throw e;
+        }
+        if (exitCode != 0) {
+            reportProxy(command, ProxyOutcome.classify(errors.toString()), 0);
+            throw new IOException("yt-dlp завершился с кодом " + exitCode);
+        }
+
+        File file = new File(command.getOutputPath());
+        if (!file.exists()) {
+            throw new IOException("Файл не был создан: " + command.getOutputPath());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        reportProxy(command, ProxyOutcome.SUCCESS, seconds > 0 ? file.length() / seconds : 0);
+    }
+
+    /**
+     * Результат загрузки через прокси влияет на его дальнейшую выдачу
+     */
+    private void reportProxy(DownloadVideoCommand command, ProxyOutcome outcome, double bytesPerSecond) {
+        if (command.getProxy() != null && !command.getProxy().isEmpty()) {
+            proxyFeedback.report(command.getProxy(), command.getPlatform(), outcome, bytesPerSecond);
+        }
+    }
+
+    /**
+     * Включён ли режим выбора формата и загрузки одним запуском yt-dlp
+     */
+    public boolean isSinglePass() {
+        return downloadProperties.isSinglePass();
+    }
+
+    /**
+     * Как часто обновлять статус с прогрессом загрузки
+     */
+    public Duration getProgressInterval() {
+        return downloadProperties.getProgressInterval();
+    }
+
+    /**
+     * Шаблон прогресса для команд, собранных вне сервиса
+     */
+    public String progressTemplate() {
+        return ProgressLineParser.TEMPLATE;
+    }
+
+    /**
+     * Политика выбора формата для ключа кэша: при одинаковых настройках
+     * для одного и того же видео выбирается один и тот же формат.
+     */
+    public String formatPolicy(Platform platform) {
+        if (isAdaptiveSelection()) {
+            FormatSelectionProperties.Strategy strategy = formatSelectionProperties.strategy(platform);
+            return String.format("adaptive:%s/%s/%dp/%s/%sMB",
+                    strategy.getObjective(),
+                    strategy.getContainer(),
+                    strategy.getMaxHeight(),
+                    strategy.isSeparateStreams() ? "pairs" : "muxed",
+                    getMaxFileSize().toPlainString());
+        }
+        return formatPolicy();
+    }
+
+    /**
+     * Политика выбора формата без учёта платформы
+     */
+    public String formatPolicy() {
+        return String.format("%s:%s/%dp/%sMB",
+                isSinglePass() ? "single" : "probe",
+                downloadProperties.getPreferredContainer(),
+                downloadProperties.getPreferredHeight(),
+                getMaxFileSize().toPlainString());
+    }
+
+    /**
+     * Собирает команду загрузки, в которой выбор формата по лимиту размера, контейнеру и высоте
+     * выполняет сам yt-dlp ({@code -f}/{@code -S}), а выбранный формат печатается перед загрузкой.
+     *
+     * @param remuxFormat пресет {@code -t} (например, "mp4") или null
+     */
+    public DownloadVideoCommand singlePassCommand(String videoUrl, String fileName, String remuxFormat) {
+        return singlePassCommand(videoUrl, fileName, remuxFormat, getMaxFileSizeBytes());
+    }
+
+    /**
+     * То же, что {@link #singlePassCommand(String, String, String)}, но со своим лимитом размера:
+     * например, для видео больше лимита Telegram, которое затем сожмёт или нарежет ffmpeg.
+     *
+     * @param maxBytes лимит размера для выбора формата и {@code --max-filesize}
+     */
+    public DownloadVideoCommand singlePassCommand(String videoUrl, String fileName, String remuxFormat, long maxBytes) {
+        String container = downloadProperties.getPreferredContainer();
+        int height = downloadProperties.getPreferredHeight();
+        return DownloadVideoCommand.builder()
+                .videoUrl(videoUrl)
+                .fileName(fileName)
+                .folderPath(pathToDownload())
+                .format(remuxFormat)
+                .formatSelector(FormatSelectorBuilder.selector(maxBytes, container, height))
+                .formatSort(FormatSelectorBuilder.sort(container, height))
+                .maxFileSizeBytes(maxBytes)
+                .printBeforeDownload(SELECTED_FORMAT_TEMPLATE)
+                .progressTemplate(ProgressLineParser.TEMPLATE)
+                .build();
+    }
+
+    /**
+     * Выбирает формат и скачивает видео одним запуском yt-dlp.
+     * <p>
+     * Как только yt-dlp сообщает выбранный формат, вызывается {@code onFormatSelected}.
+     * Дальше каждая строка прогресса передаётся в {@code onProgress}.
+     * <p>
+     * Лимит размера соблюдает сам yt-dlp ({@code --max-filesize}): формат больше лимита он не скачивает
+     * и завершается с кодом 0 без файла. Получатель вывода при этом ничего не бросает, поэтому воркер из пула
+     * не уничтожается. Превышение видно по напечатанному размеру формата, по сообщению yt-dlp или по тому,
+     * что файл не создан при успешном завершении — во всех случаях бросается {@link FileSizeExceededException}.
+     *
+     * @param command команда из {@link #singlePassCommand}
+     * @return выбранный формат
+     */
+    public VideoFormatDto downloadSinglePass(DownloadVideoCommand command, Consumer<VideoFormatDto> onFormatSelected,
+                                             Consumer<DownloadProgress> onProgress) throws IOException, InterruptedException {
+        BigDecimal maxSizeInMB = command.getMaxFileSizeBytes() != null
+                ? new BigDecimal(command.getMaxFileSizeBytes()).divide(BYTES_IN_MB, 2, RoundingMode.HALF_UP)
+                : getMaxFileSize();
+        AtomicReference<VideoFormatDto> selected = new AtomicReference<>();
+        AtomicBoolean sizeExceeded = new AtomicBoolean();
+        int exitCode = runYtDlp(command.getArgs(), line -> {
+            if (line.startsWith(SELECTED_FORMAT_MARKER)) {
+                VideoFormatDto format = parseSelectedFormat(line);
+                selected.set(format);
+                if (nonNull(format.getFileSizeInMB()) && format.getFileSizeInMB().compareTo(maxSizeInMB) > 0) {
+                    sizeExceeded.set(true);
+                } else {
+                    onFormatSelected.accept(format);
+                }
+            } else if (line.contains(MAX_FILESIZE_MESSAGE)) {
+                sizeExceeded.set(true);
+                logOutputLine(line);
+            } else {
+                handleOutputLine(line, onProgress);
+            }
+        });
+
+        File file = new File(command.getOutputPath());
+        if (sizeExceeded.get() || (exitCode == 0 && !file.exists())) {
+            // Если yt-dlp не знал размера заранее и всё же начал загрузку, недокачанный файл не нужен
+            deleteFile(command.getOutputPath());
+            VideoFormatDto format = selected.get();
+            throw format != null && nonNull(format.getFileSizeInMB())
+                    ? new FileSizeExceededException(format.getFileSizeInMB(), maxSizeInMB)
+                    : new FileSizeExceededException(maxSizeInMB);
+        }
+        if (exitCode != 0) {
+            throw new IOException("yt-dlp завершился с кодом " + exitCode);
+        }
+        return selected.get();
+    }
+
+    /**
+     * Включён ли потоковый режим: видео из stdout yt-dlp сразу уходит в Telegram.
+     * <p>
+     * Выбор формата по каталогу ({@code download.selection.enabled}) важнее потока: поток берёт только готовый
+     * формат одним файлом (на YouTube это обычно 360p), а каталог — лучшую пару видео + аудио в бюджете размера.
+     * Поэтому при включённом выборе по каталогу видео скачивается в файл.
+     */
+    public boolean isStreaming() {
+        return downloadProperties.isStreaming() && !isAdaptiveSelection();
+    }
+
+    /**
+     * Собирает команду потоковой загрузки: формат одним файлом по HTTP, вывод в stdout.
+     */
+    public DownloadVideoCommand streamingCommand(String videoUrl) {
+        String container = downloadProperties.getPreferredContainer();
+        int height = downloadProperties.getPreferredHeight();
+        return DownloadVideoCommand.builder()
+                .videoUrl(videoUrl)
+                .toStdout(true)
+                .formatSelector(FormatSelectorBuilder.streamingSelector(getMaxFileSizeBytes(), container, height))
+                .formatSort(FormatSelectorBuilder.sort(container, height))
+                .maxFileSizeBytes(getMaxFileSizeBytes())
+                .printBeforeDownload(SELECTED_FORMAT_TEMPLATE)
+                .progressTemplate(ProgressLineParser.TEMPLATE)
+                .build();
+    }
+
+    /**
+     * Выбирает формат и отдаёт байты видео из stdout yt-dlp получателю {@code consumer}, без временного файла.
+     * <p>
+     * При выводе в stdout yt-dlp пишет журнал и {@code --print} в stderr, он разбирается в отдельном потоке.
+     * Пул воркеров не используется: их stdout занят протоколом обмена. Поток видео завершается ошибкой, если:
+     * <ul>
+     *   <li>размер выбранного формата или уже прочитанных данных больше лимита — {@link FileSizeExceededException}</li>
+     *   <li>yt-dlp завершился с ошибкой или ничего не вывел — {@link YtDlpExitException}</li>
+     * </ul>
+     *
+     * @param command команда из {@link #streamingCommand}
+     * @throws StreamingUnavailableException если yt-dlp не нашёл подходящего формата одним файлом
+     */
+    public <T> T streamSinglePass(DownloadVideoCommand command, Consumer<VideoFormatDto> onFormatSelected,
+                                  Consumer<DownloadProgress> onProgress,
+                                  VideoStreamConsumer<T> consumer) throws IOException, InterruptedException {
+        return streamSinglePass(new ProcessBuilder(command.getListCommands()).start(), onFormatSelected, onProgress, consumer);
+    }
+
+    /**
+     * То же, что {@link #streamSinglePass(DownloadVideoCommand, Consumer, Consumer, VideoStreamConsumer)},
+     * для уже запущенного процесса yt-dlp. Процесс завершается вместе с вызовом.
+     */
+    public <T> T streamSinglePass(Process process, Consumer<VideoFormatDto> onFormatSelected,
+                                  Consumer<DownloadProgress> onProgress,
+                                  VideoStreamConsumer<T> consumer) throws IOException, InterruptedException {
+        AtomicReference<VideoFormatDto> selected = new AtomicReference<>();
+        AtomicReference<RuntimeException> abort = new AtomicReference<>();
+        var ytDlpLog = new StringBuilder();
+        Thread stderrReader = Thread.ofVirtual().start(() -> {
+            try (val reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (ProgressLineParser.isProgressLine(line)) {
+                        handleOutputLine(line, onProgress);
+                        continue;
+                    }
+                    if (!line.startsWith(SELECTED_FORMAT_MARKER)) {
+                        logOutputLine(line);
+                        ytDlpLog.append(line).append('\n');
+                        continue;
+                    }
+                    VideoFormatDto format = parseSelectedFormat(line);
+                    selected.set(format);
+                    if (nonNull(format.getFileSizeInMB()) && isFileSizeExceeded(format.getFileSizeInMB())) {
+                        abort.set(new FileSizeExceededException(format.getFileSizeInMB(), getMaxFileSize()));
+                        process.destroyForcibly();
+                    } else {
+                        onFormatSelected.accept(format);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Ошибка чтения stderr yt-dlp: {}", e.getMessage());
+            }
+        });
+
+        try (InputStream video = new ProcessVideoStream(process, stderrReader, abort, ytDlpLog)) {
+            return consumer.accept(video);
+        } catch (YtDlpExitException e) {
+            // Остальные ошибки (видео удалено, нужен вход, сеть) загрузка в файл не исправит
+            if (selected.get() == null && e.getMessage() != null && e.getMessage().contains(FORMAT_NOT_AVAILABLE_MESSAGE)) {
+                throw new StreamingUnavailableException(e.getMessage());
+            }
+            throw e;
+        } finally {
+            process.destroyForcibly();
+            stderrReader.join();
+        }
+    }
+
+    /**
+     * Получатель байтов видео при потоковой загрузке
+     */
+    @FunctionalInterface
+    public interface VideoStreamConsumer<T> {
+        T accept(InputStream video) throws IOException, InterruptedException;
+    }
+
+    /**
+     * stdout yt-dlp с проверкой лимита размера на лету. На конце потока дожидается
+     * завершения процесса и превращает ошибку yt-dlp в исключение, чтобы получатель
+     * не принял оборванное видео за целое.
+     */
+    private final class ProcessVideoStream extends FilterInputStream {
+
+        private final Process process;
+        private final Thread stderrReader;
+        private final AtomicReference<RuntimeException> abort;
+        private final StringBuilder ytDlpLog;
+        private final long maxBytes = getMaxFileSizeBytes();
+        private long bytes;
+
+        private ProcessVideoStream(Process process, Thread stderrReader,
+                                   AtomicReference<RuntimeException> abort, StringBuilder ytDlpLog) {
+            super(process.getInputStream());
+            this.process = process;
+            this.stderrReader = stderrReader;
+            this.abort = abort;
+            this.ytDlpLog = ytDlpLog;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                finish();
+                return -1;
+            }
+            bytes += n;
+            if (bytes > maxBytes) {
+                process.destroyForcibly();
+                BigDecimal sizeInMB = new BigDecimal(bytes).divide(BYTES_IN_MB, 2, RoundingMode.HALF_UP);
+                throw new FileSizeExceededException(sizeInMB, getMaxFileSize());
+            }
+            return n;
+        }
+
+        private void finish() throws IOException {
+            int exitCode;
+            try {
+                exitCode = process.waitFor();
+                stderrReader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+                throw new InterruptedIOException("Ожидание yt-dlp прервано");
+            }
+            if (abort.get() != null) {
+                throw abort.get();
+            }
+            if (exitCode != 0 || bytes == 0) {
+                throw new YtDlpExitException(exitCode, ytDlpLog.toString());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Строка прогресса уходит в {@code onProgress}, остальной вывод — в лог
+     */
+    private void handleOutputLine(String line, Consumer<DownloadProgress> onProgress) {
+        if (ProgressLineParser.isProgressLine(line)) {
+            DownloadProgress progress = ProgressLineParser.parse(line);
+            if (progress != null) {
+                onProgress.accept(progress);
+            }
+            return;
+        }
+        logOutputLine(line);
+    }
+
+    /**
+     * Обычный вывод yt-dlp нужен только при отладке, предупреждения и ошибки видны всегда
+     */
+    private static void logOutputLine(String line) {
+        if (line.startsWith("ERROR") || line.startsWith("WARNING")) {
+            log.warn("yt-dlp: {}", line);
+        } else {
+            log.debug("yt-dlp: {}", line);
+        }
+    }
+
+    /**
+     * Разбирает строку {@code [format]id|ext|resolution|bytes}; размер 0 означает «неизвестен».
+     */
+    public VideoFormatDto parseSelectedFormat(String line) {
+        String[] parts = line.substring(SELECTED_FORMAT_MARKER.length()).split("\\|", -1);
+        VideoFormatDto dto = new VideoFormatDto();
+        dto.setId(parts[0]);
+        dto.setContainer(parts.length > 1 ? parts[1] : null);
+        dto.setResolution(parts.length > 2 ? parts[2] : null);
+        if (parts.length > 3) {
+            try {
+                long bytes = (long) Double.parseDouble(parts[3]);
+                if (bytes > 0) {
+                    dto.setFileSizeInMB(new BigDecimal(bytes).divide(BYTES_IN_MB, 4, RoundingMode.HALF_UP));
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Размер формата не распознан: {}", parts[3]);
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * Запускает yt-dlp с указанными аргументами.
+     * <p>
+     * Если доступен пул воркеров, запрос выполняется в уже запущенном интерпретаторе,
+     * иначе (или если воркер не успел начать запрос) — в отдельном процессе {@code yt-dlp}.
+     * Сбой воркера после первой строки вывода или по таймауту не повторяется: получатель уже видел часть вывода.
+     * Исключение из {@code lineConsumer} прерывает выполнение yt-dlp.
+     *
+     * @param args         аргументы yt-dlp (без имени программы)
+     * @param lineConsumer получатель строк вывода (stdout и stderr)
+     * @return код выхода yt-dlp
+     */
+    public int runYtDlp(List<String> args, Consumer<String> lineConsumer) throws IOException, InterruptedException {
+        if (workerPool.isAvailable()) {
+            try {
+                return workerPool.execute(args, lineConsumer);
+            } catch (YtDlpWorkerException e) {
+                fallBackOrRethrow(e);
+            }
+        }
+
+        List<String> commandLine = new ArrayList<>(args.size() + 1);
+        commandLine.add("yt-dlp");
+        commandLine.addAll(args);
+        val process = new ProcessBuilder(commandLine)
                 .redirectErrorStream(true)
                 .start();
 
         try (val reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                log.info("yt-dlp: {}", line);
+                lineConsumer.accept(line);
             }
+        } catch (RuntimeException e) {
+            process.destroyForcibly();
+            throw e;
         }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("yt-dlp завершился с кодом " + exitCode);
-        }
+        return process.waitFor();
+    }
 
-        File file = new File(command.getOutputPath());
-        if (!file.exists()) {
-            throw new IOException("Файл не был создан: " + command.getOutputPath());
+    private void fallBackOrRethrow(YtDlpWorkerException e) throws IOException {
+        if (!e.isRetryable()) {
+            throw new IOException(e.getMessage(), e);
         }
+        log.warn("Воркер yt-dlp не выполнил запрос, запускаем отдельный процесс: {}", e.getMessage());
     }
 
     /**
@@ -251,14 +821,24 @@ public class YtDlpService {
      * Проверяет, превышает ли размер файла максимально допустимый
      */
     public boolean isFileSizeExceeded(BigDecimal fileSizeMB) {
-        return fileSizeMB.compareTo(downloadProperties.getMaxFileSizeMB()) > 0;
+        return fileSizeMB.compareTo(getMaxFileSize()) > 0;
     }
 
     /**
-     * Возвращает максимально допустимый размер файла в MB
+     * Возвращает максимально допустимый размер файла в MB: локальный сервер Bot API принимает
+     * файлы до {@code telegram.api.local-max-file-size-mb}, публичный — {@code download.max-file-size-mb}
      */
     public BigDecimal getMaxFileSize() {
-        return downloadProperties.getMaxFileSizeMB();
+        return telegramApiProperties.isLocal()
+                ? telegramApiProperties.getLocalMaxFileSizeMB()
+                : downloadProperties.getMaxFileSizeMB();
+    }
+
+    /**
+     * Возвращает максимально допустимый размер файла в байтах
+     */
+    public long getMaxFileSizeBytes() {
+        return getMaxFileSize().multiply(BYTES_IN_MB).longValue();
     }
 
     /**
@@ -269,9 +849,7 @@ public class YtDlpService {
             return null;
         }
 
-        // Паттерн для поиска URL
-        Pattern urlPattern = Pattern.compile("(https?:\\/\\/[^\\s!,]+)");
-        Matcher matcher = urlPattern.matcher(text);
+        Matcher matcher = URL_PATTERN.matcher(text);
 
         if (matcher.find()) {
             return matcher.group(1);
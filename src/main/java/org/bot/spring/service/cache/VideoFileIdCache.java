@@ -0,0 +1,192 @@
+package org.bot.spring.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.FileIdCacheProperties;
+import org.bot.spring.dto.VideoKey;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш file_id видео, уже загруженных в Telegram.
+ * <p>
+ * Одну и ту же ссылку в чатах присылают повторно; по file_id Telegram отправляет видео
+ * без повторной загрузки с сайта и повторного upload.
+ * <p>
+ * Вытеснение — LRU по {@code maxEntries} и TTL по {@code ttl}. Если задан {@code snapshotPath},
+ * кэш загружается из файла при старте и периодически сохраняется, так что переживает перезапуск.
+ * Метрики: {@code bot.file_id_cache.requests{result=hit|miss}}, {@code bot.file_id_cache.size}.
+ */
+@Slf4j
+@Component
+public class VideoFileIdCache {
+
+    private static final String SEPARATOR = "\t";
+
+    private final FileIdCacheProperties properties;
+    private final Counter hits;
+    private final Counter misses;
+    private final LinkedHashMap<VideoKey, Entry> entries;
+    private boolean dirty;
+
+    public VideoFileIdCache(FileIdCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<VideoKey, Entry> eldest) {
+                return size() > properties.getMaxEntries();
+            }
+        };
+        this.hits = Counter.builder("bot.file_id_cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("bot.file_id_cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("bot.file_id_cache.size", this, VideoFileIdCache::size).register(meterRegistry);
+    }
+
+    /**
+     * @return file_id или null, если видео ещё не загружалось или запись устарела
+     */
+    public synchronized String get(VideoKey key) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            dirty = true;
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.fileId();
+    }
+
+    public synchronized void put(VideoKey key, String fileId) {
+        if (!properties.isEnabled() || fileId == null) {
+            return;
+        }
+        entries.put(key, new Entry(fileId, System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    /**
+     * Удаляет запись, например если Telegram больше не принимает file_id.
+     */
+    public synchronized void evict(VideoKey key) {
+        if (entries.remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        Path path = snapshotPath();
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        int loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            synchronized (this) {
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(SEPARATOR, -1);
+                    Long createdAt = parts.length == 5 ? parseTimestamp(parts[0]) : null;
+                    if (createdAt == null || parts[4].isEmpty()) {
+                        // Повреждённая строка не мешает загрузить остальные
+                        continue;
+                    }
+                    Entry entry = new Entry(parts[4], createdAt);
+                    if (!isExpired(entry)) {
+                        entries.put(new VideoKey(parts[1], parts[2], parts[3]), entry);
+                        loaded++;
+                    }
+                }
+            }
+            log.info("Кэш file_id: загружено {} записей из {}", loaded, path);
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить снимок кэша file_id {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Сохраняет снимок кэша на диск, если он изменился с прошлого сохранения.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${cache.file-id.snapshot-interval-ms:300000}")
+    public void saveSnapshot() {
+        Path path = snapshotPath();
+        if (path == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            entries.forEach((key, entry) -> lines.add(String.join(SEPARATOR,
+                    Long.toString(entry.createdAt()), key.extractor(), key.videoId(), key.format(), entry.fileId())));
+            dirty = false;
+        }
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Кэш file_id: сохранено {} записей в {}", lines.size(), path);
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить снимок кэша file_id {}: {}", path, e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    private static Long parseTimestamp(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdAt() > properties.getTtl().toMillis();
+    }
+
+    private Path snapshotPath() {
+        String snapshotPath = properties.getSnapshotPath();
+        return snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    private record Entry(String fileId, long createdAt) {
+    }
+}
@@ -0,0 +1,160 @@
+package org.bot.spring.service.download;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.DownloadSchedulerProperties;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.exceptions.DownloadRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограничивает количество одновременных загрузок во всех чатах.
+ * <p>
+ * {@link org.bot.spring.service.ChatQueueExecutorService} выполняет задачи одного чата по очереди,
+ * но между чатами ограничений нет. Место занимает только ведущий загрузки на время работы yt-dlp и ffmpeg:
+ * ответ из кэша file_id, ожидание чужой загрузки того же видео и отправка файла в Telegram мест не занимают.
+ * Задача чата ждёт здесь синхронно, поэтому порядок обработки внутри чата не меняется.
+ * <p>
+ * <b>Ограничения:</b>
+ * <ol>
+ *   <li>Лимит платформы, чтобы не получать блокировки, например, от Instagram</li>
+ *   <li>Общий лимит на CPU, канал и место в {@code download.download-path}</li>
+ *   <li>Очередь ожидания ограничена по длине и времени, сверх неё загрузка отклоняется</li>
+ * </ol>
+ * Место платформы занимается раньше общего, чтобы задача, упёршаяся в лимит платформы,
+ * не держала общее место.
+ */
+@Slf4j
+@Component
+public class DownloadScheduler {
+
+    private final DownloadSchedulerProperties properties;
+    private final Semaphore global;
+    private final Map<Platform, Semaphore> platformLimits = new EnumMap<>(Platform.class);
+    private final Map<Platform, AtomicInteger> active = new EnumMap<>(Platform.class);
+    private final Map<Platform, AtomicInteger> waiting = new EnumMap<>(Platform.class);
+    private final AtomicInteger totalWaiting = new AtomicInteger();
+
+    public DownloadScheduler(DownloadSchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.global = new Semaphore(properties.getMaxConcurrent(), true);
+        for (Platform platform : Platform.values()) {
+            Integer limit = properties.getPerPlatform().get(platform);
+            if (limit != null) {
+                platformLimits.put(platform, new Semaphore(limit, true));
+            }
+            AtomicInteger platformActive = new AtomicInteger();
+            AtomicInteger platformWaiting = new AtomicInteger();
+            active.put(platform, platformActive);
+            waiting.put(platform, platformWaiting);
+            Gauge.builder("bot.downloads.active", platformActive, AtomicInteger::get)
+                    .tag("platform", platform.getExtractor())
+                    .register(meterRegistry);
+            Gauge.builder("bot.downloads.waiting", platformWaiting, AtomicInteger::get)
+                    .tag("platform", platform.getExtractor())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Загрузка, выполняемая под местом планировщика
+     */
+    @FunctionalInterface
+    public interface Download<T> {
+        T run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Выполняет загрузку в текущем потоке, когда освободится место.
+     *
+     * @throws DownloadRejectedException если очередь ожидания переполнена или место не освободилось вовремя
+     */
+    public void execute(Platform platform, Runnable job) throws InterruptedException {
+        acquire(platform);
+        try {
+            job.run();
+        } finally {
+            release(platform);
+        }
+    }
+
+    /**
+     * Выполняет загрузку в текущем потоке, когда освободится место, и возвращает её результат.
+     * Место держится только на время самой загрузки: проверку кэша и ожидание чужой загрузки
+     * вызывающий выполняет до этого, отправку в Telegram — после.
+     *
+     * @throws DownloadRejectedException если очередь ожидания переполнена или место не освободилось вовремя
+     */
+    public <T> T call(Platform platform, Download<T> download) throws IOException, InterruptedException {
+        acquire(platform);
+        try {
+            return download.run();
+        } finally {
+            release(platform);
+        }
+    }
+
+    private void acquire(Platform platform) throws InterruptedException {
+        if (totalWaiting.incrementAndGet() > properties.getMaxWaiting()) {
+            totalWaiting.decrementAndGet();
+            log.warn("Очередь загрузок переполнена, загрузка {} отклонена", platform);
+            throw new DownloadRejectedException("Сейчас слишком много загрузок, попробуйте позже");
+        }
+
+        AtomicInteger platformWaiting = waiting.get(platform);
+        Semaphore platformLimit = platformLimits.get(platform);
+        boolean platformAcquired = false;
+        boolean globalAcquired = false;
+        platformWaiting.incrementAndGet();
+        try {
+            long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+            platformAcquired = platformLimit == null
+                    || platformLimit.tryAcquire(properties.getWaitTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            if (platformAcquired) {
+                globalAcquired = global.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            platformWaiting.decrementAndGet();
+            totalWaiting.decrementAndGet();
+            if (platformAcquired && !globalAcquired && platformLimit != null) {
+                platformLimit.release();
+            }
+        }
+        if (!globalAcquired) {
+            log.warn("Загрузка {} не дождалась свободного места за {}", platform, properties.getWaitTimeout());
+            throw new DownloadRejectedException("Не дождался очереди на загрузку, попробуйте позже");
+        }
+        active.get(platform).incrementAndGet();
+    }
+
+    private void release(Platform platform) {
+        active.get(platform).decrementAndGet();
+        global.release();
+        Semaphore platformLimit = platformLimits.get(platform);
+        if (platformLimit != null) {
+            platformLimit.release();
+        }
+    }
+
+    /**
+     * @return количество выполняющихся загрузок платформы
+     */
+    public int getActive(Platform platform) {
+        return active.get(platform).get();
+    }
+
+    /**
+     * @return количество загрузок платформы, ожидающих свободного места
+     */
+    public int getWaiting(Platform platform) {
+        return waiting.get(platform).get();
+    }
+}
@@ -0,0 +1,196 @@
+package org.bot.spring.service.download;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.dto.VideoKey;
+import org.bot.spring.service.YtDlpService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Реестр загрузок, выполняющихся прямо сейчас (single-flight).
+ * <p>
+ * Если одну и ту же ссылку прислали в несколько чатов одновременно, видео скачивается один раз:
+ * <ol>
+ *   <li>Первый обработчик становится ведущим ({@link Lease#isLeader()}) и скачивает файл</li>
+ *   <li>Остальные ждут тот же {@link CompletableFuture} и отправляют готовый файл
+ *       или уже полученный от Telegram file_id</li>
+ *   <li>Каждый участник держит ссылку на загрузку; файл (и его части, если видео нарезано)
+ *       удаляется, когда последний закрыл свой {@link Lease}</li>
+ * </ol>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InFlightDownloads {
+
+    private final YtDlpService ytDlpService;
+
+    private final ConcurrentHashMap<VideoKey, Download> downloads = new ConcurrentHashMap<>();
+
+    /**
+     * Присоединиться к загрузке видео или начать новую.
+     * Возвращённый {@link Lease} обязательно закрыть, лучше через try-with-resources.
+     */
+    public Lease join(VideoKey key) {
+        boolean[] leader = new boolean[1];
+        Download download = downloads.compute(key, (k, existing) -> {
+            if (existing == null) {
+                leader[0] = true;
+                existing = new Download(k);
+            }
+            existing.refs++;
+            return existing;
+        });
+        if (!leader[0]) {
+            log.info("Видео {} уже загружается, ожидаю результат", key);
+        }
+        return new Lease(download, leader[0]);
+    }
+
+    /**
+     * @return количество видео, загружаемых в данный момент
+     */
+    public int size() {
+        return downloads.size();
+    }
+
+    private void release(Download download) {
+        boolean[] last = new boolean[1];
+        downloads.computeIfPresent(download.key, (k, existing) -> {
+            if (existing != download || --existing.refs > 0) {
+                return existing;
+            }
+            last[0] = true;
+            return null;
+        });
+        if (!last[0]) {
+            return;
+        }
+        String filePath = download.file.isDone() && !download.file.isCompletedExceptionally()
+                ? download.file.join()
+                : null;
+        if (filePath != null) {
+            ytDlpService.deleteFile(filePath);
+        }
+        download.parts.forEach(ytDlpService::deleteFile);
+    }
+
+    private static final class Download {
+        private final VideoKey key;
+        private final CompletableFuture<String> file = new CompletableFuture<>();
+        private volatile String fileId;
+        private volatile List<String> parts = List.of();
+        /**
+         * Изменяется только внутри {@code compute} по ключу
+         */
+        private int refs;
+
+        private Download(VideoKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Участие одного обработчика в загрузке.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Download download;
+        private final boolean leader;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Download download, boolean leader) {
+            this.download = download;
+            this.leader = leader;
+        }
+
+        /**
+         * @return true, если этот обработчик должен сам скачать видео
+         */
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Ведущий сообщает части нарезанного видео; вызывается до {@link #complete(String)}.
+         */
+        public void publishParts(List<String> parts) {
+            download.parts = List.copyOf(parts);
+        }
+
+        /**
+         * @return части видео по порядку или пустой список, если видео не нарезалось
+         */
+        public List<String> getParts() {
+            return download.parts;
+        }
+
+        /**
+         * Ведущий сообщает путь к скачанному файлу (или null, если скачать не удалось).
+         */
+        public void complete(String filePath) {
+            download.file.complete(filePath);
+        }
+
+        /**
+         * Ведущий сообщает об ошибке загрузки, ожидающие получат то же исключение.
+         */
+        public void fail(Throwable cause) {
+            download.file.completeExceptionally(cause);
+        }
+
+        /**
+         * Дождаться файла, скачанного ведущим.
+         *
+         * @return путь к файлу или null, если скачать не удалось
+         */
+        public String awaitFile() throws IOException, InterruptedException {
+            try {
+                return download.file.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("Загрузка видео прервана", e.getCause());
+            }
+        }
+
+        /**
+         * Сохранить file_id после успешной отправки, чтобы остальные не загружали файл в Telegram повторно.
+         */
+        public void publishFileId(String fileId) {
+            if (fileId != null) {
+                download.fileId = fileId;
+            }
+        }
+
+        /**
+         * @return file_id, уже полученный другим участником, или null
+         */
+        public String getFileId() {
+            return download.fileId;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (leader) {
+                // Ведущий не сообщил результат (например, упал) — не оставляем ожидающих навсегда
+                download.file.complete(null);
+            }
+            release(download);
+        }
+    }
+}
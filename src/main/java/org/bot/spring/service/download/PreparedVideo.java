@@ -0,0 +1,57 @@
+package org.bot.spring.service.download;
+
+import org.bot.spring.dto.AlbumVideo;
+import org.bot.spring.dto.VideoKey;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Видео, готовое к отправке в составе альбома: file_id из кэша или скачанный файл (возможно, нарезанный).
+ * Участие в загрузке ({@code lease}) держится до отправки, чтобы файл не удалили раньше;
+ * {@link #close()} освобождает его.
+ *
+ * @param fileId   file_id, если видео уже есть в Telegram, иначе null
+ * @param filePath скачанный файл или null
+ * @param parts    части нарезанного видео по порядку или пустой список
+ * @param lease    участие в загрузке или null, если видео взято из кэша
+ */
+public record PreparedVideo(VideoKey key, String fileId, String filePath, List<String> parts,
+                            InFlightDownloads.Lease lease) implements AutoCloseable {
+
+    public static PreparedVideo cached(VideoKey key, String fileId) {
+        return new PreparedVideo(key, fileId, null, List.of(), null);
+    }
+
+    /**
+     * Элементы альбома для этого видео; подпись — у первого
+     */
+    public List<AlbumVideo> albumVideos(String caption) {
+        if (fileId != null) {
+            return List.of(AlbumVideo.ofFileId(fileId, caption));
+        }
+        if (parts.isEmpty()) {
+            return List.of(AlbumVideo.ofFile(new File(filePath), caption));
+        }
+        List<AlbumVideo> videos = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            videos.add(AlbumVideo.ofFile(new File(parts.get(i)), i == 0 ? caption : null));
+        }
+        return videos;
+    }
+
+    /**
+     * Видео одним сообщением: его file_id можно сохранить в кэш
+     */
+    public boolean isSingle() {
+        return fileId != null || parts.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        if (lease != null) {
+            lease.close();
+        }
+    }
+}
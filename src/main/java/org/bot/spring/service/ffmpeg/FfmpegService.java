@@ -0,0 +1,323 @@
+package org.bot.spring.service.ffmpeg;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.FfmpegProperties;
+import org.bot.spring.exceptions.FileSizeExceededException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Обработка скачанного видео через ffmpeg перед отправкой.
+ * <ul>
+ *   <li>Файл помещается в лимит — перепаковка без перекодирования с {@code +faststart},
+ *       чтобы Telegram мог начать воспроизведение до полной загрузки</li>
+ *   <li>Не помещается — перекодирование в H.264/AAC с битрейтом, рассчитанным по длительности и лимиту,
+ *       или ({@code ffmpeg.oversize: split}) нарезка без перекодирования на части меньше лимита</li>
+ * </ul>
+ * ffmpeg выполняется в пуле фиксированного размера с пониженным приоритетом ({@code nice}),
+ * чтобы перекодирование не отнимало CPU у загрузок. Обработка, не уложившаяся в таймаут, прерывается.
+ */
+@Slf4j
+@Component
+public class FfmpegService {
+
+    private static final BigDecimal BYTES_IN_MB = new BigDecimal(1024 * 1024);
+    private static final int ERROR_TAIL_LINES = 20;
+    private static final int SPLIT_ATTEMPTS = 3;
+
+    private final FfmpegProperties properties;
+    private final ExecutorService pool;
+    private final Timer remuxTimer;
+    private final Timer encodeTimer;
+    private final Timer splitTimer;
+
+    public FfmpegService(FfmpegProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int poolSize = properties.getPoolSize() > 0
+                ? properties.getPoolSize()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, task -> {
+            Thread thread = new Thread(task, "ffmpeg-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.remuxTimer = Timer.builder("bot.ffmpeg").tag("mode", "remux").register(meterRegistry);
+        this.encodeTimer = Timer.builder("bot.ffmpeg").tag("mode", "encode").register(meterRegistry);
+        this.splitTimer = Timer.builder("bot.ffmpeg").tag("mode", "split").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Видео больше лимита нарезаются на части, а не перекодируются
+     */
+    public boolean isSplitting() {
+        return isEnabled() && properties.getOversize() == FfmpegProperties.Oversize.SPLIT;
+    }
+
+    /**
+     * Можно ли скачать видео такого размера, чтобы затем перекодировать его в лимит
+     */
+    public boolean canFit(BigDecimal fileSizeInMB) {
+        return isEnabled() && fileSizeInMB.compareTo(properties.getMaxSourceSizeMB()) <= 0;
+    }
+
+    /**
+     * Наибольший размер скачиваемого видео в байтах, которое затем доводится до лимита
+     */
+    public long getMaxSourceSizeBytes() {
+        return properties.getMaxSourceSizeMB().multiply(BYTES_IN_MB).longValue();
+    }
+
+    /**
+     * Доводит видео до лимита размера. Результат записывается на место исходного файла.
+     *
+     * @return true, если видео перекодировано; false, если только перепаковано
+     * @throws FileSizeExceededException если при допустимом битрейте видео в лимит не помещается
+     */
+    public boolean fitToLimit(Path video, long maxBytes) throws IOException, InterruptedException {
+        Path output = video.resolveSibling(video.getFileName() + ".ffmpeg.mp4");
+        try {
+            if (Files.size(video) <= maxBytes) {
+                try {
+                    run(remuxCommand(video, output), remuxTimer);
+                    Files.move(output, video, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    // Без faststart видео всё равно можно отправить
+                    log.warn("Не удалось перепаковать {}: {}", video, e.getMessage());
+                }
+                return false;
+            }
+
+            int videoBitrate = videoBitrateKbps(maxBytes, probeDurationSeconds(video));
+            if (videoBitrate < properties.getMinVideoBitrateKbps()) {
+                throw new FileSizeExceededException(toMB(Files.size(video)), toMB(maxBytes));
+            }
+            log.info("Перекодирую {} в {} кбит/с", video, videoBitrate);
+            run(encodeCommand(video, output, videoBitrate), encodeTimer);
+            if (Files.size(output) > maxBytes) {
+                throw new FileSizeExceededException(toMB(Files.size(output)), toMB(maxBytes));
+            }
+            Files.move(output, video, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * Нарезает видео без перекодирования на части не больше {@code maxBytes}.
+     * ffmpeg режет только по ключевым кадрам, поэтому части получаются неравными;
+     * если какая-то вышла больше лимита, нарезка повторяется с большим числом частей.
+     *
+     * @return части по порядку, рядом с исходным файлом
+     * @throws FileSizeExceededException если частей понадобилось бы больше {@code ffmpeg.max-parts}
+     */
+    public List<Path> split(Path video, long maxBytes) throws IOException, InterruptedException {
+        long size = Files.size(video);
+        double duration = probeDurationSeconds(video);
+        int parts = (int) Math.ceil(size / (maxBytes * properties.getSizeMargin()));
+        for (int attempt = 0; attempt < SPLIT_ATTEMPTS && parts <= properties.getMaxParts(); attempt++) {
+            deleteParts(video);
+            log.info("Нарезаю {} на {} частей", video, parts);
+            try {
+                run(splitCommand(video, duration / parts), splitTimer);
+            } catch (IOException e) {
+                deleteParts(video);
+                throw e;
+            }
+            List<Path> result = parts(video);
+            long largest = 0;
+            for (Path part : result) {
+                largest = Math.max(largest, Files.size(part));
+            }
+            if (largest <= maxBytes) {
+                return result;
+            }
+            parts = (int) Math.ceil(parts * (double) largest / maxBytes) + 1;
+        }
+        deleteParts(video);
+        throw new FileSizeExceededException(toMB(size), toMB(maxBytes * properties.getMaxParts()));
+    }
+
+    /**
+     * Части, оставшиеся от {@link #split(Path, long)}, по порядку
+     */
+    public List<Path> parts(Path video) {
+        List<Path> parts = new ArrayList<>();
+        for (int i = 0; Files.exists(partPath(video, i)); i++) {
+            parts.add(partPath(video, i));
+        }
+        return parts;
+    }
+
+    private void deleteParts(Path video) throws IOException {
+        for (Path part : parts(video)) {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private static Path partPath(Path video, int index) {
+        return video.resolveSibling(video.getFileName() + String.format(Locale.ROOT, ".part%03d.mp4", index));
+    }
+
+    /**
+     * Битрейт видео, при котором файл заданной длительности поместится в {@code maxBytes}
+     * с запасом {@code ffmpeg.size-margin}, за вычетом битрейта звука.
+     */
+    public int videoBitrateKbps(long maxBytes, double durationSeconds) {
+        if (durationSeconds <= 0) {
+            return 0;
+        }
+        double totalKbps = maxBytes * 8 * properties.getSizeMargin() / durationSeconds / 1000;
+        return (int) (totalKbps - properties.getAudioBitrateKbps());
+    }
+
+    public List<String> remuxCommand(Path input, Path output) {
+        List<String> command = ffmpeg(input);
+        command.addAll(List.of("-c", "copy", "-movflags", "+faststart", "-f", "mp4", output.toString()));
+        return command;
+    }
+
+    public List<String> encodeCommand(Path input, Path output, int videoBitrateKbps) {
+        List<String> command = ffmpeg(input);
+        command.addAll(List.of(
+                "-c:v", "libx264",
+                "-preset", properties.getPreset(),
+                "-b:v", videoBitrateKbps + "k",
+                "-maxrate", videoBitrateKbps + "k",
+                "-bufsize", videoBitrateKbps * 2 + "k",
+                "-pix_fmt", "yuv420p",
+                "-c:a", "aac",
+                "-b:a", properties.getAudioBitrateKbps() + "k",
+                "-movflags", "+faststart",
+                "-f", "mp4",
+                output.toString()));
+        return command;
+    }
+
+    public List<String> splitCommand(Path input, double segmentSeconds) {
+        List<String> command = ffmpeg(input);
+        command.addAll(List.of(
+                "-map", "0:v:0",
+                "-map", "0:a:0?",
+                "-c", "copy",
+                "-f", "segment",
+                "-segment_time", String.format(Locale.ROOT, "%.3f", segmentSeconds),
+                "-reset_timestamps", "1",
+                "-segment_format", "mp4",
+                "-segment_format_options", "movflags=+faststart",
+                input.resolveSibling(input.getFileName() + ".part%03d.mp4").toString()));
+        return command;
+    }
+
+    private List<String> ffmpeg(Path input) {
+        List<String> command = new ArrayList<>();
+        if (properties.getNiceness() != 0) {
+            command.addAll(List.of("nice", "-n", String.valueOf(properties.getNiceness())));
+        }
+        command.addAll(List.of("ffmpeg", "-nostdin", "-v", "error", "-y", "-i", input.toString()));
+        return command;
+    }
+
+    private double probeDurationSeconds(Path video) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("ffprobe", "-v", "error",
+                "-show_entries", "format=duration",
+                "-of", "default=noprint_wrappers=1:nokey=1",
+                video.toString())
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            output = reader.readLine();
+        }
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("ffprobe не ответил: " + video);
+        }
+        try {
+            return Double.parseDouble(output != null ? output.trim() : "");
+        } catch (NumberFormatException e) {
+            throw new IOException("Не удалось определить длительность видео: " + output);
+        }
+    }
+
+    /**
+     * Выполняет ffmpeg в пуле и ждёт завершения не дольше {@code ffmpeg.timeout}
+     */
+    private void run(List<String> command, Timer timer) throws IOException, InterruptedException {
+        AtomicReference<Process> running = new AtomicReference<>();
+        Future<Void> task = pool.submit(() -> {
+            Timer.Sample sample = Timer.start();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            running.set(process);
+            List<String> tail = new ArrayList<>();
+            try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (tail.size() == ERROR_TAIL_LINES) {
+                        tail.removeFirst();
+                    }
+                    tail.add(line);
+                }
+            }
+            int exitCode = process.waitFor();
+            sample.stop(timer);
+            if (exitCode != 0) {
+                throw new IOException("ffmpeg завершился с кодом " + exitCode + ": " + String.join("\n", tail));
+            }
+            return null;
+        });
+
+        try {
+            task.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("ffmpeg не уложился в " + properties.getTimeout());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Ошибка ffmpeg", e.getCause());
+        } finally {
+            task.cancel(true);
+            Process process = running.get();
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static BigDecimal toMB(long bytes) {
+        return new BigDecimal(bytes).divide(BYTES_IN_MB, 2, RoundingMode.HALF_UP);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
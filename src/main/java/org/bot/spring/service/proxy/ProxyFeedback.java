@@ -0,0 +1,152 @@
+package org.bot.spring.service.proxy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.Platform;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учёт результатов реальных загрузок через прокси.
+ * <p>
+ * Для каждого прокси ведётся:
+ * <ul>
+ *   <li>скользящая средняя скорости загрузки (EWMA, {@code proxy.feedback.ewma-alpha})</li>
+ *   <li>автомат отключения (circuit breaker): после {@code failure-threshold} неудач подряд
+ *       или сразу после HTTP 429/403 прокси не выдаётся {@code open-duration}, затем пропускается
+ *       одна пробная загрузка — успех возвращает прокси в ротацию, неудача отключает снова</li>
+ * </ul>
+ * Прокси последней успешной загрузки закрепляется за платформой ({@code proxy.feedback.sticky})
+ * и выдаётся ей, пока не откажет.
+ */
+@Slf4j
+@Component
+public class ProxyFeedback {
+
+    public enum State {
+        /** Прокси в ротации */
+        CLOSED,
+        /** Прокси отключён до конца {@code open-duration} */
+        OPEN,
+        /** Идёт пробная загрузка после отключения */
+        HALF_OPEN
+    }
+
+    private final ProxyProperties.Feedback properties;
+    private final ConcurrentHashMap<String, ProxyStats> stats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Platform, String> sticky = new ConcurrentHashMap<>();
+
+    public ProxyFeedback(ProxyProperties properties) {
+        this.properties = properties.getFeedback();
+    }
+
+    /**
+     * Сообщить результат загрузки.
+     *
+     * @param proxy          прокси в формате yt-dlp ({@code socks5://ip:port})
+     * @param platform       платформа, для которой выполнялась загрузка, или null
+     * @param bytesPerSecond средняя скорость успешной загрузки, 0 — неизвестна
+     */
+    public void report(String proxy, Platform platform, ProxyOutcome outcome, double bytesPerSecond) {
+        if (proxy == null) {
+            return;
+        }
+        ProxyStats proxyStats = stats.computeIfAbsent(proxy, key -> new ProxyStats());
+        if (outcome == ProxyOutcome.SUCCESS) {
+            proxyStats.success(bytesPerSecond, properties.getEwmaAlpha());
+            if (properties.isSticky() && platform != null) {
+                sticky.put(platform, proxy);
+            }
+            return;
+        }
+        boolean opened = proxyStats.failure(outcome.isBlocked(), properties.getFailureThreshold());
+        if (opened) {
+            log.info("Прокси {} выведен из ротации на {}: {}", proxy, properties.getOpenDuration(), outcome);
+        }
+        if (platform != null) {
+            sticky.remove(platform, proxy);
+        }
+    }
+
+    /**
+     * Можно ли выдать прокси сейчас. Для отключённого прокси по истечении {@code open-duration}
+     * возвращает true один раз — это пробная загрузка.
+     */
+    public boolean tryAcquire(String proxy) {
+        ProxyStats proxyStats = stats.get(proxy);
+        return proxyStats == null || proxyStats.tryAcquire(properties.getOpenDuration().toNanos());
+    }
+
+    /**
+     * @return скользящая средняя скорость загрузки, байт/с; 0 — замеров ещё не было
+     */
+    public double throughput(String proxy) {
+        ProxyStats proxyStats = stats.get(proxy);
+        return proxyStats != null ? proxyStats.throughput() : 0;
+    }
+
+    public State state(String proxy) {
+        ProxyStats proxyStats = stats.get(proxy);
+        return proxyStats != null ? proxyStats.state() : State.CLOSED;
+    }
+
+    /**
+     * @return прокси, закреплённый за платформой, или null
+     */
+    public String stickyProxy(Platform platform) {
+        return properties.isSticky() && platform != null ? sticky.get(platform) : null;
+    }
+
+    private static final class ProxyStats {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private double throughput;
+        /** Время отключения или начала пробной загрузки */
+        private long changedAt;
+
+        synchronized void success(double bytesPerSecond, double alpha) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            if (bytesPerSecond > 0) {
+                throughput = throughput == 0 ? bytesPerSecond : alpha * bytesPerSecond + (1 - alpha) * throughput;
+            }
+        }
+
+        /**
+         * @return true, если прокси только что отключён
+         */
+        synchronized boolean failure(boolean blocked, int threshold) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || blocked || consecutiveFailures >= threshold) {
+                boolean opened = state != State.OPEN;
+                state = State.OPEN;
+                changedAt = System.nanoTime();
+                return opened;
+            }
+            return false;
+        }
+
+        synchronized boolean tryAcquire(long openNanos) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            long now = System.nanoTime();
+            // Пробная загрузка, о которой так и не сообщили, не должна блокировать прокси навсегда
+            if (now - changedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            changedAt = now;
+            return true;
+        }
+
+        synchronized double throughput() {
+            return throughput;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+    }
+}
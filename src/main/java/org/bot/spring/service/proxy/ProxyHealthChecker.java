@@ -0,0 +1,175 @@
+package org.bot.spring.service.proxy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Проверка прокси перед выдачей.
+ * <p>
+ * Для каждого прокси выполняется то же, что сделает yt-dlp:
+ * <ol>
+ *   <li>TCP-подключение к прокси ({@code proxy.check.connect-timeout})</li>
+ *   <li>Рукопожатие SOCKS5 без аутентификации или SOCKS4a и CONNECT к {@code target-host:target-port}</li>
+ *   <li>TLS-рукопожатие с целевым хостом через полученный туннель</li>
+ * </ol>
+ * Каждый шаг ограничен {@code read-timeout}. Проверки идут в виртуальных потоках,
+ * одновременно не больше {@code proxy.check.concurrency}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProxyHealthChecker {
+
+    private static final byte SOCKS5 = 5;
+    private static final byte SOCKS4 = 4;
+    private static final byte CONNECT = 1;
+    private static final byte SOCKS4_GRANTED = 0x5A;
+
+    private final ProxyProperties properties;
+
+    /**
+     * Проверяет все прокси.
+     *
+     * @return живые прокси, от быстрых к медленным
+     */
+    public List<ProxyHealth> checkAll(Collection<ProxyDto> proxies) throws InterruptedException {
+        Semaphore permits = new Semaphore(properties.getCheck().getConcurrency());
+        List<Future<ProxyHealth>> checks = new ArrayList<>(proxies.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ProxyDto proxy : proxies) {
+                checks.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return check(proxy);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        List<ProxyHealth> alive = new ArrayList<>();
+        for (Future<ProxyHealth> check : checks) {
+            try {
+                ProxyHealth health = check.get();
+                if (health != null) {
+                    alive.add(health);
+                }
+            } catch (ExecutionException e) {
+                log.debug("Проверка прокси завершилась ошибкой: {}", e.getCause().getMessage());
+            }
+        }
+        alive.sort(Comparator.comparingLong(ProxyHealth::latencyMillis));
+        return alive;
+    }
+
+    /**
+     * @return результат проверки или null, если прокси не открыл туннель
+     */
+    public ProxyHealth check(ProxyDto proxy) {
+        ProxyProperties.Check check = properties.getCheck();
+        long start = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(proxy.getIp(), proxy.getPort()), (int) check.getConnectTimeout().toMillis());
+            socket.setSoTimeout((int) check.getReadTimeout().toMillis());
+            if ("socks4".equalsIgnoreCase(proxy.getVersion())) {
+                socks4Connect(socket.getInputStream(), socket.getOutputStream(), check.getTargetHost(), check.getTargetPort());
+            } else {
+                socks5Connect(socket.getInputStream(), socket.getOutputStream(), check.getTargetHost(), check.getTargetPort());
+            }
+            if (check.isTls()) {
+                try (SSLSocket tls = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                        .createSocket(socket, check.getTargetHost(), check.getTargetPort(), false)) {
+                    tls.startHandshake();
+                }
+            }
+            long latency = (System.nanoTime() - start) / 1_000_000;
+            return new ProxyHealth(proxy, latency, Instant.now());
+        } catch (IOException e) {
+            log.trace("Прокси {} не прошёл проверку: {}", proxy.toYtDlpFormat(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * SOCKS5 (RFC 1928): без аутентификации, CONNECT по доменному имени
+     */
+    static void socks5Connect(InputStream in, OutputStream out, String host, int port) throws IOException {
+        out.write(new byte[]{SOCKS5, 1, 0});
+        out.flush();
+        byte[] method = in.readNBytes(2);
+        if (method.length < 2 || method[0] != SOCKS5 || method[1] != 0) {
+            throw new IOException("SOCKS5: прокси требует аутентификацию или ответил не по протоколу");
+        }
+
+        byte[] hostBytes = host.getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(new byte[]{SOCKS5, CONNECT, 0, 3, (byte) hostBytes.length});
+        request.write(hostBytes);
+        request.write(port >> 8);
+        request.write(port);
+        out.write(request.toByteArray());
+        out.flush();
+
+        byte[] reply = in.readNBytes(4);
+        if (reply.length < 4 || reply[0] != SOCKS5) {
+            throw new IOException("SOCKS5: некорректный ответ на CONNECT");
+        }
+        if (reply[1] != 0) {
+            throw new IOException("SOCKS5: CONNECT отклонён, код " + reply[1]);
+        }
+        int addressLength = switch (reply[3]) {
+            case 1 -> 4;
+            case 4 -> 16;
+            case 3 -> in.read();
+            default -> throw new IOException("SOCKS5: неизвестный тип адреса " + reply[3]);
+        };
+        if (addressLength < 0 || in.readNBytes(addressLength + 2).length < addressLength + 2) {
+            throw new IOException("SOCKS5: ответ на CONNECT оборван");
+        }
+    }
+
+    /**
+     * SOCKS4a: CONNECT по доменному имени, адрес 0.0.0.1 означает «имя следует за user id»
+     */
+    static void socks4Connect(InputStream in, OutputStream out, String host, int port) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(new byte[]{SOCKS4, CONNECT, (byte) (port >> 8), (byte) port, 0, 0, 0, 1, 0});
+        request.write(host.getBytes(StandardCharsets.US_ASCII));
+        request.write(0);
+        out.write(request.toByteArray());
+        out.flush();
+
+        byte[] reply = in.readNBytes(8);
+        if (reply.length < 8) {
+            throw new IOException("SOCKS4: ответ на CONNECT оборван");
+        }
+        if (reply[1] != SOCKS4_GRANTED) {
+            throw new IOException("SOCKS4: CONNECT отклонён, код " + (reply[1] & 0xFF));
+        }
+    }
+}
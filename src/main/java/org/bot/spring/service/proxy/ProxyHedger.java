@@ -0,0 +1,165 @@
+package org.bot.spring.service.proxy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.Platform;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Параллельные (hedged) попытки через несколько прокси.
+ * <p>
+ * Первая попытка запускается сразу; если за {@code proxy.hedge.delay} она не ответила,
+ * запускается следующая через другой прокси, и так до {@code attempts}. Неудачная попытка
+ * сразу освобождает место для следующей. Побеждает первый успешный ответ, остальные попытки
+ * прерываются вместе с их процессами. Так медленный мёртвый прокси не стоит полного таймаута yt-dlp.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProxyHedger {
+
+    /** Сколько раз запросить у пула прокси, ещё не использованный в этой гонке */
+    private static final int PICK_ATTEMPTS = 5;
+
+    private final ProxyProvider proxyProvider;
+    private final ProxyFeedback feedback;
+    private final ProxyProperties properties;
+
+    /**
+     * Вызов через конкретный прокси. Запущенный процесс передаётся в {@code onStart},
+     * чтобы проигравшую попытку можно было завершить.
+     */
+    @FunctionalInterface
+    public interface ProxyCall<T> {
+        T call(String proxy, Consumer<Process> onStart) throws Exception;
+    }
+
+    /**
+     * @param proxy  прокси, через который получен результат
+     * @param result результат первой успешной попытки
+     */
+    public record Winner<T>(String proxy, T result) {
+    }
+
+    public boolean isEnabled() {
+        return properties.getHedge().isEnabled();
+    }
+
+    /**
+     * Выполняет вызов через несколько прокси и возвращает первый успешный результат.
+     *
+     * @throws IOException если ни одна попытка не удалась за {@code proxy.hedge.timeout}
+     */
+    public <T> Winner<T> race(Platform platform, ProxyCall<T> call) throws IOException, InterruptedException {
+        ProxyProperties.Hedge hedge = properties.getHedge();
+        long deadline = System.nanoTime() + hedge.getTimeout().toNanos();
+        List<Attempt<T>> attempts = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletionService<Winner<T>> completion = new ExecutorCompletionService<>(executor);
+        int running = 0;
+        boolean poolExhausted = false;
+        Throwable lastError = null;
+        try {
+            while (true) {
+                if (attempts.size() < hedge.getAttempts() && !poolExhausted) {
+                    String proxy = nextProxy(platform, used);
+                    if (proxy != null) {
+                        Attempt<T> attempt = new Attempt<>(proxy);
+                        attempt.future = completion.submit(() -> new Winner<>(proxy, call.call(proxy, attempt::started)));
+                        attempts.add(attempt);
+                        running++;
+                        log.debug("Попытка {} через прокси {}", attempts.size(), proxy);
+                    } else {
+                        poolExhausted = true;
+                    }
+                }
+                if (running == 0) {
+                    throw new IOException("Не удалось выполнить запрос ни через один прокси", lastError);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IOException("Ни один прокси не ответил за " + hedge.getTimeout(), lastError);
+                }
+                boolean canStartMore = attempts.size() < hedge.getAttempts() && !poolExhausted;
+                long wait = canStartMore ? Math.min(hedge.getDelay().toNanos(), remaining) : remaining;
+                Future<Winner<T>> done = completion.poll(wait, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    continue;
+                }
+                running--;
+                try {
+                    Winner<T> winner = done.get();
+                    log.info("Прокси {} ответил первым из {}", winner.proxy(), attempts.size());
+                    return winner;
+                } catch (ExecutionException e) {
+                    lastError = e.getCause();
+                    String proxy = attempts.stream().filter(it -> it.future == done).findFirst().map(it -> it.proxy).orElse(null);
+                    log.info("Попытка через прокси {} не удалась: {}", proxy, lastError.getMessage());
+                    feedback.report(proxy, platform, ProxyOutcome.classify(lastError.getMessage()), 0);
+                }
+            }
+        } finally {
+            attempts.forEach(Attempt::cancel);
+            executor.shutdownNow();
+        }
+    }
+
+    private String nextProxy(Platform platform, Set<String> used) {
+        for (int i = 0; i < PICK_ATTEMPTS; i++) {
+            // Закреплённый за платформой прокси — только для первой попытки
+            String proxy = proxyProvider.getCurrentProxy(used.isEmpty() ? platform : null);
+            if (proxy == null) {
+                return null;
+            }
+            if (used.add(proxy)) {
+                return proxy;
+            }
+        }
+        return null;
+    }
+
+    private static final class Attempt<T> {
+        private final String proxy;
+        private volatile Future<Winner<T>> future;
+        private Process process;
+        private boolean cancelled;
+
+        private Attempt(String proxy) {
+            this.proxy = proxy;
+        }
+
+        synchronized void started(Process process) {
+            this.process = process;
+            if (cancelled) {
+                process.destroyForcibly();
+            }
+        }
+
+        /**
+         * Процесс завершается явно: поток, читающий его вывод, на прерывание не реагирует
+         */
+        synchronized void cancel() {
+            cancelled = true;
+            future.cancel(true);
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
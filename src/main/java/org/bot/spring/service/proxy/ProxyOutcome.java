@@ -0,0 +1,45 @@
+package org.bot.spring.service.proxy;
+
+import java.util.Locale;
+
+/**
+ * Результат загрузки через прокси.
+ */
+public enum ProxyOutcome {
+    SUCCESS,
+    /** Прокси или сайт не ответили вовремя */
+    TIMEOUT,
+    /** Сайт ограничил частоту запросов с адреса прокси (HTTP 429) */
+    RATE_LIMITED,
+    /** Сайт заблокировал адрес прокси (HTTP 403) */
+    FORBIDDEN,
+    /** Прочие ошибки: обрыв соединения, отказ прокси */
+    FAILURE;
+
+    /**
+     * Определяет причину неудачи по ошибкам yt-dlp
+     */
+    public static ProxyOutcome classify(String ytDlpErrors) {
+        if (ytDlpErrors == null) {
+            return FAILURE;
+        }
+        String errors = ytDlpErrors.toLowerCase(Locale.ROOT);
+        if (errors.contains("http error 429") || errors.contains("too many requests")) {
+            return RATE_LIMITED;
+        }
+        if (errors.contains("http error 403") || errors.contains("forbidden")) {
+            return FORBIDDEN;
+        }
+        if (errors.contains("timed out") || errors.contains("timeout")) {
+            return TIMEOUT;
+        }
+        return FAILURE;
+    }
+
+    /**
+     * Сайт отказал именно этому адресу: повторять через тот же прокси бессмысленно
+     */
+    public boolean isBlocked() {
+        return this == RATE_LIMITED || this == FORBIDDEN;
+    }
+}
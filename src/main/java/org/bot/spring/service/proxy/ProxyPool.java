@@ -0,0 +1,193 @@
+package org.bot.spring.service.proxy;
+
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Неизменяемый снимок пула прокси, разложенный по индексам при обновлении.
+ * <p>
+ * Выдача не блокирует и не выделяет память:
+ * <ul>
+ *   <li>{@link Ring} — массив и собственный атомарный курсор (round-robin) для всего пула,
+ *       каждого протокола и каждой страны</li>
+ *   <li>{@link WeightedRing} — живые прокси с выбором пропорционально {@link ProxyHealth#score()}
+ *       по alias-методу (Vose): одно случайное число и одно сравнение на выдачу</li>
+ * </ul>
+ * {@link ProxyProvider} заменяет снимок целиком через volatile-ссылку.
+ */
+public final class ProxyPool {
+
+    static final ProxyPool EMPTY = new ProxyPool(List.of(), List.of(), 0);
+
+    private final Ring all;
+    private final Map<String, Ring> byProtocol;
+    private final Map<String, Ring> byCountry;
+    private final WeightedRing live;
+    /** Время (мс эпохи), после которого живые прокси считаются непроверенными */
+    private final long liveUntilMillis;
+
+    /**
+     * @param proxies         все загруженные прокси
+     * @param alive           прошедшие проверку
+     * @param liveUntilMillis до какого момента результаты проверки действительны
+     */
+    public ProxyPool(Collection<ProxyDto> proxies, List<ProxyHealth> alive, long liveUntilMillis) {
+        this.all = new Ring(proxies);
+        this.byProtocol = index(proxies, proxy -> proxy.getVersion() != null ? proxy.getVersion().toLowerCase(Locale.ROOT) : null);
+        this.byCountry = index(proxies, proxy -> proxy.getCode() != null ? proxy.getCode().toUpperCase(Locale.ROOT) : null);
+        this.live = alive.isEmpty() ? null : new WeightedRing(alive);
+        this.liveUntilMillis = liveUntilMillis;
+    }
+
+    /**
+     * @return следующий прокси по кругу или null, если пул пуст
+     */
+    public ProxyDto next() {
+        return all.next();
+    }
+
+    /**
+     * @param protocol протокол в нижнем регистре: "socks4" или "socks5"
+     * @return следующий прокси протокола или null, если таких нет
+     */
+    public ProxyDto nextByProtocol(String protocol) {
+        Ring ring = byProtocol.get(protocol);
+        return ring != null ? ring.next() : null;
+    }
+
+    /**
+     * @param country код страны в верхнем регистре ({@link ProxyDto#getCode()})
+     * @return следующий прокси страны или null, если таких нет
+     */
+    public ProxyDto nextByCountry(String country) {
+        Ring ring = byCountry.get(country);
+        return ring != null ? ring.next() : null;
+    }
+
+    /**
+     * Живой прокси, выбранный с вероятностью, пропорциональной его оценке.
+     *
+     * @return прокси или null, если живых нет или проверка устарела
+     */
+    public ProxyDto nextLive() {
+        if (live == null || System.currentTimeMillis() >= liveUntilMillis) {
+            return null;
+        }
+        return live.next();
+    }
+
+    public int size() {
+        return all.items.length;
+    }
+
+    public int size(String protocol) {
+        Ring ring = byProtocol.get(protocol);
+        return ring != null ? ring.items.length : 0;
+    }
+
+    public int liveSize() {
+        return live != null ? live.items.length : 0;
+    }
+
+    private static Map<String, Ring> index(Collection<ProxyDto> proxies, Function<ProxyDto, String> key) {
+        Map<String, List<ProxyDto>> groups = new HashMap<>();
+        for (ProxyDto proxy : proxies) {
+            String value = key.apply(proxy);
+            if (value != null && !value.isBlank()) {
+                groups.computeIfAbsent(value, k -> new ArrayList<>()).add(proxy);
+            }
+        }
+        Map<String, Ring> rings = new HashMap<>();
+        groups.forEach((value, group) -> rings.put(value, new Ring(group)));
+        return Map.copyOf(rings);
+    }
+
+    /**
+     * Массив прокси и курсор; переполнение курсора безопасно благодаря {@link Math#floorMod(int, int)}.
+     */
+    static final class Ring {
+        private final ProxyDto[] items;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        Ring(Collection<ProxyDto> proxies) {
+            this.items = proxies.toArray(ProxyDto[]::new);
+        }
+
+        ProxyDto next() {
+            if (items.length == 0) {
+                return null;
+            }
+            return items[Math.floorMod(cursor.getAndIncrement(), items.length)];
+        }
+    }
+
+    /**
+     * Взвешенная выборка по alias-методу: таблица строится за O(n), выдача — O(1).
+     */
+    static final class WeightedRing {
+        private final ProxyDto[] items;
+        private final double[] probability;
+        private final int[] alias;
+
+        WeightedRing(List<ProxyHealth> alive) {
+            int n = alive.size();
+            items = new ProxyDto[n];
+            probability = new double[n];
+            alias = new int[n];
+
+            double total = 0;
+            for (ProxyHealth health : alive) {
+                total += health.score();
+            }
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < n; i++) {
+                items[i] = alive.get(i).proxy();
+                scaled[i] = total > 0 ? alive.get(i).score() * n / total : 1;
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            // Остатки из-за погрешности округления выбираются всегда
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1;
+            }
+        }
+
+        ProxyDto next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int column = random.nextInt(items.length);
+            return random.nextDouble() < probability[column] ? items[column] : items[alias[column]];
+        }
+    }
+}
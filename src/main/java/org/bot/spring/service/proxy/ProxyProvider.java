@@ -3,27 +3,43 @@ package org.bot.spring.service.proxy;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.Platform;
 import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
 import org.bot.spring.service.proxy.source.ProxySource;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Главный сервис модуля прокси.
  * <p>
  * Агрегирует прокси из всех {@link ProxySource} в единый пул и выдаёт их по кругу (round-robin).
+ * Для выдачи пул раскладывается в {@link ProxyPool}: отдельные массивы и курсоры по протоколам
+ * и странам, выбор за O(1) без блокировок и выделения памяти.
  * Используется для обхода блокировок при скачивании видео через yt-dlp.
  * <p>
  * <b>Жизненный цикл:</b>
  * <ol>
- *   <li>При старте ({@code @PostConstruct}) загружает прокси из всех источников</li>
- *   <li>Каждые 5 минут ({@code @Scheduled}) обновляет список</li>
+ *   <li>При старте ({@code @PostConstruct}) синхронно загружает пул из двоичного снимка
+ *       ({@code proxy.refresh.snapshot-path}, {@link ProxySnapshot}) и запускает обновление
+ *       из всех источников в фоне — старт приложения не ждёт сети</li>
+ *   <li>Интервал обновления адаптивный ({@link #refreshInterval()}): чем меньше живых прокси,
+ *       тем чаще пул обновляется, от {@code proxy.refresh.min-interval} до {@code max-interval}</li>
  *   <li>Прокси перемешиваются (shuffle) для равномерного распределения нагрузки</li>
+ *   <li>После обновления и каждые {@code proxy.check.interval-ms} пул проверяется в фоне
+ *       ({@link ProxyHealthChecker}); {@link #getCurrentProxy()} выдаёт только прокси,
+ *       прошедшие проверку не раньше {@code proxy.check.max-age}</li>
+ *   <li>После обновления и проверки пул вместе с задержками сохраняется в снимок</li>
  * </ol>
  *
  * @see ProxySource
@@ -33,22 +49,81 @@ import java.util.concurrent.atomic.AtomicInteger;
 @RequiredArgsConstructor
 public class ProxyProvider {
 
+    private static final String SOCKS5 = "socks5";
+    private static final String SOCKS4 = "socks4";
+    /** Сколько пар кандидатов перебрать, если выпадают отключённые прокси */
+    private static final int MAX_PICK_ATTEMPTS = 8;
+
     private final List<ProxySource> sources;
+    private final ProxyHealthChecker healthChecker;
+    private final ProxyFeedback feedback;
+    private final ProxyProperties properties;
 
-    private volatile List<ProxyDto> allProxies = new ArrayList<>();
-    private final AtomicInteger currentIndex = new AtomicInteger(0);
+    private volatile List<ProxyDto> allProxies = List.of();
+    /** Прошедшие проверку, от быстрых к медленным */
+    private volatile List<ProxyHealth> liveProxies = List.of();
+    /** Индексы для выдачи, пересобираются при обновлении списка и после проверки */
+    private volatile ProxyPool pool = ProxyPool.EMPTY;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    /** Списки источников при последней сборке пула: по ним видно, что ничего не изменилось */
+    private volatile List<List<ProxyDto>> sourceLists = List.of();
+    /** Время (мс эпохи) последнего обновления из источников */
+    private volatile long refreshedAt;
 
     @PostConstruct
     public void init() {
-        refreshAll();
+        loadSnapshot();
+        refreshInBackground();
+    }
+
+    /**
+     * Запускает обновление из источников, когда с прошлого прошло {@link #refreshInterval()}.
+     */
+    @Scheduled(fixedDelayString = "${proxy.refresh.tick-ms:30000}", initialDelayString = "${proxy.refresh.tick-ms:30000}")
+    public void refreshIfDue() {
+        if (System.currentTimeMillis() - refreshedAt >= refreshInterval().toMillis()) {
+            refreshInBackground();
+        }
+    }
+
+    /**
+     * Интервал обновления: {@code min-interval}, когда живых прокси нет, и линейно
+     * до {@code max-interval}, когда их не меньше {@code target-live}.
+     * Если проверка выключена, считаются все загруженные прокси.
+     */
+    public Duration refreshInterval() {
+        ProxyProperties.Refresh refresh = properties.getRefresh();
+        int live = properties.getCheck().isEnabled() ? pool.liveSize() : pool.size();
+        double fill = Math.min(1.0, (double) live / Math.max(1, refresh.getTargetLive()));
+        long min = refresh.getMinInterval().toMillis();
+        long max = Math.max(min, refresh.getMaxInterval().toMillis());
+        return Duration.ofMillis(min + Math.round((max - min) * fill));
+    }
+
+    /**
+     * Запускает {@link #refreshAll()} в виртуальном потоке, если предыдущее обновление уже закончилось.
+     */
+    public void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("proxy-refresh").start(() -> {
+            try {
+                refreshAll();
+            } finally {
+                refreshing.set(false);
+            }
+        });
     }
 
     /**
      * Обновляет все источники и пересобирает общий список прокси.
      * <p>
-     * Вызывается при старте и каждые 5 минут по расписанию.
+     * Вызывается в фоне при старте и по адаптивному расписанию ({@link #refreshIfDue()}).
+     * Если ни один источник ничего не вернул или все вернули прежние списки
+     * (например, ProxyScrape ответил {@code 304}), прежний пул сохраняется.
      */
-    @Scheduled(fixedRate = 300_000_00)
     public void refreshAll() {
         log.info("Обновление всех источников прокси...");
 
@@ -60,19 +135,137 @@ public class ProxyProvider {
             }
         }
 
-        List<ProxyDto> combined = new ArrayList<>();
+        List<List<ProxyDto>> fetched = new ArrayList<>(sources.size());
         for (ProxySource source : sources) {
-            combined.addAll(source.getProxies());
+            fetched.add(source.getProxies());
+        }
+
+        refreshedAt = System.currentTimeMillis();
+        if (isUnchanged(fetched)) {
+            log.info("Источники прокси не изменились, пул не пересобирается");
+            checkHealthInBackground();
+            return;
+        }
+
+        List<ProxyDto> combined = new ArrayList<>();
+        fetched.forEach(combined::addAll);
+        if (combined.isEmpty() && !allProxies.isEmpty()) {
+            log.warn("Источники не вернули ни одного прокси, оставляем прежний пул из {}", allProxies.size());
+            checkHealthInBackground();
+            return;
         }
 
         Collections.shuffle(combined);
-        allProxies = combined;
-        currentIndex.set(0);
+        allProxies = List.copyOf(combined);
+        sourceLists = fetched;
+        ProxyPool rebuilt = rebuildPool();
+        saveSnapshot();
 
-        long socks5 = combined.stream().filter(p -> "socks5".equalsIgnoreCase(p.getVersion())).count();
-        long socks4 = combined.stream().filter(p -> "socks4".equalsIgnoreCase(p.getVersion())).count();
         log.info("Всего загружено {} прокси из {} источников (socks5: {}, socks4: {})",
-                combined.size(), sources.size(), socks5, socks4);
+                rebuilt.size(), sources.size(), rebuilt.size(SOCKS5), rebuilt.size(SOCKS4));
+
+        checkHealthInBackground();
+    }
+
+    /**
+     * Все источники вернули те же экземпляры списков, что и при прошлой сборке
+     */
+    private boolean isUnchanged(List<List<ProxyDto>> fetched) {
+        List<List<ProxyDto>> previous = sourceLists;
+        if (previous.size() != fetched.size() || allProxies.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < fetched.size(); i++) {
+            if (fetched.get(i) != previous.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Запускает проверку пула в виртуальном потоке, если предыдущая уже закончилась.
+     */
+    @Scheduled(fixedDelayString = "${proxy.check.interval-ms:600000}", initialDelayString = "${proxy.check.interval-ms:600000}")
+    public void checkHealthInBackground() {
+        if (!properties.getCheck().isEnabled() || !checking.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("proxy-health-check").start(() -> {
+            try {
+                checkHealth();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                checking.set(false);
+            }
+        });
+    }
+
+    /**
+     * Проверяет все прокси пула и заменяет список живых.
+     */
+    public void checkHealth() throws InterruptedException {
+        List<ProxyDto> proxies = allProxies;
+        long start = System.nanoTime();
+        List<ProxyHealth> alive = healthChecker.checkAll(proxies);
+        liveProxies = List.copyOf(alive);
+        rebuildPool();
+        saveSnapshot();
+        log.info("Проверено {} прокси за {} с, живых: {}", proxies.size(),
+                (System.nanoTime() - start) / 1_000_000_000, alive.size());
+    }
+
+    /**
+     * Загружает пул и результаты проверки из снимка, если он есть.
+     */
+    void loadSnapshot() {
+        Path path = snapshotPath();
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            ProxySnapshot.Contents contents = ProxySnapshot.read(path);
+            allProxies = List.copyOf(contents.proxies());
+            liveProxies = List.copyOf(contents.alive());
+            rebuildPool();
+            log.info("Из снимка {} загружено {} прокси (живых: {}) за {} мс", path, contents.proxies().size(),
+                    contents.alive().size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить снимок прокси {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void saveSnapshot() {
+        Path path = snapshotPath();
+        if (path == null) {
+            return;
+        }
+        try {
+            ProxySnapshot.write(path, allProxies, liveProxies);
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить снимок прокси {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Path snapshotPath() {
+        String snapshotPath = properties.getRefresh().getSnapshotPath();
+        return snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    /**
+     * Раскладывает текущие списки по индексам {@link ProxyPool}
+     */
+    private synchronized ProxyPool rebuildPool() {
+        List<ProxyHealth> live = liveProxies;
+        long liveUntil = live.stream()
+                .mapToLong(health -> health.checkedAt().plus(properties.getCheck().getMaxAge()).toEpochMilli())
+                .min()
+                .orElse(0);
+        ProxyPool rebuilt = new ProxyPool(allProxies, live, liveUntil);
+        pool = rebuilt;
+        return rebuilt;
     }
 
     /**
@@ -81,12 +274,7 @@ public class ProxyProvider {
      * @return следующий прокси или null если пул пуст
      */
     public ProxyDto getNextProxy() {
-        List<ProxyDto> list = allProxies;
-        if (list.isEmpty()) {
-            return null;
-        }
-        int index = currentIndex.getAndUpdate(i -> (i + 1) % list.size());
-        return list.get(index);
+        return pool.next();
     }
 
     /**
@@ -97,40 +285,114 @@ public class ProxyProvider {
      * @return прокси или null если пул пуст
      */
     public ProxyDto getNextSocks5Proxy() {
-        List<ProxyDto> socks5List = allProxies.stream()
-                .filter(p -> "socks5".equalsIgnoreCase(p.getVersion()))
-                .toList();
-
-        if (socks5List.isEmpty()) {
+        ProxyPool current = pool;
+        ProxyDto proxy = current.nextByProtocol(SOCKS5);
+        if (proxy == null) {
             log.warn("Нет socks5 прокси, используем любой доступный");
-            return getNextProxy();
+            return current.next();
         }
+        return proxy;
+    }
 
-        int index = currentIndex.getAndUpdate(i -> (i + 1) % socks5List.size());
-        return socks5List.get(index);
+    /**
+     * Возвращает следующий прокси страны.
+     *
+     * @param countryCode код страны в верхнем регистре, как в {@link ProxyDto#getCode()}
+     * @return прокси или null, если прокси этой страны нет
+     */
+    public ProxyDto getNextProxy(String countryCode) {
+        return pool.nextByCountry(countryCode);
+    }
+
+    /**
+     * Возвращает живой прокси: прошедший проверку не раньше {@code proxy.check.max-age}.
+     * Быстрые прокси выдаются чаще медленных пропорционально {@link ProxyHealth#score()}.
+     *
+     * @return прокси или null, если живых прокси нет
+     */
+    public ProxyDto getNextLiveProxy() {
+        return pool.nextLive();
     }
 
     /**
      * Возвращает следующий прокси в формате для yt-dlp.
-     * <p>
-     * Формат: {@code socks5://ip:port}
      *
      * @return строка прокси или null если пул пуст
+     * @see #getCurrentProxy(Platform)
      */
     public String getCurrentProxy() {
-        ProxyDto proxy = getNextSocks5Proxy();
-        if (proxy != null) {
-            String proxyStr = proxy.toYtDlpFormat();
-            log.debug("Выдан прокси: {}", proxyStr);
-            return proxyStr;
+        return getCurrentProxy(null);
+    }
+
+    /**
+     * Возвращает прокси для загрузки с платформы в формате для yt-dlp.
+     * <ol>
+     *   <li>Прокси, закреплённый за платформой после успешной загрузки ({@link ProxyFeedback#stickyProxy})</li>
+     *   <li>Иначе — лучший по скорости реальных загрузок из двух случайных кандидатов
+     *       (если проверка включена — из живых прокси, а пока живых нет или проверка устарела —
+     *       из socks5, как без проверки)</li>
+     *   <li>Прокси, отключённые по результатам загрузок, пропускаются</li>
+     * </ol>
+     * Формат: {@code socks5://ip:port}
+     *
+     * @return строка прокси или null если подходящих прокси нет
+     */
+    public String getCurrentProxy(Platform platform) {
+        String stickyProxy = feedback.stickyProxy(platform);
+        if (stickyProxy != null && feedback.tryAcquire(stickyProxy)) {
+            log.debug("Выдан закреплённый прокси: {}", stickyProxy);
+            return stickyProxy;
+        }
+        for (int attempt = 0; attempt < MAX_PICK_ATTEMPTS; attempt++) {
+            ProxyDto first = nextCandidate();
+            ProxyDto second = nextCandidate();
+            if (first == null || second == null) {
+                return null;
+            }
+            String preferred = first.toYtDlpFormat();
+            String other = second.toYtDlpFormat();
+            if (feedback.throughput(other) > feedback.throughput(preferred)) {
+                String swap = preferred;
+                preferred = other;
+                other = swap;
+            }
+            if (feedback.tryAcquire(preferred)) {
+                log.debug("Выдан прокси: {}", preferred);
+                return preferred;
+            }
+            if (feedback.tryAcquire(other)) {
+                log.debug("Выдан прокси: {}", other);
+                return other;
+            }
         }
         return null;
     }
 
+    /**
+     * Живой прокси, если проверка включена и её результаты есть; иначе socks5 из всего пула.
+     * До первой проверки, во время неё и когда не прошёл ни один прокси загрузка не остаётся без прокси.
+     */
+    private ProxyDto nextCandidate() {
+        if (properties.getCheck().isEnabled()) {
+            ProxyDto live = getNextLiveProxy();
+            if (live != null) {
+                return live;
+            }
+        }
+        return getNextSocks5Proxy();
+    }
+
     /**
      * @return общее количество прокси в пуле
      */
     public int getProxyCount() {
-        return allProxies.size();
+        return pool.size();
+    }
+
+    /**
+     * @return количество прокси, прошедших последнюю проверку
+     */
+    public int getLiveProxyCount() {
+        return pool.liveSize();
     }
 }
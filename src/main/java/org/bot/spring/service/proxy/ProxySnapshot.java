@@ -0,0 +1,102 @@
+package org.bot.spring.service.proxy;
+
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Двоичный снимок пула прокси вместе с результатами проверки.
+ * <p>
+ * Формат ({@link DataOutputStream}): заголовок {@code PRXY}, версия, количество записей,
+ * затем для каждого прокси — ip, порт, страна, протокол, задержка в мс (-1 — не прошёл проверку)
+ * и время проверки. Несколько тысяч прокси читаются за миллисекунды, поэтому снимок загружается
+ * при старте синхронно, а обновление из сети идёт в фоне.
+ */
+public final class ProxySnapshot {
+
+    private static final int MAGIC = 0x50525859;
+    private static final int VERSION = 1;
+    private static final long NOT_CHECKED = -1;
+
+    /**
+     * @param proxies все прокси в порядке выдачи
+     * @param alive   прошедшие проверку, от быстрых к медленным
+     */
+    public record Contents(List<ProxyDto> proxies, List<ProxyHealth> alive) {
+    }
+
+    private ProxySnapshot() {
+    }
+
+    /**
+     * Записывает снимок во временный файл и атомарно заменяет им прежний.
+     */
+    public static void write(Path path, List<ProxyDto> proxies, List<ProxyHealth> alive) throws IOException {
+        Map<ProxyDto, ProxyHealth> health = new HashMap<>();
+        for (ProxyHealth item : alive) {
+            health.put(item.proxy(), item);
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(proxies.size());
+            for (ProxyDto proxy : proxies) {
+                ProxyHealth checked = health.get(proxy);
+                out.writeUTF(nullToEmpty(proxy.getIp()));
+                out.writeShort(proxy.getPort());
+                out.writeUTF(nullToEmpty(proxy.getCode()));
+                out.writeUTF(nullToEmpty(proxy.getVersion()));
+                out.writeLong(checked != null ? checked.latencyMillis() : NOT_CHECKED);
+                out.writeLong(checked != null ? checked.checkedAt().toEpochMilli() : 0);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @throws IOException если файл повреждён или записан другой версией
+     */
+    public static Contents read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Неизвестный формат снимка прокси");
+            }
+            int count = in.readInt();
+            List<ProxyDto> proxies = new ArrayList<>(count);
+            List<ProxyHealth> alive = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ProxyDto proxy = new ProxyDto(in.readUTF(), in.readUnsignedShort(), in.readUTF(), in.readUTF());
+                long latency = in.readLong();
+                long checkedAt = in.readLong();
+                proxies.add(proxy);
+                if (latency != NOT_CHECKED) {
+                    alive.add(new ProxyHealth(proxy, latency, Instant.ofEpochMilli(checkedAt)));
+                }
+            }
+            alive.sort(Comparator.comparingLong(ProxyHealth::latencyMillis));
+            return new Contents(proxies, alive);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
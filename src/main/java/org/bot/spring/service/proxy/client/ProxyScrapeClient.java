@@ -1,13 +1,14 @@
 package org.bot.spring.service.proxy.client;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import lombok.extern.slf4j.Slf4j;
 import org.bot.spring.dto.ProxyDto;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -15,13 +16,20 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 /**
  * HTTP клиент для API proxyscrape.com.
  * <p>
- * Выполняет GET запрос к публичному API и парсит JSON ответ.
+ * Выполняет GET запрос к публичному API и разбирает JSON ответ потоково, прямо из тела ответа:
+ * дерево документа не строится, {@link ProxyDto} создаются по мере чтения.
  * Возвращает только socks4/socks5 прокси с флагом {@code alive: true}.
  * <p>
+ * Запросы условные: {@code ETag} и {@code Last-Modified} прошлого ответа отправляются
+ * в {@code If-None-Match} / {@code If-Modified-Since}, и на {@code 304 Not Modified}
+ * возвращается тот же экземпляр списка без разбора. Ответ запрашивается в gzip.
+ * Ответ, который не удалось разобрать, не запоминается: следующий запрос снова сравнивается с последним целым списком.
+ * <p>
  * API endpoint: {@code https://api.proxyscrape.com/v4/free-proxy-list/get?...}
  *
  */
@@ -30,33 +38,72 @@ import java.util.List;
 public class ProxyScrapeClient {
 
     private static final String API_URL = "https://api.proxyscrape.com/v4/free-proxy-list/get?request=display_proxies&proxy_format=ipport&format=json";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     private final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(15))
             .build();
+    private final URI apiUri;
+
+    /** Валидаторы и результат последнего успешного ответа */
+    private volatile String etag;
+    private volatile String lastModified;
+    private volatile List<ProxyDto> lastProxies = List.of();
+
+    public ProxyScrapeClient() {
+        this(API_URL);
+    }
+
+    /**
+     * @param apiUrl адрес API (в тестах — локальная заглушка)
+     */
+    public ProxyScrapeClient(String apiUrl) {
+        this.apiUri = URI.create(apiUrl);
+    }
 
     /**
      * Загружает список прокси из API.
      *
-     * @return список прокси (пустой список при ошибке, никогда не null)
+     * @return список прокси (пустой список при ошибке, никогда не null);
+     * если список не изменился — тот же экземпляр, что и в прошлый раз
      */
     public List<ProxyDto> fetchProxies() {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(apiUri)
                     .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
                     .header("Accept", "application/json")
-                    .GET()
-                    .build();
+                    .header("Accept-Encoding", "gzip");
+            List<ProxyDto> cached = lastProxies;
+            if (!cached.isEmpty()) {
+                if (etag != null) {
+                    builder.header("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    builder.header("If-Modified-Since", lastModified);
+                }
+            }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<InputStream> response = httpClient.send(builder.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
 
-            if (response.statusCode() != 200) {
-                log.error("ProxyScrape API вернул статус: {}", response.statusCode());
-                return List.of();
-            }
+            try (InputStream body = decode(response)) {
+                if (response.statusCode() == 304) {
+                    log.debug("ProxyScrape: список не изменился");
+                    return cached;
+                }
+                if (response.statusCode() != 200) {
+                    log.error("ProxyScrape API вернул статус: {}", response.statusCode());
+                    return List.of();
+                }
 
-            return parseResponse(response.body());
+                List<ProxyDto> proxies = parseResponse(body);
+                if (!proxies.isEmpty()) {
+                    etag = response.headers().firstValue("ETag").orElse(null);
+                    lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+                    lastProxies = proxies;
+                }
+                return proxies;
+            }
 
         } catch (IOException | InterruptedException e) {
             log.error("Ошибка при запросе к ProxyScrape API", e);
@@ -64,51 +111,94 @@ public class ProxyScrapeClient {
         }
     }
 
-    private List<ProxyDto> parseResponse(String json) {
-        List<ProxyDto> proxies = new ArrayList<>();
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
 
-        try {
-            JSONObject root = JSON.parseObject(json);
-            JSONArray proxiesArray = root.getJSONArray("proxies");
+    /**
+     * @return прокси из ответа; пустой список, если ответ не разобран до конца — оборванный список не используется
+     */
+    private List<ProxyDto> parseResponse(InputStream in) {
+        List<ProxyDto> proxies = new ArrayList<>();
 
-            if (proxiesArray == null) {
-                log.warn("Поле 'proxies' отсутствует в ответе");
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                log.warn("Ответ ProxyScrape не является JSON-объектом");
                 return proxies;
             }
-
-            for (int i = 0; i < proxiesArray.size(); i++) {
-                JSONObject proxyObj = proxiesArray.getJSONObject(i);
-
-                String ip = proxyObj.getString("ip");
-                Integer port = proxyObj.getInteger("port");
-                String protocol = proxyObj.getString("protocol");
-                Boolean alive = proxyObj.getBoolean("alive");
-
-                if (ip == null || port == null || protocol == null) {
-                    continue;
-                }
-
-                if (alive != null && !alive) {
-                    continue;
-                }
-
-                if ("socks5".equalsIgnoreCase(protocol) || "socks4".equalsIgnoreCase(protocol)) {
-                    String countryCode = "";
-                    JSONObject ipData = proxyObj.getJSONObject("ip_data");
-                    if (ipData != null) {
-                        countryCode = ipData.getString("countryCode");
-                    }
-
-                    proxies.add(new ProxyDto(ip, port, countryCode != null ? countryCode : "", protocol));
+            boolean found = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("proxies".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    found = true;
+                    readProxies(parser, proxies);
+                } else {
+                    parser.skipChildren();
                 }
             }
 
+            if (!found) {
+                log.warn("Поле 'proxies' отсутствует в ответе");
+            }
             log.debug("Распарсено {} socks прокси из ProxyScrape API", proxies.size());
 
-        } catch (Exception e) {
+        } catch (IOException e) {
             log.error("Ошибка парсинга JSON от ProxyScrape", e);
+            return List.of();
         }
 
         return proxies;
     }
+
+    private static void readProxies(JsonParser parser, List<ProxyDto> proxies) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String ip = null;
+            int port = -1;
+            String protocol = null;
+            boolean alive = true;
+            String countryCode = "";
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "ip" -> ip = parser.getValueAsString();
+                    case "port" -> port = parser.getValueAsInt(-1);
+                    case "protocol" -> protocol = parser.getValueAsString();
+                    case "alive" -> alive = parser.currentToken() != JsonToken.VALUE_FALSE;
+                    case "ip_data" -> countryCode = readCountryCode(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (ip == null || port < 0 || protocol == null || !alive) {
+                continue;
+            }
+            if ("socks5".equalsIgnoreCase(protocol) || "socks4".equalsIgnoreCase(protocol)) {
+                proxies.add(new ProxyDto(ip, port, countryCode, protocol));
+            }
+        }
+    }
+
+    private static String readCountryCode(JsonParser parser) throws IOException {
+        String countryCode = "";
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return countryCode;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("countryCode".equals(field) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                countryCode = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return countryCode;
+    }
 }
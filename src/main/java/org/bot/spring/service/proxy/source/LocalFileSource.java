@@ -19,6 +19,8 @@ import java.util.regex.Pattern;
  * Протокол (socks4/socks5) задаётся при создании и применяется ко всем прокси из файла.
  * <p>
  * Не требует сети — используется как fallback или для статичных списков.
+ * Файл в classpath во время работы не меняется, поэтому читается один раз:
+ * последующие {@link #refresh()} оставляют прежний список.
  * <p>
  * Бины создаются в {@link org.bot.spring.configuration.ProxySourceConfiguration}.
  *
@@ -51,6 +53,9 @@ public class LocalFileSource implements ProxySource {
 
     @Override
     public void refresh() {
+        if (!proxies.isEmpty()) {
+            return;
+        }
         log.info("Загрузка прокси из файла: {}", resourcePath);
         try {
             List<ProxyDto> loaded = loadFromResource();
@@ -15,6 +15,7 @@ import java.util.List;
  * Загружает список бесплатных socks4/socks5 прокси по сети.
  * Протокол определяется автоматически из ответа API.
  * Фильтруются только живые прокси ({@code alive: true}).
+ * Если список на сервере не изменился, {@link #getProxies()} возвращает прежний экземпляр.
  *
  * @see ProxyScrapeClient
  * @see ProxySource
@@ -37,7 +38,9 @@ public class ProxyScrapeSource implements ProxySource {
         log.info("Обновление прокси из ProxyScrape API...");
         try {
             List<ProxyDto> fetched = client.fetchProxies();
-            if (!fetched.isEmpty()) {
+            if (fetched == proxies) {
+                log.info("{}: список не изменился", getName());
+            } else if (!fetched.isEmpty()) {
                 proxies = fetched;
                 long socks5 = fetched.stream().filter(p -> "socks5".equalsIgnoreCase(p.getVersion())).count();
                 long socks4 = fetched.stream().filter(p -> "socks4".equalsIgnoreCase(p.getVersion())).count();
@@ -0,0 +1,171 @@
+package org.bot.spring.service.stream;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Pipe;
+import okio.Source;
+import org.bot.spring.configuration.properties.BotProperties;
+import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendVideo;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Отправка видео в Telegram потоком, без временного файла.
+ * <p>
+ * Байты видео копируются из {@link InputStream} в ограниченный буфер ({@link Pipe}),
+ * из которого читает тело multipart-запроса {@code sendVideo}. Длина тела заранее неизвестна,
+ * запрос уходит с {@code Transfer-Encoding: chunked}.
+ * <p>
+ * Если чтение источника завершилось ошибкой (превышен размер, yt-dlp упал), буфер отменяется
+ * и запрос обрывается — неполное видео в чат не попадает. Если первым оборвался запрос
+ * (нет соединения, Telegram закрыл его), буфер тоже отменяется, а источник закрывается.
+ */
+@Component
+public class TelegramVideoStreamUploader {
+
+    private static final MediaType VIDEO_MP4 = MediaType.get("video/mp4");
+    private static final long BYTES_IN_MB = 1024 * 1024;
+
+    private final BotProperties botProperties;
+    private final DownloadProperties downloadProperties;
+    private final TelegramApiProperties telegramApiProperties;
+    private final OkHttpClient httpClient;
+
+    public TelegramVideoStreamUploader(BotProperties botProperties, DownloadProperties downloadProperties,
+                                       TelegramApiProperties telegramApiProperties, OkHttpClient telegramHttpClient) {
+        this.botProperties = botProperties;
+        this.downloadProperties = downloadProperties;
+        this.telegramApiProperties = telegramApiProperties;
+        // Telegram отвечает только после обработки всего видео
+        this.httpClient = telegramHttpClient.newBuilder()
+                .readTimeout(Duration.ofMinutes(2))
+                .build();
+    }
+
+    /**
+     * Отправляет видео из потока. Поток читается до конца и закрывается.
+     *
+     * @return отправленное сообщение
+     * @throws RuntimeException             исключение, с которым завершилось чтение {@code video}
+     * @throws TelegramApiRequestException если Telegram отклонил запрос
+     */
+    public Message sendVideo(long chatId, InputStream video, String fileName, String caption)
+            throws IOException, InterruptedException, TelegramApiRequestException {
+        Pipe pipe = new Pipe(downloadProperties.getStreamBufferMB() * BYTES_IN_MB);
+        AtomicReference<Throwable> copyError = new AtomicReference<>();
+        Thread copier = Thread.ofVirtual().name("video-stream-" + chatId).start(() -> copy(video, pipe, copyError));
+
+        MultipartBody.Builder body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("chat_id", String.valueOf(chatId))
+                .addFormDataPart("supports_streaming", "true")
+                .addFormDataPart("video", fileName, new PipeRequestBody(pipe));
+        if (caption != null) {
+            body.addFormDataPart("caption", caption);
+        }
+        Request request = new Request.Builder()
+                .url(telegramApiProperties.getUrl() + "/bot" + botProperties.getToken() + "/sendVideo")
+                .post(body.build())
+                .build();
+
+        String answer;
+        try (Response response = httpClient.newCall(request).execute()) {
+            answer = response.body().string();
+        } catch (IOException e) {
+            // Ошибка источника записывается до отмены буфера, поэтому уже видна, если запрос оборвала она
+            Throwable sourceError = copyError.get();
+            if (sourceError == null) {
+                // Тело могло так и не начать читать буфер: без отмены копирование ждало бы читателя вечно
+                pipe.cancel();
+                closeQuietly(video);
+            }
+            copier.join();
+            if (sourceError instanceof RuntimeException runtimeError) {
+                throw runtimeError;
+            }
+            throw e;
+        }
+        copier.join();
+
+        return answerMethod(chatId).deserializeResponse(answer);
+    }
+
+    private static void copy(InputStream video, Pipe pipe, AtomicReference<Throwable> copyError) {
+        try (InputStream source = video) {
+            BufferedSink sink = Okio.buffer(pipe.sink());
+            sink.writeAll(Okio.source(source));
+            sink.close();
+        } catch (Throwable e) {
+            // Буфер отменяется, а не закрывается: закрытие означало бы конец видео
+            copyError.set(e);
+            pipe.cancel();
+        }
+    }
+
+    private static void closeQuietly(InputStream video) {
+        try {
+            video.close();
+        } catch (IOException | RuntimeException e) {
+            // Копирование и так завершится ошибкой отменённого буфера
+        }
+    }
+
+    /**
+     * Метод, которым разбирается ответ Telegram, — сам запрос собирается вручную
+     */
+    private static SendVideo answerMethod(long chatId) {
+        return SendVideo.builder()
+                .chatId(chatId)
+                .video(new InputFile("stream"))
+                .build();
+    }
+
+    /**
+     * Одноразовое тело запроса неизвестной длины, читающее из {@link Pipe}.
+     */
+    private static final class PipeRequestBody extends RequestBody {
+
+        private final Pipe pipe;
+
+        private PipeRequestBody(Pipe pipe) {
+            this.pipe = pipe;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return VIDEO_MP4;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (Source source = pipe.source()) {
+                sink.writeAll(source);
+            }
+        }
+    }
+}
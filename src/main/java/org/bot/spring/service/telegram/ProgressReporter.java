@@ -0,0 +1,69 @@
+package org.bot.spring.service.telegram;
+
+import org.bot.spring.dto.DownloadProgress;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Показывает ход загрузки в статусном сообщении.
+ * <p>
+ * yt-dlp печатает прогресс несколько раз в секунду, а Telegram позволяет редактировать сообщение
+ * примерно раз в секунду на чат, поэтому статус обновляется не чаще {@code interval}.
+ * Остальные события прогресса отбрасываются.
+ */
+public class ProgressReporter implements Consumer<DownloadProgress> {
+
+    private static final double BYTES_IN_MB = 1024 * 1024;
+
+    private final Status status;
+    private final long intervalNanos;
+    private final AtomicLong lastUpdate;
+    private volatile String stage = "Загружаю видео...";
+
+    public ProgressReporter(Status status, Duration interval) {
+        this.status = status;
+        this.intervalNanos = interval.toNanos();
+        // Первое событие прогресса показывается сразу
+        this.lastUpdate = new AtomicLong(System.nanoTime() - intervalNanos);
+    }
+
+    /**
+     * Сменить этап загрузки (например, «Загружаю видео (формат mp4, 1280x720)...») и сразу показать его
+     */
+    public void stage(String text) {
+        stage = text;
+        status.update(text);
+    }
+
+    @Override
+    public void accept(DownloadProgress progress) {
+        long now = System.nanoTime();
+        long last = lastUpdate.get();
+        if (now - last < intervalNanos || !lastUpdate.compareAndSet(last, now)) {
+            return;
+        }
+        status.update(stage + "\n" + format(progress));
+    }
+
+    /**
+     * @return строка вида «42% • 1.5 МБ/с • осталось 0:18»
+     */
+    private static String format(DownloadProgress progress) {
+        StringBuilder text = new StringBuilder();
+        int percent = progress.percent();
+        if (percent >= 0) {
+            text.append(percent).append('%');
+        } else {
+            text.append(String.format("%.1f МБ", progress.downloadedBytes() / BYTES_IN_MB));
+        }
+        if (progress.bytesPerSecond() != null) {
+            text.append(" • ").append(String.format("%.1f МБ/с", progress.bytesPerSecond() / BYTES_IN_MB));
+        }
+        if (progress.etaSeconds() != null) {
+            text.append(" • осталось ").append(String.format("%d:%02d", progress.etaSeconds() / 60, progress.etaSeconds() % 60));
+        }
+        return text.toString();
+    }
+}
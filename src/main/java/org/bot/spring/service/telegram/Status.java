@@ -0,0 +1,14 @@
+package org.bot.spring.service.telegram;
+
+/**
+ * Куда показывать ход обработки видео: отдельное статусное сообщение ({@link StatusMessage})
+ * или строка общего сообщения для нескольких ссылок ({@link StatusBoard#line(int)}).
+ */
+@FunctionalInterface
+public interface Status {
+
+    /**
+     * Заменить текст статуса
+     */
+    void update(String text);
+}
@@ -0,0 +1,74 @@
+package org.bot.spring.service.telegram;
+
+import org.bot.spring.service.TelegramMessageService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Одно статусное сообщение для нескольких ссылок: по строке на ссылку.
+ * <p>
+ * {@link #line(int)} отдаёт {@link Status} одной строки — его можно передать обработчику как обычный статус.
+ * Обновление строки перерисовывает всё сообщение; частые правки склеивает сам {@link StatusMessage}.
+ */
+public class StatusBoard {
+
+    private final StatusMessage message;
+    private final List<String> labels;
+    private final String[] lines;
+
+    /**
+     * @param labels подписи строк (например, сайт ссылки) в порядке ссылок
+     */
+    public StatusBoard(TelegramMessageService telegramMessageService, long chatId, List<String> labels) {
+        this.labels = List.copyOf(labels);
+        this.lines = new String[labels.size()];
+        Arrays.fill(lines, "в очереди");
+        this.message = telegramMessageService.sendStatusMessage(chatId, render());
+    }
+
+    /**
+     * Статус одной ссылки
+     */
+    public Status line(int index) {
+        return text -> set(index, text);
+    }
+
+    /**
+     * Заменить строку одной ссылки
+     */
+    public void set(int index, String text) {
+        // Под блокировкой, чтобы правки уходили в том же порядке, в каком менялись строки
+        synchronized (this) {
+            lines[index] = text;
+            message.update(render());
+        }
+    }
+
+    /**
+     * Заменить всё сообщение итоговым текстом
+     */
+    public synchronized void finish(String text) {
+        message.update(text);
+    }
+
+    /**
+     * Оставить строки ссылок и дописать под ними итоговый текст
+     */
+    public synchronized void append(String text) {
+        message.update(render() + "\n\n" + text);
+    }
+
+    public int size() {
+        return lines.length;
+    }
+
+    private String render() {
+        List<String> rows = new ArrayList<>(lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            rows.add((i + 1) + ". " + labels.get(i) + ": " + lines[i]);
+        }
+        return String.join("\n", rows);
+    }
+}
@@ -0,0 +1,83 @@
+package org.bot.spring.service.telegram;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.service.TelegramMessageService;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Статусное сообщение о ходе обработки видео.
+ * <p>
+ * {@link #update(String)} не ждёт Telegram: новый текст запоминается и отправляется правкой,
+ * как только исходное сообщение доставлено. Повтор того же текста не отправляется.
+ * Если отредактировать не удалось (или исходное сообщение не было отправлено), текст уходит новым сообщением,
+ * и дальше правится уже оно.
+ */
+@Slf4j
+public class StatusMessage implements Status {
+
+    private final TelegramMessageService telegramMessageService;
+    private final long chatId;
+
+    /** Сообщение, которое сейчас показывает статус; заменяется новым после неудачной отправки или правки */
+    private CompletableFuture<Message> message;
+    private String latestText;
+    private String sentText;
+
+    public StatusMessage(TelegramMessageService telegramMessageService, long chatId, String initialText,
+                         CompletableFuture<Message> message) {
+        this.telegramMessageService = telegramMessageService;
+        this.chatId = chatId;
+        this.message = message;
+        this.latestText = initialText;
+        this.sentText = initialText;
+    }
+
+    @Override
+    public void update(String text) {
+        CompletableFuture<Message> target;
+        synchronized (this) {
+            latestText = text;
+            target = message;
+        }
+        target.whenComplete((sent, error) -> flush(target, sent));
+    }
+
+    private void flush(CompletableFuture<Message> target, Message sent) {
+        String text = null;
+        CompletableFuture<Message> current;
+        synchronized (this) {
+            current = message;
+            if (current == target) {
+                if (Objects.equals(latestText, sentText)) {
+                    return;
+                }
+                text = latestText;
+                sentText = text;
+                if (sent == null) {
+                    message = telegramMessageService.sendTextMessage(chatId, text);
+                    return;
+                }
+            }
+        }
+        if (current != target) {
+            // Статус уже переехал в новое сообщение — текст уйдёт его правкой
+            current.whenComplete((newSent, error) -> flush(current, newSent));
+            return;
+        }
+        telegramMessageService.editTextMessage(chatId, sent.getMessageId(), text)
+                .exceptionally(error -> {
+                    synchronized (this) {
+                        // Правка уже заменена более новой — её текст и будет отправлен
+                        if (!text.equals(latestText) || message != target) {
+                            return null;
+                        }
+                        log.warn("Не удалось обновить статус, отправляю новое сообщение: {}", error.getMessage());
+                        message = telegramMessageService.sendTextMessage(chatId, text);
+                    }
+                    return null;
+                });
+    }
+}
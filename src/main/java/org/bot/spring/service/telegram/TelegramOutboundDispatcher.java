@@ -0,0 +1,452 @@
+package org.bot.spring.service.telegram;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.TelegramOutboundProperties;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь исходящих запросов к Bot API с ограничением частоты.
+ * <p>
+ * <b>Правила отправки:</b>
+ * <ol>
+ *   <li>Общий token bucket на бота ({@code telegram.outbound.global-per-second})</li>
+ *   <li>Token bucket на чат ({@code chat-per-second}, {@code chat-burst}); запросы одного чата
+ *       выполняются по одному и в порядке постановки. Загрузки файлов ({@link #submitUpload}) идут своей очередью
+ *       чата: тоже по одному и по порядку, но обычные запросы (правки статуса) их не ждут.
+ *       Блокирующий вызов (потоковая загрузка видео) запускается в порядке обычной очереди, но чат не занимает</li>
+ *   <li>Ответ 429 с {@code retry_after} приостанавливает чат на указанное время, запрос повторяется</li>
+ *   <li>Новое редактирование того же сообщения (chatId, messageId), ещё не отправленное,
+ *       заменяет ожидающее: уходит только последний текст статуса</li>
+ * </ol>
+ * Решения о выдаче принимает один поток-диспетчер, сами запросы выполняются асинхронно,
+ * блокирующие — в виртуальных потоках.
+ */
+@Slf4j
+@Component
+public class TelegramOutboundDispatcher {
+
+    /**
+     * Асинхронный вызов Bot API, например {@code telegramClient.executeAsync(method)}
+     */
+    @FunctionalInterface
+    public interface TelegramCall<T> {
+        CompletableFuture<T> call() throws Exception;
+    }
+
+    /**
+     * Блокирующий вызов, выполняется в виртуальном потоке
+     */
+    @FunctionalInterface
+    public interface BlockingCall<T> {
+        T call() throws Exception;
+    }
+
+    private final TelegramOutboundProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    /** Очереди чатов; порядок обхода — кто дольше не отправлял, тот первый */
+    private final LinkedHashMap<Long, ChatOutbox> outboxes = new LinkedHashMap<>();
+    private final Map<EditKey, Request<?>> pendingEdits = new HashMap<>();
+    private final TokenBucket global;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter coalesced;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    public TelegramOutboundDispatcher(TelegramOutboundProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.global = new TokenBucket(properties.getGlobalPerSecond(), Math.max(1, (int) properties.getGlobalPerSecond()));
+        this.sent = Counter.builder("bot.telegram.outbound").tag("result", "sent").register(meterRegistry);
+        this.retried = Counter.builder("bot.telegram.outbound").tag("result", "retried").register(meterRegistry);
+        this.failed = Counter.builder("bot.telegram.outbound").tag("result", "failed").register(meterRegistry);
+        this.coalesced = Counter.builder("bot.telegram.outbound").tag("result", "coalesced").register(meterRegistry);
+        Gauge.builder("bot.telegram.outbound.queued", queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = Thread.ofVirtual().name("telegram-outbound").start(this::dispatchLoop);
+    }
+
+    /**
+     * Ставит запрос в очередь чата.
+     */
+    public <T> CompletableFuture<T> submit(long chatId, TelegramCall<T> call) {
+        return enqueue(chatId, null, call, Mode.REGULAR);
+    }
+
+    /**
+     * Ставит в очередь загрузок чата запрос с файлом ({@code sendVideo}, {@code sendMediaGroup}).
+     * Загрузки чата уходят по одному в порядке постановки, а обычные запросы чата выполняются, пока загрузка идёт.
+     * После 429 загрузка повторяется.
+     */
+    public <T> CompletableFuture<T> submitUpload(long chatId, TelegramCall<T> call) {
+        return enqueue(chatId, null, call, Mode.UPLOAD);
+    }
+
+    /**
+     * Ставит в очередь чата блокирующий вызов. После 429 он не повторяется:
+     * например, тело потоковой загрузки нельзя прочитать второй раз.
+     * Следующие запросы чата уходят, не дожидаясь его завершения.
+     */
+    public <T> CompletableFuture<T> submitBlocking(long chatId, BlockingCall<T> call) {
+        return enqueue(chatId, null, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor), Mode.BLOCKING);
+    }
+
+    /**
+     * Ставит в очередь редактирование сообщения. Если предыдущее редактирование этого сообщения
+     * ещё не отправлено, оно заменяется новым, и оба вызывающих получают результат нового.
+     */
+    public <T> CompletableFuture<T> submitEdit(long chatId, int messageId, TelegramCall<T> call) {
+        return enqueue(chatId, new EditKey(chatId, messageId), call, Mode.REGULAR);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> enqueue(long chatId, EditKey editKey, TelegramCall<T> call, Mode mode) {
+        lock.lock();
+        try {
+            if (editKey != null) {
+                Request<T> pending = (Request<T>) pendingEdits.get(editKey);
+                if (pending != null) {
+                    pending.call = call;
+                    coalesced.increment();
+                    return pending.future;
+                }
+            }
+            Request<T> request = new Request<>(editKey, call, mode);
+            if (editKey != null) {
+                pendingEdits.put(editKey, request);
+            }
+            outboxes.computeIfAbsent(chatId, id -> new ChatOutbox(id, new TokenBucket(properties.getChatPerSecond(), properties.getChatBurst())))
+                    .lane(request).addLast(request);
+            queued.incrementAndGet();
+            changed.signal();
+            return request.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        lock.lock();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                List<ChatOutbox> dispatched = new ArrayList<>();
+                List<Runnable> requests = new ArrayList<>();
+                Iterator<ChatOutbox> iterator = outboxes.values().iterator();
+                while (iterator.hasNext()) {
+                    ChatOutbox outbox = iterator.next();
+                    ArrayDeque<Request<?>> lane = outbox.readyLane();
+                    if (lane == null) {
+                        if (outbox.isEmpty() && !outbox.busy && !outbox.uploading && outbox.isIdle(now)) {
+                            iterator.remove();
+                        }
+                        continue;
+                    }
+                    long chatWait = Math.max(outbox.blockedUntil - now, outbox.bucket.nanosUntilToken(now));
+                    if (chatWait > 0) {
+                        wait = Math.min(wait, chatWait);
+                        continue;
+                    }
+                    long globalWait = global.nanosUntilToken(now);
+                    if (globalWait > 0) {
+                        wait = Math.min(wait, globalWait);
+                        break;
+                    }
+                    Request<?> request = lane.pollFirst();
+                    if (request.editKey != null) {
+                        pendingEdits.remove(request.editKey);
+                    }
+                    queued.decrementAndGet();
+                    outbox.bucket.take();
+                    global.take();
+                    outbox.occupy(request, true);
+                    dispatched.add(outbox);
+                    requests.add(() -> send(outbox, request));
+                }
+                // Отправившие чаты в конец обхода, чтобы общий лимит делился по очереди
+                for (ChatOutbox outbox : dispatched) {
+                    outboxes.remove(outbox.chatId);
+                    outboxes.put(outbox.chatId, outbox);
+                }
+                if (!requests.isEmpty()) {
+                    // Запросы запускаются без блокировки: их ответы могут сразу ставить новые запросы
+                    lock.unlock();
+                    try {
+                        requests.forEach(Runnable::run);
+                    } finally {
+                        lock.lock();
+                    }
+                    continue;
+                }
+                if (wait == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(wait);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Запускает запрос, ответ обрабатывается асинхронно.
+     */
+    private <T> void send(ChatOutbox outbox, Request<T> request) {
+        CompletableFuture<T> response;
+        try {
+            response = request.call.call();
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        if (request.mode == Mode.BLOCKING) {
+            // Долгий вызов уже запущен в своём потоке, чат свободен для следующих запросов
+            release(outbox, request);
+        }
+        response.whenComplete((result, error) -> {
+            try {
+                if (error == null) {
+                    sent.increment();
+                    request.future.complete(result);
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+                Integer retryAfter = cause instanceof TelegramApiRequestException requestException
+                        && requestException.getParameters() != null
+                        ? requestException.getParameters().getRetryAfter()
+                        : null;
+                if (retryAfter == null || request.mode == Mode.BLOCKING || !retry(outbox, request, retryAfter)) {
+                    fail(request, cause);
+                }
+            } finally {
+                if (request.mode != Mode.BLOCKING) {
+                    release(outbox, request);
+                }
+            }
+        });
+    }
+
+    private void release(ChatOutbox outbox, Request<?> request) {
+        lock.lock();
+        try {
+            outbox.occupy(request, false);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Приостанавливает чат на {@code retry_after} и возвращает запрос в начало его очереди.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> boolean retry(ChatOutbox outbox, Request<T> request, int retryAfterSeconds) {
+        lock.lock();
+        try {
+            outbox.blockedUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+            log.warn("Telegram ограничил частоту запросов в чат {}, пауза {} с", outbox.chatId, retryAfterSeconds);
+            if (++request.attempts > properties.getMaxRetries()) {
+                return false;
+            }
+            retried.increment();
+            if (request.editKey != null) {
+                Request<T> newer = (Request<T>) pendingEdits.get(request.editKey);
+                if (newer != null) {
+                    // Уже есть более свежий текст — повторять устаревший незачем
+                    newer.future.whenComplete((result, error) -> {
+                        if (error != null) {
+                            request.future.completeExceptionally(error);
+                        } else {
+                            request.future.complete(result);
+                        }
+                    });
+                    return true;
+                }
+                pendingEdits.put(request.editKey, request);
+            }
+            outbox.lane(request).addFirst(request);
+            queued.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(Request<?> request, Throwable e) {
+        failed.increment();
+        request.future.completeExceptionally(e);
+    }
+
+    /**
+     * @return количество запросов в очередях
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Завершение работы TelegramOutboundDispatcher");
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        executor.shutdown();
+    }
+
+    private record EditKey(long chatId, int messageId) {
+    }
+
+    /**
+     * Как запрос занимает чат
+     */
+    private enum Mode {
+        /** Обычная очередь; чат занят до ответа, после 429 запрос повторяется */
+        REGULAR,
+        /** Очередь загрузок; занята до ответа только она, после 429 запрос повторяется */
+        UPLOAD,
+        /** Обычная очередь; чат освобождается сразу после запуска, после 429 запрос не повторяется */
+        BLOCKING
+    }
+
+    private static final class Request<T> {
+        private final EditKey editKey;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Mode mode;
+        /** Заменяется более новым редактированием, пока запрос ждёт в очереди */
+        private TelegramCall<T> call;
+        private int attempts;
+
+        private Request(EditKey editKey, TelegramCall<T> call, Mode mode) {
+            this.editKey = editKey;
+            this.call = call;
+            this.mode = mode;
+        }
+    }
+
+    private static final class ChatOutbox {
+        private final long chatId;
+        private final ArrayDeque<Request<?>> queue = new ArrayDeque<>();
+        private final ArrayDeque<Request<?>> uploads = new ArrayDeque<>();
+        private final TokenBucket bucket;
+        private boolean busy;
+        private boolean uploading;
+        private long blockedUntil = System.nanoTime();
+
+        private ChatOutbox(long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+
+        private ArrayDeque<Request<?>> lane(Request<?> request) {
+            return request.mode == Mode.UPLOAD ? uploads : queue;
+        }
+
+        /**
+         * Очередь, из которой можно запустить запрос: сначала обычная, затем загрузки; null, если обе заняты или пусты
+         */
+        private ArrayDeque<Request<?>> readyLane() {
+            if (!busy && !queue.isEmpty()) {
+                return queue;
+            }
+            if (!uploading && !uploads.isEmpty()) {
+                return uploads;
+            }
+            return null;
+        }
+
+        private void occupy(Request<?> request, boolean occupied) {
+            if (request.mode == Mode.UPLOAD) {
+                uploading = occupied;
+            } else {
+                busy = occupied;
+            }
+        }
+
+        private boolean isEmpty() {
+            return queue.isEmpty() && uploads.isEmpty();
+        }
+
+        /**
+         * Пустую очередь можно удалить, когда bucket снова полон: новая очередь начнёт с того же состояния
+         */
+        private boolean isIdle(long now) {
+            return now - blockedUntil >= 0 && bucket.isFull(now);
+        }
+    }
+
+    /**
+     * Token bucket: {@code capacity} запросов подряд, затем {@code perSecond} в секунду.
+     */
+    static final class TokenBucket {
+        private final double perNano;
+        private final int capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(double perSecond, int capacity) {
+            this.perNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        long nanosUntilToken(long now) {
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / perNano);
+        }
+
+        void take() {
+            tokens -= 1;
+        }
+
+        boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * perNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.bot.spring.service.ytdlp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.bot.spring.dto.FormatCatalog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Потоковый парсер вывода {@code yt-dlp -J}.
+ * <p>
+ * JSON от yt-dlp занимает сотни килобайт (http_headers, fragments, subtitles у каждого формата),
+ * поэтому дерево документа не строится: парсер идёт по токенам и забирает только нужные поля
+ * в {@link FormatCatalog}, всё остальное пропускается через {@link JsonParser#skipChildren()}.
+ */
+public final class FormatCatalogParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private FormatCatalogParser() {
+    }
+
+    /**
+     * Читает каталог прямо из stdout процесса yt-dlp.
+     */
+    public static FormatCatalog parse(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return readCatalog(parser);
+        }
+    }
+
+    /**
+     * Читает каталог из строки (ответ воркера yt-dlp).
+     */
+    public static FormatCatalog parse(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return readCatalog(parser);
+        }
+    }
+
+    private static FormatCatalog readCatalog(JsonParser parser) throws IOException {
+        FormatCatalog catalog = new FormatCatalog();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return catalog;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> catalog.setId(parser.getValueAsString());
+                case "extractor" -> catalog.setExtractor(parser.getValueAsString());
+                case "title" -> catalog.setTitle(parser.getValueAsString());
+                case "duration" -> catalog.setDurationSeconds((int) Math.round(parser.getValueAsDouble()));
+                case "thumbnail" -> addThumbnail(catalog.getThumbnails(), parser.getValueAsString());
+                case "thumbnails" -> readThumbnails(parser, catalog.getThumbnails());
+                case "formats" -> readFormats(parser, catalog.getFormats());
+                default -> parser.skipChildren();
+            }
+        }
+        return catalog;
+    }
+
+    private static void readFormats(JsonParser parser, List<FormatCatalog.Format> formats) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            FormatCatalog.Format format = new FormatCatalog.Format();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "format_id" -> format.setId(parser.getValueAsString());
+                    case "ext" -> format.setExt(parser.getValueAsString());
+                    case "vcodec" -> format.setVcodec(parser.getValueAsString());
+                    case "acodec" -> format.setAcodec(parser.getValueAsString());
+                    case "filesize" -> format.setFileSize(parser.getValueAsLong());
+                    case "filesize_approx" -> format.setFileSizeApprox(parser.getValueAsLong());
+                    case "width" -> format.setWidth(parser.getValueAsInt());
+                    case "height" -> format.setHeight(parser.getValueAsInt());
+                    case "fps" -> format.setFps((int) Math.round(parser.getValueAsDouble()));
+                    case "tbr" -> format.setTbr((int) Math.round(parser.getValueAsDouble()));
+                    default -> parser.skipChildren();
+                }
+            }
+            formats.add(format);
+        }
+    }
+
+    private static void readThumbnails(JsonParser parser, List<String> thumbnails) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("url".equals(field)) {
+                    addThumbnail(thumbnails, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void addThumbnail(List<String> thumbnails, String url) {
+        if (url != null && !thumbnails.contains(url)) {
+            thumbnails.add(url);
+        }
+    }
+}
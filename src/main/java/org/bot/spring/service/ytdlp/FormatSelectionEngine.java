@@ -0,0 +1,127 @@
+package org.bot.spring.service.ytdlp;
+
+import org.bot.spring.configuration.properties.FormatSelectionProperties.Objective;
+import org.bot.spring.configuration.properties.FormatSelectionProperties.Strategy;
+import org.bot.spring.dto.FormatCatalog;
+import org.bot.spring.dto.FormatSelection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Выбор формата по каталогу {@code yt-dlp -J} под бюджет размера.
+ * <p>
+ * Кандидаты — готовые форматы (видео со звуком) и, если стратегия разрешает, пары
+ * видеодорожка + совместимая аудиодорожка. Размер берётся из {@code filesize}/{@code filesize_approx},
+ * а если их нет — оценивается как битрейт × длительность. Кандидаты с неизвестным размером
+ * не рассматриваются: уложатся ли они в лимит, узнать нельзя.
+ * <p>
+ * Из кандидатов, которые помещаются в бюджет, выбирается лучший по {@link Objective}.
+ * Если не помещается ни один, возвращается самый маленький — вызывающий сам сообщит о превышении лимита.
+ */
+public final class FormatSelectionEngine {
+
+    private static final Set<String> MP4_AUDIO = Set.of("m4a", "mp4");
+
+    private static final Comparator<FormatSelection> BY_QUALITY = Comparator
+            .comparingInt(FormatSelection::shortSide)
+            .thenComparingInt(FormatSelection::totalTbr)
+            // При равном качестве готовый формат лучше: не нужна склейка
+            .thenComparing(FormatSelection::isMerged, Comparator.reverseOrder())
+            .thenComparing(FormatSelection::estimatedBytes, Comparator.reverseOrder());
+
+    private static final Comparator<FormatSelection> BY_SIZE =
+            Comparator.comparingLong(FormatSelection::estimatedBytes);
+
+    private FormatSelectionEngine() {
+    }
+
+    /**
+     * @param budgetBytes максимальный размер итогового файла
+     * @return выбранный формат или null, если подходящих форматов с известным размером нет
+     */
+    public static FormatSelection select(FormatCatalog catalog, long budgetBytes, Strategy strategy) {
+        List<FormatSelection> candidates = candidates(catalog, strategy);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        List<FormatSelection> fitting = candidates.stream()
+                .filter(it -> it.estimatedBytes() <= budgetBytes)
+                .toList();
+        if (fitting.isEmpty()) {
+            return candidates.stream().min(BY_SIZE).orElseThrow();
+        }
+        return strategy.getObjective() == Objective.SMALLEST
+                ? fitting.stream().min(BY_SIZE).orElseThrow()
+                : fitting.stream().max(BY_QUALITY).orElseThrow();
+    }
+
+    /**
+     * Все варианты, подходящие под ограничения стратегии, с оценкой размера
+     */
+    private static List<FormatSelection> candidates(FormatCatalog catalog, Strategy strategy) {
+        int duration = catalog.getDurationSeconds();
+        List<FormatCatalog.Format> audios = catalog.getFormats().stream()
+                .filter(it -> it.hasAudio() && !it.hasVideo())
+                .filter(it -> estimateBytes(it, duration) > 0)
+                .toList();
+
+        List<FormatSelection> candidates = new ArrayList<>();
+        for (FormatCatalog.Format video : catalog.getFormats()) {
+            if (!video.hasVideo() || !fitsResolution(video, strategy.getMaxHeight()) || !fitsContainer(video, strategy)) {
+                continue;
+            }
+            long videoBytes = estimateBytes(video, duration);
+            if (videoBytes <= 0) {
+                continue;
+            }
+            if (video.hasAudio()) {
+                candidates.add(new FormatSelection(video, null, videoBytes));
+            } else if (strategy.isSeparateStreams()) {
+                for (FormatCatalog.Format audio : audios) {
+                    if (compatible(video, audio)) {
+                        candidates.add(new FormatSelection(video, audio, videoBytes + estimateBytes(audio, duration)));
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return размер в байтах: известный, иначе битрейт × длительность, иначе 0
+     */
+    private static long estimateBytes(FormatCatalog.Format format, int durationSeconds) {
+        if (format.knownSize() > 0) {
+            return format.knownSize();
+        }
+        if (format.getTbr() > 0 && durationSeconds > 0) {
+            return format.getTbr() * 1000L / 8 * durationSeconds;
+        }
+        return 0;
+    }
+
+    private static boolean fitsResolution(FormatCatalog.Format video, int maxHeight) {
+        return video.getWidth() > 0 && video.getHeight() > 0
+                && Math.min(video.getWidth(), video.getHeight()) <= maxHeight;
+    }
+
+    private static boolean fitsContainer(FormatCatalog.Format video, Strategy strategy) {
+        return strategy.getContainer() == null || strategy.getContainer().equalsIgnoreCase(video.getExt());
+    }
+
+    /**
+     * Дорожки, которые ffmpeg склеит в контейнер видео без перекодирования
+     */
+    private static boolean compatible(FormatCatalog.Format video, FormatCatalog.Format audio) {
+        if ("mp4".equalsIgnoreCase(video.getExt())) {
+            return audio.getExt() != null && MP4_AUDIO.contains(audio.getExt().toLowerCase());
+        }
+        if ("webm".equalsIgnoreCase(video.getExt())) {
+            return "webm".equalsIgnoreCase(audio.getExt());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package org.bot.spring.service.ytdlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Переводит политику выбора формата (лимит размера, контейнер, высота) в выражения
+ * {@code -f}/{@code -S} yt-dlp, чтобы выбор формата и загрузка шли одним запуском.
+ * <p>
+ * Выражение перечисляет альтернативы от лучшей к худшей: сначала точный размер
+ * ({@code filesize}), затем оценочный ({@code filesize_approx}), затем без контейнера.
+ * Последняя альтернатива — самый маленький формат без фильтра по размеру: его размер
+ * печатается перед загрузкой, и {@link org.bot.spring.service.YtDlpService} сам прерывает
+ * загрузку, если лимит превышен.
+ */
+public final class FormatSelectorBuilder {
+
+    private static final String STREAMING_FILTER = "[protocol^=http][protocol!*=dash]";
+
+    private FormatSelectorBuilder() {
+    }
+
+    /**
+     * @param maxBytes  максимальный размер файла в байтах
+     * @param container предпочтительный контейнер (например, "mp4")
+     * @param maxHeight максимальная высота кадра
+     * @return выражение для {@code -f}
+     */
+    public static String selector(long maxBytes, String container, int maxHeight) {
+        return alternatives(maxBytes, container, maxHeight, "");
+    }
+
+    /**
+     * То же, что {@link #selector}, но только форматы, которые скачиваются одним HTTP-запросом
+     * и могут быть записаны в stdout без склейки фрагментов и перепаковки.
+     * Протокол {@code http_dash_segments} тоже начинается с {@code http}, но это фрагменты — он исключён отдельно.
+     */
+    public static String streamingSelector(long maxBytes, String container, int maxHeight) {
+        return alternatives(maxBytes, container, maxHeight, STREAMING_FILTER);
+    }
+
+    private static String alternatives(long maxBytes, String container, int maxHeight, String filter) {
+        String height = "[height<=" + maxHeight + "]";
+        String ext = "[ext=" + container + "]";
+        List<String> alternatives = new ArrayList<>();
+        alternatives.add("b" + ext + height + filter + "[filesize<" + maxBytes + "]");
+        alternatives.add("b" + ext + height + filter + "[filesize_approx<" + maxBytes + "]");
+        alternatives.add("b" + height + filter + "[filesize<" + maxBytes + "]");
+        alternatives.add("b" + height + filter + "[filesize_approx<" + maxBytes + "]");
+        alternatives.add("w" + ext + filter);
+        alternatives.add("w" + filter);
+        return String.join("/", alternatives);
+    }
+
+    /**
+     * @return выражение для {@code -S}: ближайшее снизу разрешение, затем предпочтительный контейнер
+     */
+    public static String sort(String container, int maxHeight) {
+        return "res:" + maxHeight + ",ext:" + container;
+    }
+}
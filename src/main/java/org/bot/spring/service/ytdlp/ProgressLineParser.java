@@ -0,0 +1,69 @@
+package org.bot.spring.service.ytdlp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.bot.spring.dto.DownloadProgress;
+
+import java.io.IOException;
+
+/**
+ * Разбор строк прогресса, которые yt-dlp печатает по шаблону {@link #TEMPLATE}.
+ * <p>
+ * С {@code --newline} каждое обновление прогресса — отдельная строка вида
+ * {@code [progress]{"downloaded":1048576,"total":10485760,"speed":524288.5,"eta":18}},
+ * неизвестные значения печатаются как {@code null}.
+ */
+public final class ProgressLineParser {
+
+    public static final String MARKER = "[progress]";
+    public static final String TEMPLATE = MARKER
+            + "{\"downloaded\":%(progress.downloaded_bytes|null)s"
+            + ",\"total\":%(progress.total_bytes,progress.total_bytes_estimate|null)s"
+            + ",\"speed\":%(progress.speed|null)s"
+            + ",\"eta\":%(progress.eta|null)s}";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private ProgressLineParser() {
+    }
+
+    public static boolean isProgressLine(String line) {
+        return line.startsWith(MARKER);
+    }
+
+    /**
+     * @return прогресс или null, если строка не разобрана
+     */
+    public static DownloadProgress parse(String line) {
+        if (!isProgressLine(line)) {
+            return null;
+        }
+        long downloaded = 0;
+        Long total = null;
+        Double speed = null;
+        Long eta = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(line.substring(MARKER.length()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "downloaded" -> downloaded = parser.getValueAsLong();
+                    case "total" -> total = parser.getValueAsLong();
+                    case "speed" -> speed = parser.getValueAsDouble();
+                    case "eta" -> eta = parser.getValueAsLong();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new DownloadProgress(downloaded, total, speed, eta);
+    }
+}
@@ -0,0 +1,114 @@
+package org.bot.spring.service.ytdlp;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Список экстракторов yt-dlp ({@code yt-dlp --list-extractors}), прочитанный один раз при старте.
+ * <p>
+ * yt-dlp печатает имена экстракторов, а не домены ({@code TikTok}, {@code vimeo:channel}),
+ * поэтому сайт считается поддерживаемым, если одна из меток его хоста, кроме домена верхнего уровня,
+ * совпадает с именем экстрактора без суффикса после {@code :}: {@code www.tiktok.com} → {@code tiktok}.
+ * Экстрактор {@code generic} не учитывается — он «поддерживает» любую страницу.
+ * <p>
+ * Список загружается в фоне; пока он не готов, {@link #supports(String)} возвращает false.
+ */
+@Slf4j
+@Component
+public class YtDlpExtractors {
+
+    private static final String GENERIC = "generic";
+
+    private volatile Set<String> names = Set.of();
+
+    @PostConstruct
+    public void init() {
+        Thread.ofVirtual().name("yt-dlp-extractors").start(this::load);
+    }
+
+    private void load() {
+        try {
+            Process process = new ProcessBuilder("yt-dlp", "--list-extractors")
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                names = parse(reader);
+            }
+            process.waitFor();
+            log.info("Загружено {} экстракторов yt-dlp", names.size());
+        } catch (IOException e) {
+            log.warn("Не удалось получить список экстракторов yt-dlp: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Разбирает вывод {@code yt-dlp --list-extractors}: одно имя на строку,
+     * неработающие экстракторы помечены {@code (CURRENTLY BROKEN)}.
+     */
+    public static Set<String> parse(BufferedReader reader) throws IOException {
+        Set<String> result = new HashSet<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.contains("(CURRENTLY BROKEN)")) {
+                continue;
+            }
+            String name = normalize(line);
+            if (!name.isEmpty() && !GENERIC.equals(name)) {
+                result.add(name);
+            }
+        }
+        return Set.copyOf(result);
+    }
+
+    /**
+     * Заменяет список экстракторов (для тестов и бенчмарков)
+     */
+    public void setNames(Set<String> names) {
+        this.names = Set.copyOf(names);
+    }
+
+    /**
+     * @param host хост ссылки в нижнем регистре
+     * @return true, если для сайта есть экстрактор yt-dlp
+     */
+    public boolean supports(String host) {
+        Set<String> current = names;
+        if (host == null || current.isEmpty()) {
+            return false;
+        }
+        int start = 0;
+        int end;
+        // Последняя метка — домен верхнего уровня, она не проверяется
+        while ((end = host.indexOf('.', start)) >= 0) {
+            if (end > start && current.contains(host.substring(start, end))) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static String normalize(String line) {
+        int colon = line.indexOf(':');
+        String name = (colon >= 0 ? line.substring(0, colon) : line).trim().toLowerCase(Locale.ROOT);
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
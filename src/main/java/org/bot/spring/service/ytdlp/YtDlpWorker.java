@@ -0,0 +1,188 @@
+package org.bot.spring.service.ytdlp;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.exceptions.YtDlpWorkerException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Один долгоживущий процесс python с загруженным yt-dlp.
+ * <p>
+ * Общается с драйвером {@code yt-dlp/worker.py} построчным JSON через stdin/stdout.
+ * Экземпляр не потокобезопасен: в каждый момент времени им владеет только один запрос,
+ * это обеспечивает {@link YtDlpWorkerPool}.
+ *
+ * @see YtDlpWorkerPool
+ */
+@Slf4j
+class YtDlpWorker implements AutoCloseable {
+
+    private final Process process;
+    private final BufferedWriter stdin;
+    private final BufferedReader stdout;
+    private final ScheduledExecutorService watchdog;
+    private final String name;
+    private long requestSeq;
+    private int jobs;
+
+    private YtDlpWorker(Process process, ScheduledExecutorService watchdog) {
+        this.process = process;
+        this.watchdog = watchdog;
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.name = "yt-dlp-worker-" + process.pid();
+    }
+
+    /**
+     * Запускает процесс воркера и ждёт от драйвера сообщение о готовности.
+     */
+    static YtDlpWorker start(String pythonExecutable, String script, Duration startupTimeout,
+                             ScheduledExecutorService watchdog) throws IOException {
+        Process process = new ProcessBuilder(pythonExecutable, "-u", "-c", script)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        YtDlpWorker worker = new YtDlpWorker(process, watchdog);
+
+        ScheduledFuture<?> kill = watchdog.schedule(worker::close, startupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            String line = worker.stdout.readLine();
+            JSONObject ready = line != null ? JSON.parseObject(line) : null;
+            if (ready == null || !ready.getBooleanValue("ready")) {
+                worker.close();
+                throw new IOException("Воркер yt-dlp не запустился, ответ: " + line);
+            }
+            log.info("{}: запущен, версия yt-dlp {}", worker.name, ready.getString("version"));
+            return worker;
+        } finally {
+            kill.cancel(false);
+        }
+    }
+
+    /**
+     * Выполняет yt-dlp с аргументами командной строки внутри воркера.
+     * <p>
+     * Если {@code lineConsumer} бросает исключение или запрос превышает таймаут,
+     * процесс воркера уничтожается — переиспользовать его после этого нельзя.
+     * Сбой воркера повторяемый, только если до него не было отдано ни одной строки и таймаут не истёк:
+     * иначе повтор отдал бы получателю те же строки второй раз.
+     *
+     * @param args         аргументы yt-dlp (без имени программы)
+     * @param lineConsumer получатель строк вывода yt-dlp
+     * @param timeout      максимальная длительность запроса
+     * @return код выхода yt-dlp
+     */
+    int execute(List<String> args, Consumer<String> lineConsumer, Duration timeout) {
+        jobs++;
+        long id = ++requestSeq;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        boolean delivered = false;
+        ScheduledFuture<?> kill = watchdog.schedule(() -> {
+            timedOut.set(true);
+            close();
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            send(Map.of("id", id, "args", args));
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                Response response = JSON.parseObject(line, Response.class);
+                if (response.id() != id) {
+                    continue;
+                }
+                if (response.line() != null) {
+                    delivered = true;
+                    lineConsumer.accept(response.line());
+                } else if (response.exit() != null) {
+                    return response.exit();
+                }
+            }
+            if (timedOut.get()) {
+                throw new YtDlpWorkerException(name + ": запрос не уложился в " + timeout, false);
+            }
+            throw new YtDlpWorkerException(name + ": процесс завершился во время выполнения запроса", !delivered);
+        } catch (IOException e) {
+            close();
+            throw new YtDlpWorkerException(name + ": ошибка обмена с воркером", e, !delivered && !timedOut.get());
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        } finally {
+            kill.cancel(false);
+        }
+    }
+
+    /**
+     * Health check: воркер жив и отвечает на запросы.
+     */
+    boolean ping(Duration timeout) {
+        if (!isAlive()) {
+            return false;
+        }
+        long id = ++requestSeq;
+        ScheduledFuture<?> kill = watchdog.schedule(this::close, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            send(Map.of("id", id, "ping", true));
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                Response response = JSON.parseObject(line, Response.class);
+                if (response.id() == id) {
+                    return response.pong();
+                }
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            log.warn("{}: health check не пройден: {}", name, e.getMessage());
+            close();
+            return false;
+        } finally {
+            kill.cancel(false);
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    int getJobs() {
+        return jobs;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    private void send(Map<String, Object> request) throws IOException {
+        stdin.write(JSON.toJSONString(request));
+        stdin.newLine();
+        stdin.flush();
+    }
+
+    @Override
+    public void close() {
+        if (process.isAlive()) {
+            log.info("{}: остановка воркера", name);
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Сообщение драйвера по запросу {@code id}: строка вывода, код выхода или ответ на ping.
+     * Разбирается сразу в поля, без промежуточного {@link JSONObject}.
+     */
+    record Response(long id, String line, Integer exit, boolean pong) {
+    }
+}
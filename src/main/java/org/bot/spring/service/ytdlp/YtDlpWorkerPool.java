@@ -0,0 +1,165 @@
+package org.bot.spring.service.ytdlp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.exceptions.YtDlpWorkerException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Пул долгоживущих процессов yt-dlp.
+ * <p>
+ * Каждый запуск {@code yt-dlp} из командной строки заново поднимает интерпретатор python
+ * и импортирует все экстракторы (около секунды). Пул держит несколько заранее запущенных
+ * воркеров ({@link YtDlpWorker}) и выполняет в них запросы с теми же аргументами командной строки.
+ * <p>
+ * <b>Жизненный цикл:</b>
+ * <ol>
+ *   <li>При старте воркеры запускаются в фоне, старт приложения не блокируется</li>
+ *   <li>Воркер перезапускается после {@code maxJobsPerWorker} запросов, падения или таймаута</li>
+ *   <li>Свободные воркеры периодически проверяются ping-запросом</li>
+ * </ol>
+ * Если пул выключен, не запустился или занят дольше {@code acquireTimeout}, бросается
+ * {@link YtDlpWorkerException} и {@link org.bot.spring.service.YtDlpService} запускает отдельный процесс.
+ * Если воркер упал или превысил таймаут, уже отдав часть вывода, запрос не повторяется.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class YtDlpWorkerPool {
+
+    private static final String DRIVER_SCRIPT = "yt-dlp/worker.py";
+
+    private final YtDlpWorkerProperties properties;
+
+    private final BlockingQueue<YtDlpWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+    private final ScheduledExecutorService watchdog =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("yt-dlp-worker-watchdog").factory());
+    private volatile String driverScript;
+    private volatile boolean available;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            log.info("Пул воркеров yt-dlp выключен");
+            return;
+        }
+        try {
+            driverScript = new ClassPathResource(DRIVER_SCRIPT).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("Не удалось прочитать драйвер воркера {}", DRIVER_SCRIPT, e);
+            return;
+        }
+        Thread.ofVirtual().name("yt-dlp-worker-init").start(this::fillPool);
+    }
+
+    /**
+     * @return true, если в пуле есть хотя бы один запущенный воркер
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Выполняет yt-dlp в свободном воркере.
+     *
+     * @param args         аргументы yt-dlp (без имени программы)
+     * @param lineConsumer получатель строк вывода
+     * @return код выхода yt-dlp
+     * @throws YtDlpWorkerException если свободного воркера нет или он упал во время запроса;
+     *                              {@link YtDlpWorkerException#isRetryable()} говорит, можно ли повторить запрос
+     */
+    public int execute(List<String> args, Consumer<String> lineConsumer) throws InterruptedException {
+        YtDlpWorker worker = idleWorkers.poll(properties.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        if (worker == null) {
+            throw new YtDlpWorkerException("Нет свободного воркера yt-dlp", true);
+        }
+        try {
+            return worker.execute(args, lineConsumer, properties.getRequestTimeout());
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * Проверяет свободные воркеры и восполняет пул до нужного размера.
+     */
+    @Scheduled(fixedDelayString = "${yt-dlp.worker.health-check-interval-ms:60000}")
+    public void healthCheck() {
+        if (driverScript == null) {
+            return;
+        }
+        List<YtDlpWorker> workers = new ArrayList<>();
+        idleWorkers.drainTo(workers);
+        for (YtDlpWorker worker : workers) {
+            if (worker.ping(properties.getPingTimeout())) {
+                idleWorkers.offer(worker);
+            } else {
+                log.warn("{}: не отвечает, перезапуск", worker.getName());
+                discard(worker);
+            }
+        }
+        fillPool();
+    }
+
+    private void release(YtDlpWorker worker) {
+        if (!worker.isAlive()) {
+            discard(worker);
+            Thread.ofVirtual().start(this::fillPool);
+        } else if (worker.getJobs() >= properties.getMaxJobsPerWorker()) {
+            log.info("{}: выполнено {} запросов, перезапуск", worker.getName(), worker.getJobs());
+            discard(worker);
+            Thread.ofVirtual().start(this::fillPool);
+        } else {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    private void discard(YtDlpWorker worker) {
+        worker.close();
+        if (liveWorkers.decrementAndGet() == 0) {
+            available = false;
+        }
+    }
+
+    private synchronized void fillPool() {
+        while (liveWorkers.get() < properties.getPoolSize()) {
+            try {
+                YtDlpWorker worker = YtDlpWorker.start(properties.getPythonExecutable(), driverScript,
+                        properties.getStartupTimeout(), watchdog);
+                liveWorkers.incrementAndGet();
+                idleWorkers.offer(worker);
+                available = true;
+            } catch (IOException e) {
+                log.warn("Не удалось запустить воркер yt-dlp, используется запуск отдельных процессов: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Завершение работы пула воркеров yt-dlp");
+        List<YtDlpWorker> workers = new ArrayList<>();
+        idleWorkers.drainTo(workers);
+        workers.forEach(YtDlpWorker::close);
+        watchdog.shutdownNow();
+    }
+}
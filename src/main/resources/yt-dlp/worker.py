@@ -0,0 +1,93 @@
+"""
+Долгоживущий воркер yt-dlp.
+
+Интерпретатор и экстракторы импортируются один раз, дальше воркер принимает
+запросы построчно через stdin и отвечает строками JSON в stdout.
+
+  запрос:  {"id": 1, "args": ["-F", "https://..."]}
+           {"id": 2, "ping": true}
+  ответы:  {"id": 1, "line": "..."}    строка вывода yt-dlp (0..n раз)
+           {"id": 1, "exit": 0}        завершение запроса с кодом выхода
+           {"id": 2, "pong": true}     ответ на health check
+"""
+import contextlib
+import io
+import json
+import sys
+import traceback
+
+import yt_dlp
+from yt_dlp.version import __version__ as YT_DLP_VERSION
+
+PROTOCOL = sys.stdout
+
+
+def send(message):
+    PROTOCOL.write(json.dumps(message, ensure_ascii=False) + "\n")
+    PROTOCOL.flush()
+
+
+class LineWriter(io.TextIOBase):
+    """Режет вывод yt-dlp на строки и отправляет каждую отдельным сообщением."""
+
+    def __init__(self, request_id):
+        self.request_id = request_id
+        self.pending = ""
+
+    def writable(self):
+        return True
+
+    def isatty(self):
+        return False
+
+    def write(self, text):
+        self.pending += text.replace("\r", "\n")
+        *lines, self.pending = self.pending.split("\n")
+        for line in lines:
+            if line:
+                send({"id": self.request_id, "line": line})
+        return len(text)
+
+    def flush(self):
+        pass
+
+    def finish(self):
+        if self.pending:
+            send({"id": self.request_id, "line": self.pending})
+            self.pending = ""
+
+
+def run(request_id, args):
+    writer = LineWriter(request_id)
+    code = 0
+    with contextlib.redirect_stdout(writer), contextlib.redirect_stderr(writer):
+        try:
+            # Публичная точка входа: завершается через sys.exit с кодом выхода, как командная строка
+            yt_dlp.main(args)
+        except SystemExit as e:
+            code = e.code if isinstance(e.code, int) else (0 if e.code is None else 1)
+        except yt_dlp.utils.DownloadError:
+            code = 1
+        except Exception:
+            traceback.print_exc()
+            code = 1
+    writer.finish()
+    send({"id": request_id, "exit": code})
+
+
+def main():
+    send({"ready": True, "version": YT_DLP_VERSION})
+    for raw in sys.stdin:
+        raw = raw.strip()
+        if not raw:
+            continue
+        request = json.loads(raw)
+        request_id = request.get("id")
+        if request.get("ping"):
+            send({"id": request_id, "pong": True})
+            continue
+        run(request_id, request.get("args", []))
+
+
+if __name__ == "__main__":
+    main()
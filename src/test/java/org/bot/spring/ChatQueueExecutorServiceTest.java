@@ -0,0 +1,111 @@
+package org.bot.spring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.ChatQueueProperties;
+import org.bot.spring.service.ChatQueueExecutorService;
+import org.bot.spring.service.ChatQueueExecutorService.Submission;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatQueueExecutorServiceTest {
+
+    private ChatQueueProperties properties;
+    private ChatQueueExecutorService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChatQueueProperties();
+        properties.setMaxDepth(3);
+        service = new ChatQueueExecutorService(properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void submitTask_shouldRunTasksOfOneChatInOrder() throws Exception {
+        properties.setMaxDepth(1000);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(500);
+
+        for (int i = 0; i < 500; i++) {
+            int number = i;
+            service.submitTask(42L, () -> {
+                executed.add(number);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, executed.get(i));
+        }
+        awaitNoChats();
+    }
+
+    @Test
+    void submitTask_shouldRejectOverMaxDepth_andReportOverflowOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        service.submitTask(1L, () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Submission.ACCEPTED, service.submitTask(1L, () -> { }));
+        }
+        assertEquals(Submission.OVERFLOW, service.submitTask(1L, () -> { }));
+        assertEquals(Submission.REJECTED, service.submitTask(1L, () -> { }));
+        assertEquals(Submission.ACCEPTED, service.submitTask(2L, () -> { }), "Другие чаты не затронуты");
+
+        release.countDown();
+        awaitNoChats();
+        assertEquals(Submission.ACCEPTED, service.submitTask(1L, () -> { }));
+    }
+
+    /**
+     * Ящик чата удаляется, как только его очередь разобрана. Нагрузочная проверка
+     * на миллионе чатов с замером памяти — {@code ChatQueueSoakBenchmark} в src/jmh.
+     */
+    @Test
+    void submitTask_shouldRemoveMailboxes_afterDraining() throws Exception {
+        CountDownLatch done = new CountDownLatch(10_000);
+        for (long chatId = 0; chatId < 10_000; chatId++) {
+            service.submitTask(chatId, done::countDown);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        awaitNoChats();
+        assertEquals(0, service.getPendingTasks());
+    }
+
+    private void awaitNoChats() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.getChatCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getChatCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
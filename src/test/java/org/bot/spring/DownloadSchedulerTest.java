@@ -0,0 +1,146 @@
+package org.bot.spring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.DownloadSchedulerProperties;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.exceptions.DownloadRejectedException;
+import org.bot.spring.service.download.DownloadScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadSchedulerTest {
+
+    private static DownloadScheduler scheduler(int maxConcurrent, int instagramLimit, int maxWaiting, Duration waitTimeout) {
+        DownloadSchedulerProperties properties = new DownloadSchedulerProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setPerPlatform(Map.of(Platform.INSTAGRAM, instagramLimit));
+        properties.setMaxWaiting(maxWaiting);
+        properties.setWaitTimeout(waitTimeout);
+        return new DownloadScheduler(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void execute_shouldNotExceedGlobalAndPlatformLimits() throws Exception {
+        DownloadScheduler scheduler = scheduler(3, 1, 100, Duration.ofSeconds(30));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger instagramRunning = new AtomicInteger();
+        AtomicInteger maxInstagramRunning = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 40; i++) {
+                Platform platform = i % 2 == 0 ? Platform.INSTAGRAM : Platform.YOUTUBE;
+                executor.submit(() -> {
+                    scheduler.execute(platform, () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        if (platform == Platform.INSTAGRAM) {
+                            maxInstagramRunning.accumulateAndGet(instagramRunning.incrementAndGet(), Math::max);
+                        }
+                        sleep(5);
+                        if (platform == Platform.INSTAGRAM) {
+                            instagramRunning.decrementAndGet();
+                        }
+                        running.decrementAndGet();
+                    });
+                    return null;
+                });
+            }
+        }
+
+        assertTrue(maxRunning.get() <= 3, "Одновременно выполнялось " + maxRunning.get());
+        assertEquals(1, maxInstagramRunning.get());
+        assertEquals(0, scheduler.getActive(Platform.INSTAGRAM));
+        assertEquals(0, scheduler.getWaiting(Platform.YOUTUBE));
+    }
+
+    @Test
+    void execute_shouldRejectWhenWaitQueueIsFull() throws Exception {
+        DownloadScheduler scheduler = scheduler(1, 1, 1, Duration.ofSeconds(30));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread running = Thread.ofVirtual().start(() -> run(scheduler, () -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread waiting = Thread.ofVirtual().start(() -> run(scheduler, () -> { }));
+        while (scheduler.getWaiting(Platform.VK) == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(DownloadRejectedException.class, () -> scheduler.execute(Platform.VK, () -> { }));
+
+        release.countDown();
+        running.join();
+        waiting.join();
+    }
+
+    @Test
+    void execute_shouldRejectAfterWaitTimeout() throws Exception {
+        DownloadScheduler scheduler = scheduler(1, 1, 10, Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread running = Thread.ofVirtual().start(() -> run(scheduler, () -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(DownloadRejectedException.class, () -> scheduler.execute(Platform.YOUTUBE, () -> { }));
+        assertEquals(0, scheduler.getWaiting(Platform.YOUTUBE));
+
+        release.countDown();
+        running.join();
+    }
+
+    @Test
+    void call_shouldReturnResult_andReleaseSlotOnFailure() throws Exception {
+        DownloadScheduler scheduler = scheduler(1, 1, 10, Duration.ofMillis(50));
+
+        assertEquals("video.mp4", scheduler.call(Platform.INSTAGRAM, () -> "video.mp4"));
+        assertThrows(IOException.class, () -> scheduler.call(Platform.INSTAGRAM, () -> {
+            throw new IOException("yt-dlp упал");
+        }));
+
+        assertEquals(0, scheduler.getActive(Platform.INSTAGRAM));
+        assertEquals("next", scheduler.call(Platform.INSTAGRAM, () -> "next"), "Место освобождено после ошибки");
+    }
+
+    private static void run(DownloadScheduler scheduler, Runnable job) {
+        try {
+            scheduler.execute(Platform.VK, job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.bot.spring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.FfmpegProperties;
+import org.bot.spring.service.ffmpeg.FfmpegService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FfmpegServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FfmpegProperties properties;
+    private FfmpegService ffmpegService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FfmpegProperties();
+        properties.setEnabled(true);
+        ffmpegService = new FfmpegService(properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ffmpegService.shutdown();
+    }
+
+    @Test
+    void videoBitrate_shouldFitBudgetWithMarginMinusAudio() {
+        // 30 МБ на 2 минуты: 31457280 * 8 * 0.9 / 120 / 1000 = 1887 кбит/с, минус 96 на звук
+        assertEquals(1791, ffmpegService.videoBitrateKbps(30L * 1024 * 1024, 120));
+        assertEquals(0, ffmpegService.videoBitrateKbps(30L * 1024 * 1024, 0));
+    }
+
+    @Test
+    void encodeCommand_shouldRunWithLowPriorityAndFaststart() {
+        List<String> command = ffmpegService.encodeCommand(Path.of("in.mp4"), Path.of("out.mp4"), 1000);
+
+        assertEquals(List.of("nice", "-n", "10", "ffmpeg"), command.subList(0, 4));
+        assertTrue(command.containsAll(List.of("-b:v", "1000k", "-maxrate", "-bufsize", "2000k")));
+        assertEquals("+faststart", command.get(command.indexOf("-movflags") + 1));
+        assertEquals("out.mp4", command.getLast());
+    }
+
+    @Test
+    void remuxCommand_shouldCopyStreamsWithoutNiceWhenDisabled() {
+        properties.setNiceness(0);
+
+        List<String> command = ffmpegService.remuxCommand(Path.of("in.mp4"), Path.of("out.mp4"));
+
+        assertEquals("ffmpeg", command.getFirst());
+        assertTrue(command.containsAll(List.of("-c", "copy", "-movflags", "+faststart")));
+    }
+
+    @Test
+    void splitCommand_shouldCopyStreamsIntoNumberedSegments() {
+        List<String> command = ffmpegService.splitCommand(Path.of("/tmp/video.mp4"), 95.5);
+
+        assertTrue(command.containsAll(List.of("-c", "copy", "-f", "segment", "-reset_timestamps", "1")));
+        assertEquals("95.500", command.get(command.indexOf("-segment_time") + 1));
+        assertEquals("/tmp/video.mp4.part%03d.mp4", command.getLast());
+    }
+
+    @Test
+    void parts_shouldListSegmentsInOrder() throws Exception {
+        Path video = Files.writeString(tempDir.resolve("video.mp4"), "video");
+        Files.writeString(tempDir.resolve("video.mp4.part001.mp4"), "2");
+        Files.writeString(tempDir.resolve("video.mp4.part000.mp4"), "1");
+
+        assertEquals(List.of(tempDir.resolve("video.mp4.part000.mp4"), tempDir.resolve("video.mp4.part001.mp4")),
+                ffmpegService.parts(video));
+    }
+
+    @Test
+    void fitToLimit_shouldKeepOriginalWhenRemuxFails() throws Exception {
+        Path video = Files.writeString(tempDir.resolve("video.mp4"), "not-a-video");
+
+        assertFalse(ffmpegService.fitToLimit(video, 1024));
+
+        assertEquals("not-a-video", Files.readString(video));
+        assertFalse(Files.exists(tempDir.resolve("video.mp4.ffmpeg.mp4")), "Временный файл должен быть удалён");
+    }
+
+    @Test
+    void canFit_shouldRespectSourceLimitAndSwitch() {
+        assertTrue(ffmpegService.canFit(new BigDecimal(150)));
+        assertFalse(ffmpegService.canFit(new BigDecimal(250)));
+
+        properties.setEnabled(false);
+        assertFalse(ffmpegService.canFit(new BigDecimal(50)));
+    }
+
+    @Test
+    void maxSourceSizeBytes_shouldMatchSourceLimit() {
+        assertEquals(200L * 1024 * 1024, ffmpegService.getMaxSourceSizeBytes());
+    }
+}
@@ -0,0 +1,72 @@
+package org.bot.spring;
+
+import org.bot.spring.dto.FormatCatalog;
+import org.bot.spring.service.ytdlp.FormatCatalogParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatCatalogParserTest {
+
+    private FormatCatalog parse(String resource) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            return FormatCatalogParser.parse(in);
+        }
+    }
+
+    @Test
+    void parse_shouldReadVideoMetadata() throws IOException {
+        FormatCatalog catalog = parse("/catalogs/youtube-shorts.json");
+
+        assertEquals("youtube", catalog.getExtractor());
+        assertEquals("8e6GJkZTcfM", catalog.getId());
+        assertEquals(127, catalog.getDurationSeconds());
+        assertEquals(2, catalog.getThumbnails().size(), "Дубликат thumbnail не должен добавляться");
+    }
+
+    @Test
+    void parse_shouldReadAllFormatsIncludingAudioAndVideoOnly() throws IOException {
+        FormatCatalog catalog = parse("/catalogs/youtube-shorts.json");
+
+        assertEquals(13, catalog.getFormats().size(), "requested_formats не должны попадать в список форматов");
+
+        FormatCatalog.Format audio = find(catalog, "140-0");
+        assertTrue(audio.hasAudio());
+        assertFalse(audio.hasVideo());
+        assertEquals("audio only", audio.resolution());
+
+        FormatCatalog.Format muxed = find(catalog, "18");
+        assertTrue(muxed.hasAudio());
+        assertTrue(muxed.hasVideo());
+        assertEquals("360x640", muxed.resolution());
+        assertEquals(9489612L, muxed.knownSize());
+        assertEquals(595, muxed.getTbr());
+    }
+
+    @Test
+    void parse_shouldFallBackToApproximateSize() throws IOException {
+        FormatCatalog catalog = parse("/catalogs/youtube-shorts.json");
+
+        assertEquals(12813601L, find(catalog, "136").knownSize());
+        assertEquals(0L, find(catalog, "137").knownSize());
+    }
+
+    @Test
+    void parse_shouldReturnEmptyCatalog_whenOutputIsEmpty() throws IOException {
+        FormatCatalog catalog = FormatCatalogParser.parse("");
+
+        assertTrue(catalog.getFormats().isEmpty());
+    }
+
+    private FormatCatalog.Format find(FormatCatalog catalog, String id) {
+        return catalog.getFormats().stream()
+                .filter(it -> id.equals(it.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,97 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.FormatSelectionProperties.Objective;
+import org.bot.spring.configuration.properties.FormatSelectionProperties.Strategy;
+import org.bot.spring.dto.FormatCatalog;
+import org.bot.spring.dto.FormatSelection;
+import org.bot.spring.service.ytdlp.FormatCatalogParser;
+import org.bot.spring.service.ytdlp.FormatSelectionEngine;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatSelectionEngineTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private FormatCatalog parse(String resource) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            return FormatCatalogParser.parse(in);
+        }
+    }
+
+    private static long budget(int maxFileSizeMB) {
+        return (long) (maxFileSizeMB * MB * 0.95);
+    }
+
+    @Test
+    void select_shouldPreferBestVideoAudioPairUnderBudget() throws IOException {
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/youtube-shorts.json"), budget(30), new Strategy());
+
+        assertEquals("136+140-0", selection.formatId(), "720p с лучшей аудиодорожкой, а не 240p");
+        assertTrue(selection.isMerged());
+    }
+
+    @Test
+    void select_shouldDropResolutionToFitSmallerBudget() throws IOException {
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/youtube-shorts.json"), budget(10), new Strategy());
+
+        assertEquals("135+140-0", selection.formatId());
+        assertTrue(selection.estimatedBytes() <= budget(10));
+    }
+
+    @Test
+    void select_shouldEstimateSizeFromBitrate_whenFilesizeIsMissing() throws IOException {
+        Strategy strategy = new Strategy();
+        strategy.setMaxHeight(1080);
+
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/youtube-shorts.json"), budget(30), strategy);
+
+        // У 137 нет filesize: 1829 кбит/с × 127 с ≈ 29 MB, вместе с аудио помещается в 28.5 MB
+        assertEquals("137+140-0", selection.formatId());
+        assertEquals(1829 * 1000L / 8 * 127 + 667597, selection.estimatedBytes());
+    }
+
+    @Test
+    void select_shouldUseOnlyMuxedFormats_whenSeparateStreamsAreDisabled() throws IOException {
+        Strategy strategy = new Strategy();
+        strategy.setSeparateStreams(false);
+
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/youtube-shorts.json"), budget(10), strategy);
+
+        assertEquals("18", selection.formatId());
+        assertFalse(selection.isMerged());
+    }
+
+    @Test
+    void select_shouldPickSmallestFile_forSmallestObjective() throws IOException {
+        Strategy strategy = new Strategy();
+        strategy.setObjective(Objective.SMALLEST);
+
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/youtube-shorts.json"), budget(30), strategy);
+
+        assertEquals("160+139-0", selection.formatId());
+    }
+
+    @Test
+    void select_shouldEstimateHlsFormatsWithoutSize() throws IOException {
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/vk-video.json"), budget(30), new Strategy());
+
+        // 480p HLS: 1120 кбит/с × 212 с ≈ 28.3 MB, прогрессивный 480p (1200 кбит/с) уже не помещается
+        assertEquals("hls-1120", selection.formatId());
+        assertEquals(480, selection.shortSide());
+    }
+
+    @Test
+    void select_shouldReturnSmallestOverBudget_whenNothingFits() throws IOException {
+        FormatSelection selection = FormatSelectionEngine.select(parse("/catalogs/vk-video.json"), budget(10), new Strategy());
+
+        assertEquals("hls-380", selection.formatId());
+        assertTrue(selection.estimatedBytes() > budget(10), "Вызывающий должен сообщить о превышении лимита");
+    }
+}
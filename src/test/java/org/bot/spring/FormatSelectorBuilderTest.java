@@ -0,0 +1,49 @@
+package org.bot.spring;
+
+import org.bot.spring.service.ytdlp.FormatSelectorBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatSelectorBuilderTest {
+
+    private static final long MAX_BYTES = 50L * 1024 * 1024;
+
+    @Test
+    void selector_shouldListAlternativesFromExactSizeToSmallestFormat() {
+        List<String> alternatives = List.of(FormatSelectorBuilder.selector(MAX_BYTES, "mp4", 720).split("/"));
+
+        assertEquals(List.of(
+                "b[ext=mp4][height<=720][filesize<52428800]",
+                "b[ext=mp4][height<=720][filesize_approx<52428800]",
+                "b[height<=720][filesize<52428800]",
+                "b[height<=720][filesize_approx<52428800]",
+                "w[ext=mp4]",
+                "w"), alternatives);
+    }
+
+    @Test
+    void selector_shouldFilterBySizeEveryAlternativeExceptSmallest() {
+        for (String alternative : FormatSelectorBuilder.selector(MAX_BYTES, "webm", 480).split("/")) {
+            assertTrue(alternative.startsWith("w") || alternative.contains("<" + MAX_BYTES + "]"), alternative);
+            assertTrue(alternative.startsWith("w") || alternative.contains("[height<=480]"), alternative);
+        }
+    }
+
+    @Test
+    void streamingSelector_shouldExcludeFragmentedProtocols() {
+        for (String alternative : FormatSelectorBuilder.streamingSelector(MAX_BYTES, "mp4", 720).split("/")) {
+            // http_dash_segments и m3u8 — фрагменты, в stdout одним файлом не пишутся
+            assertTrue(alternative.contains("[protocol^=http]"), alternative);
+            assertTrue(alternative.contains("[protocol!*=dash]"), alternative);
+        }
+    }
+
+    @Test
+    void sort_shouldPreferClosestResolutionThenContainer() {
+        assertEquals("res:720,ext:mp4", FormatSelectorBuilder.sort("mp4", 720));
+    }
+}
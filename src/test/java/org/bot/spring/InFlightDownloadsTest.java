@@ -0,0 +1,100 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.dto.VideoKey;
+import org.bot.spring.exceptions.YtDlpExitException;
+import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.download.InFlightDownloads;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightDownloadsTest {
+
+    private static final VideoKey KEY = new VideoKey("youtube", "dQw4w9WgXcQ", "single:mp4/720p/50MB");
+
+    @TempDir
+    Path tempDir;
+
+    private InFlightDownloads inFlightDownloads;
+
+    @BeforeEach
+    void setUp() {
+        YtDlpService ytDlpService = new YtDlpService(new DownloadProperties(), new YtDlpWorkerPool(new YtDlpWorkerProperties()), new TelegramApiProperties(), new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
+        inFlightDownloads = new InFlightDownloads(ytDlpService);
+    }
+
+    @Test
+    void followerReceivesLeaderFile_andFileIsDeletedAfterLastRelease() throws Exception {
+        Path video = Files.createFile(tempDir.resolve("video.mp4"));
+
+        InFlightDownloads.Lease leader = inFlightDownloads.join(KEY);
+        InFlightDownloads.Lease follower = inFlightDownloads.join(KEY);
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+
+        CompletableFuture<String> awaited = CompletableFuture.supplyAsync(() -> {
+            try {
+                return follower.awaitFile();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        leader.complete(video.toString());
+        leader.publishFileId("file-id");
+        assertEquals(video.toString(), awaited.get(5, TimeUnit.SECONDS));
+        assertEquals("file-id", follower.getFileId());
+
+        leader.close();
+        assertTrue(Files.exists(video), "Файл нужен ожидающему, пока он не закрыл lease");
+
+        follower.close();
+        assertFalse(Files.exists(video));
+        assertEquals(0, inFlightDownloads.size());
+    }
+
+    @Test
+    void followerReceivesLeaderFailure() {
+        InFlightDownloads.Lease leader = inFlightDownloads.join(KEY);
+        InFlightDownloads.Lease follower = inFlightDownloads.join(KEY);
+
+        YtDlpExitException failure = new YtDlpExitException(1, "ERROR: Video unavailable");
+        leader.fail(failure);
+        leader.close();
+
+        assertSame(failure, assertThrows(YtDlpExitException.class, follower::awaitFile));
+        follower.close();
+        assertEquals(0, inFlightDownloads.size());
+    }
+
+    @Test
+    void leaderClosedWithoutResult_releasesFollowers() throws Exception {
+        InFlightDownloads.Lease leader = inFlightDownloads.join(KEY);
+        InFlightDownloads.Lease follower = inFlightDownloads.join(KEY);
+
+        leader.close();
+        leader.close();
+
+        assertNull(follower.awaitFile());
+        follower.close();
+        assertTrue(inFlightDownloads.join(KEY).isLeader(), "После завершения загрузки новая начинается заново");
+    }
+}
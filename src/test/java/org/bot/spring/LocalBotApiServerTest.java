@@ -0,0 +1,227 @@
+package org.bot.spring;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.bot.spring.configuration.TelegramClientConfiguration;
+import org.bot.spring.configuration.properties.BotProperties;
+import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.TelegramOutboundProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.dto.AlbumVideo;
+import org.bot.spring.exceptions.FileSizeExceededException;
+import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.stream.TelegramVideoStreamUploader;
+import org.bot.spring.service.telegram.TelegramOutboundDispatcher;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Отправка видео через свой сервер Bot API; сервер подменён заглушкой на {@link HttpServer}.
+ */
+class LocalBotApiServerTest {
+
+    private static final String TOKEN = "123:TEST";
+    private static final String VIDEO_CONTENT = "video-bytes-must-not-be-uploaded";
+    private static final String SEND_VIDEO_ANSWER = """
+            {"ok":true,"result":{"message_id":10,"date":0,"chat":{"id":1,"type":"private"},
+            "video":{"file_id":"local-file-id","file_unique_id":"u","width":1,"height":1,"duration":1}}}""";
+    private static final String SEND_MEDIA_GROUP_ANSWER = """
+            {"ok":true,"result":[{"message_id":11,"date":0,"chat":{"id":1,"type":"private"}}]}""";
+
+    @TempDir
+    Path tempDir;
+
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private TelegramOutboundDispatcher dispatcher;
+    private TelegramApiProperties apiProperties;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String path = exchange.getRequestURI().getPath();
+            byte[] answer = (path.endsWith("/sendMediaGroup") ? SEND_MEDIA_GROUP_ANSWER : SEND_VIDEO_ANSWER)
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, answer.length);
+            exchange.getResponseBody().write(answer);
+            exchange.close();
+        });
+        server.start();
+
+        apiProperties = new TelegramApiProperties();
+        apiProperties.setUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        apiProperties.setLocal(true);
+
+        dispatcher = new TelegramOutboundDispatcher(new TelegramOutboundProperties(), new SimpleMeterRegistry());
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void sendVideo_shouldPassLocalPathInsteadOfUploadingFile() throws Exception {
+        Path video = Files.writeString(tempDir.resolve("video.mp4"), VIDEO_CONTENT);
+
+        Message result = TelegramMessageService.await(messageService().sendVideo(1L, video.toFile(), "caption"));
+
+        assertEquals("local-file-id", result.getVideo().getFileId());
+        assertEquals("/bot" + TOKEN + "/sendVideo", paths.getFirst());
+        assertTrue(bodies.getFirst().contains("file://" + video.toAbsolutePath()));
+        assertFalse(bodies.getFirst().contains(VIDEO_CONTENT), "Содержимое файла не должно уходить в запрос");
+    }
+
+    @Test
+    void sendVideoAlbum_shouldSendPartsInOrderByTen() throws Exception {
+        List<File> parts = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            parts.add(Files.writeString(tempDir.resolve(String.format("video.mp4.part%03d.mp4", i)), VIDEO_CONTENT).toFile());
+        }
+
+        List<Message> result = TelegramMessageService.await(messageService().sendVideoAlbum(1L, parts, "album-caption"));
+
+        assertEquals(2, result.size());
+        assertEquals(List.of("/bot" + TOKEN + "/sendMediaGroup", "/bot" + TOKEN + "/sendMediaGroup"), paths);
+        assertTrue(bodies.get(0).contains("part000") && bodies.get(0).contains("part009"));
+        assertFalse(bodies.get(0).contains("part010"));
+        assertTrue(bodies.get(1).contains("part010") && bodies.get(1).contains("part011"));
+        assertTrue(bodies.get(0).indexOf("part000") < bodies.get(0).indexOf("part001"));
+        assertTrue(bodies.get(0).contains("album-caption"));
+        assertFalse(bodies.get(1).contains("album-caption"));
+    }
+
+    @Test
+    void sendMediaGroup_shouldMixFileIdsAndFiles_andSendSingleRemainderAsVideo() throws Exception {
+        List<AlbumVideo> videos = new ArrayList<>();
+        videos.add(AlbumVideo.ofFileId("cached-file-id", "https://youtu.be/first"));
+        for (int i = 1; i < 11; i++) {
+            File file = Files.writeString(tempDir.resolve("video" + i + ".mp4"), VIDEO_CONTENT).toFile();
+            videos.add(AlbumVideo.ofFile(file, "https://vk.com/video-1_" + i));
+        }
+
+        List<Message> result = TelegramMessageService.await(messageService().sendMediaGroup(1L, videos));
+
+        assertEquals(2, result.size());
+        assertEquals(List.of("/bot" + TOKEN + "/sendMediaGroup", "/bot" + TOKEN + "/sendVideo"), paths);
+        assertTrue(bodies.get(0).contains("cached-file-id") && bodies.get(0).contains("https://youtu.be/first"));
+        assertTrue(bodies.get(0).indexOf("cached-file-id") < bodies.get(0).indexOf("video1.mp4"));
+        assertTrue(bodies.get(0).contains("https://vk.com/video-1_9"));
+        assertTrue(bodies.get(1).contains("video10.mp4") && bodies.get(1).contains("https://vk.com/video-1_10"));
+    }
+
+    @Test
+    void streamVideo_shouldFail_whenServerIsUnreachable() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        apiProperties.setUrl("http://127.0.0.1:" + closedPort);
+        TelegramVideoStreamUploader uploader = uploader();
+
+        // Источник не кончается: без отмены буфера копирование ждало бы читателя вечно
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class,
+                () -> uploader.sendVideo(1L, video(Long.MAX_VALUE), "video.mp4", null)));
+    }
+
+    @Test
+    void streamVideo_shouldRethrowSourceError_whenSourceFailsMidStream() {
+        TelegramVideoStreamUploader uploader = uploader();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(FileSizeExceededException.class,
+                () -> uploader.sendVideo(1L, video(1024 * 1024), "video.mp4", null)));
+    }
+
+    @Test
+    void maxFileSize_shouldDependOnBackend() {
+        DownloadProperties downloadProperties = new DownloadProperties();
+        downloadProperties.setMaxFileSizeMB(new BigDecimal(30));
+        YtDlpService ytDlpService = new YtDlpService(downloadProperties,
+                new YtDlpWorkerPool(new YtDlpWorkerProperties()), apiProperties, new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
+
+        assertEquals(new BigDecimal(2000), ytDlpService.getMaxFileSize());
+        apiProperties.setLocal(false);
+        assertEquals(new BigDecimal(30), ytDlpService.getMaxFileSize());
+    }
+
+    /**
+     * Источник из нулей: отдаёт {@code bytes} байт, затем падает, как поток yt-dlp сверх лимита
+     */
+    private static InputStream video(long bytes) {
+        return new InputStream() {
+            private long left = bytes;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : 0;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (left <= 0) {
+                    throw new FileSizeExceededException(new BigDecimal(60), new BigDecimal(50));
+                }
+                int n = (int) Math.min(len, left);
+                left -= n;
+                return n;
+            }
+        };
+    }
+
+    private TelegramVideoStreamUploader uploader() {
+        BotProperties botProperties = new BotProperties();
+        botProperties.setToken(TOKEN);
+        TelegramClientConfiguration configuration = new TelegramClientConfiguration(botProperties, apiProperties);
+        return new TelegramVideoStreamUploader(botProperties, new DownloadProperties(), apiProperties,
+                configuration.telegramHttpClient());
+    }
+
+    private TelegramMessageService messageService() {
+        BotProperties botProperties = new BotProperties();
+        botProperties.setToken(TOKEN);
+        TelegramClientConfiguration configuration = new TelegramClientConfiguration(botProperties, apiProperties);
+        OkHttpClient httpClient = configuration.telegramHttpClient();
+        TelegramVideoStreamUploader uploader = new TelegramVideoStreamUploader(botProperties, new DownloadProperties(),
+                apiProperties, httpClient);
+        return new TelegramMessageService(configuration.telegramClient(httpClient, configuration.telegramUrl()),
+                uploader, dispatcher, apiProperties);
+    }
+}
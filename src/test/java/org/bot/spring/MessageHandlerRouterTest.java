@@ -0,0 +1,109 @@
+package org.bot.spring;
+
+import org.bot.spring.handlers.GenericMessageHandler;
+import org.bot.spring.handlers.InstagramMessageHandler;
+import org.bot.spring.handlers.MessageHandlerRouter;
+import org.bot.spring.handlers.VkVideoMessageHandler;
+import org.bot.spring.handlers.YouTubeMessageHandler;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.bot.spring.service.ytdlp.YtDlpExtractors;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MessageHandlerRouterTest {
+
+    private final YouTubeMessageHandler youTube = new YouTubeMessageHandler(null, null, null, null, null, null, null);
+    private final InstagramMessageHandler instagram = new InstagramMessageHandler(null, null, null, null, null, null, null, null, null);
+    private final VkVideoMessageHandler vk = new VkVideoMessageHandler(null, null, null, null, null, null, null);
+    private final YtDlpExtractors extractors = new YtDlpExtractors();
+    private final GenericMessageHandler generic = new GenericMessageHandler(null, null, null, null, null, null, null, extractors);
+    private final MessageHandlerRouter router =
+            new MessageHandlerRouter(List.of(youTube, instagram, vk, generic), new UrlCanonicalizer());
+
+    @Test
+    void route_shouldUseHostOfFirstLink() {
+        assertSame(youTube, router.route("https://www.youtube.com/watch?v=dQw4w9WgXcQ&ref=vk.com"));
+        assertSame(vk, router.route("Смотри https://vkvideo.ru/video-12345_456239017 про youtube.com"));
+        assertSame(instagram, router.route("https://WWW.Instagram.com/reel/C8abcDEF123/"));
+    }
+
+    @Test
+    void route_shouldMatchSubdomainsByWholeLabel() {
+        assertSame(youTube, router.route("https://music.youtube.com/watch?v=dQw4w9WgXcQ"));
+        assertNull(router.route("https://notyoutube.com/watch?v=dQw4w9WgXcQ"));
+    }
+
+    @Test
+    void route_shouldAcceptSingleLinkWithoutScheme() {
+        assertSame(youTube, router.route("youtu.be/dQw4w9WgXcQ"));
+        assertNull(router.route("Обычное сообщение без ссылок"));
+    }
+
+    @Test
+    void route_shouldReturnNull_whenNoSupportedLink() {
+        assertNull(router.route(null));
+        assertNull(router.route(""));
+        assertNull(router.route("   "));
+        assertNull(router.route("Просто текст без ссылок"));
+        assertNull(router.route("https://first.com/video http://second.com/video https://third.com/video"));
+        assertNull(router.route("https://192.168.1.1/video"));
+    }
+
+    @Test
+    void route_shouldFindYouTubeLinkAnywhereInText() {
+        List<String> inputs = List.of(
+                "http://youtube.com/video",
+                "https://youtube.com/video",
+                "бла-бла и потом ссылка\n\nhttps://youtube.com/shorts/8e6GJkZTcfM?si=g7e39Pj57vySWStC",
+                "Посмотри это видео: https://youtube.com/watch?v=dQw4w9WgXcQ, оно очень интересное!",
+                "https://youtube.com/video?id=123&param=value",
+                "https://youtube.com/video#section",
+                "Ссылка на видео: https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+                "https://youtu.be/dQw4w9WgXcQ",
+                "https://www.youtube.com/video",
+                "https://youtube.com:8080/video",
+                "https://youtube.com/path/to/video.mp4",
+                "Первая строка\nhttps://youtube.com/video\nВторая строка",
+                "https://youtube.com/video - это ссылка",
+                "youtube.com/video");
+        for (String input : inputs) {
+            assertSame(youTube, router.route(input), input);
+        }
+        assertSame(instagram, router.route("Пост в Instagram: https://www.instagram.com/p/ABC123/"));
+    }
+
+    @Test
+    void route_shouldFallBackToGenericWhenExtractorExists() {
+        String tiktok = "https://www.tiktok.com/@user/video/7300000000000000000";
+        assertNull(router.route(tiktok));
+
+        extractors.setNames(Set.of("tiktok"));
+
+        assertSame(generic, router.route(tiktok));
+        assertNull(router.route("https://example.com/video.html"));
+    }
+
+    @Test
+    void parse_shouldNormalizeExtractorNames() throws IOException {
+        String output = """
+                TikTok
+                tiktok:user
+                vimeo:channel
+                generic
+                Dailymotion (CURRENTLY BROKEN)
+                """;
+
+        Set<String> names = YtDlpExtractors.parse(new BufferedReader(new StringReader(output)));
+
+        assertEquals(Set.of("tiktok", "vimeo"), names);
+    }
+}
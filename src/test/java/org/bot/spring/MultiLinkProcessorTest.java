@@ -0,0 +1,140 @@
+package org.bot.spring;
+
+import org.bot.spring.consumers.MultiLinkProcessor;
+import org.bot.spring.dto.AlbumVideo;
+import org.bot.spring.dto.MessageContext;
+import org.bot.spring.dto.VideoKey;
+import org.bot.spring.exceptions.YtDlpExitException;
+import org.bot.spring.handlers.MessageHandler;
+import org.bot.spring.handlers.MessageHandlerRouter;
+import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.bot.spring.service.download.PreparedVideo;
+import org.bot.spring.service.telegram.StatusMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Несколько ссылок в одном сообщении; Telegram и обработчики подменены моками.
+ */
+class MultiLinkProcessorTest {
+
+    private static final String FIRST = "https://youtu.be/aaaaaaaaaaa";
+    private static final String SECOND = "https://vk.com/video-1_2";
+    private static final String THIRD = "https://www.instagram.com/reel/C1/";
+    private static final MessageContext CONTEXT = new MessageContext(1L, 50, "user");
+
+    private final TelegramMessageService telegramMessageService = mock(TelegramMessageService.class);
+    private final VideoFileIdCache fileIdCache = mock(VideoFileIdCache.class);
+    private final MessageHandler handler = mock(MessageHandler.class);
+    private final List<String> statusTexts = new CopyOnWriteArrayList<>();
+    private MultiLinkProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        MessageHandlerRouter router = mock(MessageHandlerRouter.class);
+        when(router.routeUrl(anyString())).thenReturn(handler);
+        when(telegramMessageService.sendStatusMessage(anyLong(), anyString())).thenAnswer(invocation ->
+                new StatusMessage(telegramMessageService, 1L, invocation.getArgument(1), CompletableFuture.completedFuture(message(100))));
+        when(telegramMessageService.editTextMessage(anyLong(), anyInt(), anyString())).thenAnswer(invocation -> {
+            statusTexts.add(invocation.getArgument(2));
+            return CompletableFuture.completedFuture(true);
+        });
+        when(telegramMessageService.deleteMessage(anyLong(), anyInt())).thenReturn(CompletableFuture.completedFuture(true));
+        processor = new MultiLinkProcessor(router, new UrlCanonicalizer(), telegramMessageService, fileIdCache);
+    }
+
+    @Test
+    void process_shouldSendAlbumInLinkOrder_whenDownloadsFinishOutOfOrder() throws Exception {
+        // Первая ссылка готова последней
+        prepare(FIRST, 300, "id-1");
+        prepare(SECOND, 100, "id-2");
+        prepare(THIRD, 0, "id-3");
+        ArgumentCaptor<List<AlbumVideo>> album = albumCaptor();
+        when(telegramMessageService.sendMediaGroup(eq(1L), album.capture()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(message(1), message(2), message(3))));
+
+        processor.process("смотри " + FIRST + " " + SECOND + " " + THIRD, List.of(FIRST, SECOND, THIRD), CONTEXT);
+
+        assertEquals(List.of("id-1", "id-2", "id-3"), album.getValue().stream().map(AlbumVideo::fileId).toList());
+        assertEquals(List.of(FIRST, SECOND, THIRD), album.getValue().stream().map(AlbumVideo::caption).toList());
+        assertEquals("Видео отправлены пользователем user: смотри", statusTexts.getLast());
+        verify(telegramMessageService).deleteMessage(1L, 50);
+    }
+
+    @Test
+    void process_shouldKeepOriginalAndAppendSummary_whenSomeLinkFailed() throws Exception {
+        prepare(FIRST, 0, "id-1");
+        when(handler.prepare(eq(SECOND), any(), any())).thenThrow(new YtDlpExitException(1, "ERROR: Video unavailable"));
+        ArgumentCaptor<List<AlbumVideo>> album = albumCaptor();
+        when(telegramMessageService.sendMediaGroup(eq(1L), album.capture()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(message(1))));
+
+        processor.process(FIRST + " " + SECOND, List.of(FIRST, SECOND), CONTEXT);
+
+        assertEquals(List.of("id-1"), album.getValue().stream().map(AlbumVideo::fileId).toList());
+        String status = statusTexts.getLast();
+        assertTrue(status.contains("1. youtu.be: отправлено"), status);
+        assertTrue(status.contains("2. vk.com: не удалось скачать файл по техническим причинам"), status);
+        assertTrue(status.contains("\n\nВидео отправлены пользователем user:"), status);
+        verify(telegramMessageService, never()).deleteMessage(anyLong(), anyInt());
+    }
+
+    @Test
+    void process_shouldEvictCachedFileIds_whenAlbumIsRejected() throws Exception {
+        VideoKey first = prepare(FIRST, 0, "stale-1");
+        VideoKey second = prepare(SECOND, 0, "stale-2");
+        when(telegramMessageService.sendMediaGroup(eq(1L), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TelegramApiException("wrong file identifier")));
+
+        processor.process(FIRST + " " + SECOND, List.of(FIRST, SECOND), CONTEXT);
+
+        verify(fileIdCache).evict(first);
+        verify(fileIdCache).evict(second);
+        assertTrue(statusTexts.getLast().contains("2. vk.com: не удалось отправить видео в Telegram"), statusTexts.getLast());
+        verify(telegramMessageService, never()).deleteMessage(anyLong(), anyInt());
+    }
+
+    /**
+     * Обработчик отдаёт видео из кэша file_id через {@code delayMillis}
+     */
+    private VideoKey prepare(String url, long delayMillis, String fileId) throws Exception {
+        VideoKey key = new VideoKey("test", url, "policy");
+        when(handler.prepare(eq(url), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(delayMillis);
+            return PreparedVideo.cached(key, fileId);
+        });
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<AlbumVideo>> albumCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static Message message(int messageId) {
+        Message message = mock(Message.class);
+        when(message.getMessageId()).thenReturn(messageId);
+        return message;
+    }
+}
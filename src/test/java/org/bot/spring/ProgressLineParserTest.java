@@ -0,0 +1,53 @@
+package org.bot.spring;
+
+import org.bot.spring.dto.DownloadProgress;
+import org.bot.spring.dto.DownloadVideoCommand;
+import org.bot.spring.service.ytdlp.ProgressLineParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProgressLineParserTest {
+
+    @Test
+    void parse_shouldReadAllFields() {
+        DownloadProgress progress = ProgressLineParser.parse(
+                "[progress]{\"downloaded\":5242880,\"total\":10485760.0,\"speed\":1048576.5,\"eta\":5}");
+
+        assertEquals(new DownloadProgress(5_242_880, 10_485_760L, 1_048_576.5, 5L), progress);
+        assertEquals(50, progress.percent());
+    }
+
+    @Test
+    void parse_shouldAcceptUnknownValues() {
+        DownloadProgress progress = ProgressLineParser.parse(
+                "[progress]{\"downloaded\":1024,\"total\":null,\"speed\":null,\"eta\":null}");
+
+        assertEquals(new DownloadProgress(1024, null, null, null), progress);
+        assertEquals(-1, progress.percent());
+    }
+
+    @Test
+    void parse_shouldIgnoreOtherLines() {
+        assertNull(ProgressLineParser.parse("[youtube] dQw4w9WgXcQ: Downloading webpage"));
+        assertNull(ProgressLineParser.parse("[progress]{\"downloaded\":NA"));
+    }
+
+    @Test
+    void command_shouldPrintProgressOnSeparateLines() {
+        List<String> args = DownloadVideoCommand.builder()
+                .videoUrl("https://youtu.be/dQw4w9WgXcQ")
+                .printBeforeDownload("[format]%(format_id)s")
+                .progressTemplate(ProgressLineParser.TEMPLATE)
+                .build()
+                .getArgs();
+
+        assertTrue(args.contains("--newline"));
+        assertTrue(args.contains("--progress"), "--print включает --quiet, прогресс нужно вернуть явно");
+        assertEquals("download:" + ProgressLineParser.TEMPLATE, args.get(args.indexOf("--progress-template") + 1));
+    }
+}
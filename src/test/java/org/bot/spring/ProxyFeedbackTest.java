@@ -0,0 +1,102 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.proxy.ProxyFeedback.State;
+import org.bot.spring.service.proxy.ProxyOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProxyFeedbackTest {
+
+    private static final String PROXY = "socks5://10.0.0.1:1080";
+
+    private ProxyFeedback feedback;
+
+    @BeforeEach
+    void setUp() {
+        ProxyProperties properties = new ProxyProperties();
+        properties.getFeedback().setFailureThreshold(2);
+        properties.getFeedback().setOpenDuration(Duration.ofMillis(50));
+        properties.getFeedback().setEwmaAlpha(0.5);
+        feedback = new ProxyFeedback(properties);
+    }
+
+    @Test
+    void breaker_shouldOpenAfterConsecutiveFailures() {
+        feedback.report(PROXY, null, ProxyOutcome.TIMEOUT, 0);
+        assertTrue(feedback.tryAcquire(PROXY));
+
+        feedback.report(PROXY, null, ProxyOutcome.FAILURE, 0);
+        assertEquals(State.OPEN, feedback.state(PROXY));
+        assertFalse(feedback.tryAcquire(PROXY));
+    }
+
+    @Test
+    void breaker_shouldOpenImmediatelyWhenBlocked() {
+        feedback.report(PROXY, null, ProxyOutcome.RATE_LIMITED, 0);
+
+        assertFalse(feedback.tryAcquire(PROXY));
+    }
+
+    @Test
+    void breaker_shouldAllowSingleProbeAfterOpenDuration() throws Exception {
+        feedback.report(PROXY, null, ProxyOutcome.FORBIDDEN, 0);
+        Thread.sleep(60);
+
+        assertTrue(feedback.tryAcquire(PROXY));
+        assertEquals(State.HALF_OPEN, feedback.state(PROXY));
+        assertFalse(feedback.tryAcquire(PROXY), "Пока идёт пробная загрузка, прокси не выдаётся");
+
+        feedback.report(PROXY, null, ProxyOutcome.SUCCESS, 1000);
+        assertEquals(State.CLOSED, feedback.state(PROXY));
+        assertTrue(feedback.tryAcquire(PROXY));
+    }
+
+    @Test
+    void breaker_shouldReopenWhenProbeFails() throws Exception {
+        feedback.report(PROXY, null, ProxyOutcome.FORBIDDEN, 0);
+        Thread.sleep(60);
+        assertTrue(feedback.tryAcquire(PROXY));
+
+        feedback.report(PROXY, null, ProxyOutcome.TIMEOUT, 0);
+
+        assertEquals(State.OPEN, feedback.state(PROXY));
+        assertFalse(feedback.tryAcquire(PROXY));
+    }
+
+    @Test
+    void throughput_shouldBeExponentiallyWeighted() {
+        feedback.report(PROXY, null, ProxyOutcome.SUCCESS, 1000);
+        feedback.report(PROXY, null, ProxyOutcome.SUCCESS, 3000);
+
+        assertEquals(2000, feedback.throughput(PROXY), 0.001);
+        assertEquals(0, feedback.throughput("socks5://10.0.0.2:1080"));
+    }
+
+    @Test
+    void sticky_shouldFollowLastSuccessUntilFailure() {
+        feedback.report(PROXY, Platform.INSTAGRAM, ProxyOutcome.SUCCESS, 1000);
+        assertEquals(PROXY, feedback.stickyProxy(Platform.INSTAGRAM));
+        assertNull(feedback.stickyProxy(Platform.YOUTUBE));
+
+        feedback.report(PROXY, Platform.INSTAGRAM, ProxyOutcome.TIMEOUT, 0);
+        assertNull(feedback.stickyProxy(Platform.INSTAGRAM));
+    }
+
+    @Test
+    void classify_shouldRecognizeYtDlpErrors() {
+        assertEquals(ProxyOutcome.RATE_LIMITED, ProxyOutcome.classify("ERROR: [Instagram] abc: HTTP Error 429: Too Many Requests"));
+        assertEquals(ProxyOutcome.FORBIDDEN, ProxyOutcome.classify("ERROR: unable to download video data: HTTP Error 403: Forbidden"));
+        assertEquals(ProxyOutcome.TIMEOUT, ProxyOutcome.classify("ERROR: [Instagram] abc: Read timed out."));
+        assertEquals(ProxyOutcome.FAILURE, ProxyOutcome.classify("ERROR: Connection refused"));
+    }
+}
@@ -0,0 +1,163 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+import org.bot.spring.service.proxy.ProxyHealthChecker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка прокси против локальных заглушек SOCKS-серверов.
+ */
+class ProxyHealthCheckerTest {
+
+    private final List<ServerSocket> servers = new ArrayList<>();
+    private final List<String> requestedHosts = new CopyOnWriteArrayList<>();
+    private ProxyHealthChecker checker;
+
+    @BeforeEach
+    void setUp() {
+        ProxyProperties properties = new ProxyProperties();
+        properties.getCheck().setTls(false);
+        properties.getCheck().setTargetHost("www.instagram.com");
+        properties.getCheck().setConnectTimeout(Duration.ofMillis(500));
+        properties.getCheck().setReadTimeout(Duration.ofMillis(500));
+        checker = new ProxyHealthChecker(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ServerSocket server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void check_shouldAcceptWorkingSocks5Proxy() throws Exception {
+        ProxyHealth health = checker.check(new ProxyDto("127.0.0.1", startServer(this::socks5), "", "socks5"));
+
+        assertNotNull(health);
+        assertEquals(List.of("www.instagram.com:443"), requestedHosts);
+    }
+
+    @Test
+    void check_shouldAcceptWorkingSocks4Proxy() throws Exception {
+        ProxyHealth health = checker.check(new ProxyDto("127.0.0.1", startServer(this::socks4), "", "socks4"));
+
+        assertNotNull(health);
+        assertEquals(List.of("www.instagram.com:443"), requestedHosts);
+    }
+
+    @Test
+    void check_shouldRejectProxyRefusingConnect() throws Exception {
+        int port = startServer((in, out) -> {
+            in.readNBytes(3);
+            out.write(new byte[]{5, 0});
+            readSocks5Request(in);
+            out.write(new byte[]{5, 5, 0, 1, 0, 0, 0, 0, 0, 0});
+        });
+
+        assertNull(checker.check(new ProxyDto("127.0.0.1", port, "", "socks5")));
+    }
+
+    @Test
+    void check_shouldGiveUpOnSilentProxy() throws Exception {
+        int port = startServer((in, out) -> in.readAllBytes());
+
+        long start = System.nanoTime();
+        assertNull(checker.check(new ProxyDto("127.0.0.1", port, "", "socks5")));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos(), "Проверка должна укладываться в read-timeout");
+    }
+
+    @Test
+    void checkAll_shouldReturnOnlyAliveProxies() throws Exception {
+        ProxyDto alive = new ProxyDto("127.0.0.1", startServer(this::socks5), "", "socks5");
+        ServerSocket closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ProxyDto dead = new ProxyDto("127.0.0.1", closed.getLocalPort(), "", "socks5");
+        closed.close();
+
+        List<ProxyHealth> result = checker.checkAll(List.of(dead, alive));
+
+        assertEquals(List.of(alive), result.stream().map(ProxyHealth::proxy).toList());
+    }
+
+    private void socks5(InputStream in, OutputStream out) throws IOException {
+        in.readNBytes(3);
+        out.write(new byte[]{5, 0});
+        requestedHosts.add(readSocks5Request(in));
+        out.write(new byte[]{5, 0, 0, 1, 127, 0, 0, 1, 0, 80});
+    }
+
+    private void socks4(InputStream in, OutputStream out) throws IOException {
+        byte[] header = in.readNBytes(8);
+        int port = (header[2] & 0xFF) << 8 | header[3] & 0xFF;
+        readNullTerminated(in);
+        requestedHosts.add(readNullTerminated(in) + ":" + port);
+        out.write(new byte[]{0, 0x5A, 0, 0, 0, 0, 0, 0});
+    }
+
+    private static String readSocks5Request(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(5);
+        String host = new String(in.readNBytes(header[4]), StandardCharsets.US_ASCII);
+        byte[] port = in.readNBytes(2);
+        return host + ":" + ((port[0] & 0xFF) << 8 | port[1] & 0xFF);
+    }
+
+    private static String readNullTerminated(InputStream in) throws IOException {
+        StringBuilder value = new StringBuilder();
+        int b;
+        while ((b = in.read()) > 0) {
+            value.append((char) b);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Заглушка прокси: каждое подключение обрабатывается {@code handler} в отдельном потоке
+     */
+    private int startServer(Handler handler) throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        servers.add(server);
+        Thread.ofVirtual().start(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread.ofVirtual().start(() -> {
+                        try (socket) {
+                            handler.handle(socket.getInputStream(), socket.getOutputStream());
+                        } catch (IOException ignored) {
+                            // клиент закрыл соединение
+                        }
+                    });
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        return server.getLocalPort();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(InputStream in, OutputStream out) throws IOException;
+    }
+}
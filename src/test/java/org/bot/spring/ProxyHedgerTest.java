@@ -0,0 +1,140 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.proxy.ProxyFeedback.State;
+import org.bot.spring.service.proxy.ProxyHealthChecker;
+import org.bot.spring.service.proxy.ProxyHedger;
+import org.bot.spring.service.proxy.ProxyProvider;
+import org.bot.spring.service.proxy.source.ProxySource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProxyHedgerTest {
+
+    private static final String FAST = "socks5://10.0.0.2:1080";
+
+    private ProxyProperties properties;
+    private ProxyFeedback feedback;
+    private ProxyProvider provider;
+    private ProxyHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ProxyProperties();
+        properties.getCheck().setEnabled(false);
+        properties.getHedge().setAttempts(3);
+        properties.getHedge().setTimeout(Duration.ofSeconds(5));
+        feedback = new ProxyFeedback(properties);
+
+        ProxySource source = new ProxySource() {
+            @Override
+            public List<ProxyDto> getProxies() {
+                return List.of(
+                        new ProxyDto("10.0.0.1", 1080, "US", "socks5"),
+                        new ProxyDto("10.0.0.2", 1080, "US", "socks5"),
+                        new ProxyDto("10.0.0.3", 1080, "US", "socks5"));
+            }
+
+            @Override
+            public void refresh() {
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+        };
+        provider = new ProxyProvider(List.of(source), new ProxyHealthChecker(properties), feedback, properties);
+        provider.refreshAll();
+        hedger = new ProxyHedger(provider, feedback, properties);
+    }
+
+    @Test
+    void race_shouldReturnFirstSuccessAndKillLosers() throws Exception {
+        properties.getHedge().setDelay(Duration.ZERO);
+        List<Process> losers = new CopyOnWriteArrayList<>();
+
+        ProxyHedger.Winner<String> winner = hedger.race(Platform.INSTAGRAM, (proxy, onStart) -> {
+            if (FAST.equals(proxy)) {
+                Thread.sleep(100);
+                return "ok";
+            }
+            Process process = new ProcessBuilder("sleep", "30").start();
+            losers.add(process);
+            onStart.accept(process);
+            process.waitFor();
+            return "slow";
+        });
+
+        assertEquals(FAST, winner.proxy());
+        assertEquals("ok", winner.result());
+        assertEquals(2, losers.size());
+        for (Process process : losers) {
+            process.onExit().get(5, TimeUnit.SECONDS);
+            assertFalse(process.isAlive());
+        }
+    }
+
+    @Test
+    void race_shouldStartNextAttemptRightAfterFailure() throws Exception {
+        // Пауза больше общего таймаута: следующая попытка запускается только из-за ошибки
+        properties.getHedge().setDelay(Duration.ofSeconds(30));
+        AtomicInteger calls = new AtomicInteger();
+        List<String> failed = new CopyOnWriteArrayList<>();
+
+        ProxyHedger.Winner<String> winner = hedger.race(Platform.INSTAGRAM, (proxy, onStart) -> {
+            if (calls.incrementAndGet() < 3) {
+                failed.add(proxy);
+                throw new IOException("ERROR: HTTP Error 403: Forbidden");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", winner.result());
+        assertEquals(2, failed.size());
+        assertFalse(failed.contains(winner.proxy()));
+        for (String proxy : failed) {
+            assertEquals(State.OPEN, feedback.state(proxy));
+        }
+    }
+
+    @Test
+    void race_shouldUseSocks5_whenCheckEnabledAndNothingCheckedYet() throws Exception {
+        // Пул загружен, но проверка ещё не прошла: живых прокси нет
+        properties.getCheck().setEnabled(true);
+        properties.getHedge().setDelay(Duration.ZERO);
+
+        assertNotNull(provider.getCurrentProxy());
+        ProxyHedger.Winner<String> winner = hedger.race(Platform.INSTAGRAM, (proxy, onStart) -> "ok");
+
+        assertTrue(winner.proxy().startsWith("socks5://10.0.0."));
+        assertEquals("ok", winner.result());
+    }
+
+    @Test
+    void race_shouldFailWhenAllAttemptsFail() {
+        properties.getHedge().setDelay(Duration.ZERO);
+
+        IOException e = assertThrows(IOException.class, () -> hedger.race(Platform.INSTAGRAM, (proxy, onStart) -> {
+            throw new IOException("ERROR: Connection refused");
+        }));
+
+        assertTrue(e.getCause().getMessage().contains("Connection refused"));
+    }
+}
@@ -0,0 +1,82 @@
+package org.bot.spring;
+
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+import org.bot.spring.service.proxy.ProxyPool;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProxyPoolTest {
+
+    private static final ProxyDto FIRST = new ProxyDto("10.0.0.1", 1080, "us", "socks5");
+    private static final ProxyDto SECOND = new ProxyDto("10.0.0.2", 1080, "DE", "SOCKS4");
+    private static final ProxyDto THIRD = new ProxyDto("10.0.0.3", 1080, "", "socks5");
+
+    @Test
+    void rings_shouldHaveIndependentCursors() {
+        ProxyPool pool = new ProxyPool(List.of(FIRST, SECOND, THIRD), List.of(), 0);
+
+        assertEquals(FIRST, pool.nextByProtocol("socks5"));
+        assertEquals(THIRD, pool.nextByProtocol("socks5"));
+        assertEquals(FIRST, pool.nextByProtocol("socks5"));
+        // Выдача socks5 не сдвигает общий курсор
+        assertEquals(FIRST, pool.next());
+        assertEquals(SECOND, pool.next());
+        assertEquals(THIRD, pool.next());
+        assertEquals(FIRST, pool.next());
+    }
+
+    @Test
+    void indexes_shouldNormalizeProtocolAndCountry() {
+        ProxyPool pool = new ProxyPool(List.of(FIRST, SECOND, THIRD), List.of(), 0);
+
+        assertEquals(SECOND, pool.nextByProtocol("socks4"));
+        assertEquals(FIRST, pool.nextByCountry("US"));
+        assertEquals(SECOND, pool.nextByCountry("DE"));
+        assertNull(pool.nextByCountry("FR"));
+        assertEquals(2, pool.size("socks5"));
+    }
+
+    @Test
+    void emptyPool_shouldReturnNull() {
+        ProxyPool pool = new ProxyPool(List.of(), List.of(), 0);
+
+        assertNull(pool.next());
+        assertNull(pool.nextByProtocol("socks5"));
+        assertNull(pool.nextLive());
+    }
+
+    @Test
+    void nextLive_shouldFollowScore() {
+        // Оценки 20 и 1: быстрый прокси выдаётся примерно в 20 раз чаще
+        List<ProxyHealth> alive = List.of(
+                new ProxyHealth(FIRST, 0, Instant.now()),
+                new ProxyHealth(SECOND, 950, Instant.now()));
+        ProxyPool pool = new ProxyPool(List.of(FIRST, SECOND), alive, Long.MAX_VALUE);
+
+        int fast = 0;
+        int samples = 100_000;
+        for (int i = 0; i < samples; i++) {
+            if (pool.nextLive() == FIRST) {
+                fast++;
+            }
+        }
+
+        double share = (double) fast / samples;
+        assertTrue(share > 0.93 && share < 0.97, "Доля быстрого прокси: " + share);
+    }
+
+    @Test
+    void nextLive_shouldIgnoreStaleCheck() {
+        List<ProxyHealth> alive = List.of(new ProxyHealth(FIRST, 10, Instant.now()));
+        ProxyPool pool = new ProxyPool(List.of(FIRST), alive, System.currentTimeMillis() - 1);
+
+        assertNull(pool.nextLive());
+    }
+}
@@ -0,0 +1,133 @@
+package org.bot.spring;
+
+import com.sun.net.httpserver.HttpServer;
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.service.proxy.client.ProxyScrapeClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Загрузка списка прокси; API подменён заглушкой на {@link HttpServer} с записанным ответом.
+ */
+class ProxyScrapeClientTest {
+
+    private static final String ETAG = "\"list-v1\"";
+    private static final String LAST_MODIFIED = "Fri, 16 Oct 2026 10:00:00 GMT";
+
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private final List<String> ifModifiedSince = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<byte[]> broken = new AtomicReference<>();
+    private HttpServer server;
+    private ProxyScrapeClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] recorded = gzip(resource("/proxyscrape/free-proxy-list.json"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            ifNoneMatch.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-None-Match")));
+            ifModifiedSince.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-Modified-Since")));
+            if (broken.get() != null) {
+                // Новый список оборван на середине
+                exchange.getResponseHeaders().add("ETag", "\"list-v2\"");
+                exchange.sendResponseHeaders(200, broken.get().length);
+                exchange.getResponseBody().write(broken.get());
+            } else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else if (status.get() != 200) {
+                exchange.sendResponseHeaders(status.get(), -1);
+            } else {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+                exchange.sendResponseHeaders(200, recorded.length);
+                exchange.getResponseBody().write(recorded);
+            }
+            exchange.close();
+        });
+        server.start();
+        client = new ProxyScrapeClient("http://127.0.0.1:" + server.getAddress().getPort() + "/v4/free-proxy-list/get");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void fetchProxies_shouldKeepOnlyAliveSocksProxies() {
+        List<ProxyDto> proxies = client.fetchProxies();
+
+        assertEquals(List.of(
+                new ProxyDto("88.198.1.10", 1080, "DE", "socks5"),
+                new ProxyDto("103.10.20.30", 4145, "", "SOCKS4")), proxies);
+        assertEquals("null", ifNoneMatch.getFirst(), "Первый запрос безусловный");
+    }
+
+    @Test
+    void fetchProxies_shouldReturnSameListWhenNotModified() {
+        List<ProxyDto> first = client.fetchProxies();
+        List<ProxyDto> second = client.fetchProxies();
+
+        assertSame(first, second);
+        assertEquals(ETAG, ifNoneMatch.get(1));
+        assertEquals(LAST_MODIFIED, ifModifiedSince.get(1));
+    }
+
+    @Test
+    void fetchProxies_shouldReturnEmptyListOnError() {
+        status.set(503);
+
+        assertTrue(client.fetchProxies().isEmpty());
+        client.fetchProxies();
+        assertEquals("null", ifNoneMatch.get(1), "Без успешного ответа запрос остаётся безусловным");
+    }
+
+    @Test
+    void fetchProxies_shouldDiscardTruncatedResponse_andKeepPreviousValidators() throws IOException {
+        List<ProxyDto> first = client.fetchProxies();
+        String json = new String(resource("/proxyscrape/free-proxy-list.json"), StandardCharsets.UTF_8);
+        // Обрыв после двух целых socks-прокси: разбор до ошибки дал бы неполный список
+        broken.set(json.substring(0, json.indexOf("\"45.10.10.10\"")).getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(client.fetchProxies().isEmpty());
+        broken.set(null);
+
+        assertSame(first, client.fetchProxies());
+        assertEquals(ETAG, ifNoneMatch.get(2), "ETag прошлого целого ответа сохранён");
+    }
+
+    private byte[] resource(String name) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            assertNotNull(in, "Нет ресурса " + name);
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
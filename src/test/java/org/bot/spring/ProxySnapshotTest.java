@@ -0,0 +1,109 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.dto.ProxyDto;
+import org.bot.spring.dto.ProxyHealth;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.proxy.ProxyHealthChecker;
+import org.bot.spring.service.proxy.ProxyProvider;
+import org.bot.spring.service.proxy.ProxySnapshot;
+import org.bot.spring.service.proxy.source.ProxySource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProxySnapshotTest {
+
+    private static final ProxyDto FIRST = new ProxyDto("10.0.0.1", 1080, "US", "socks5");
+    private static final ProxyDto SECOND = new ProxyDto("10.0.0.2", 65535, "", "socks4");
+    private static final ProxyDto THIRD = new ProxyDto("10.0.0.3", 1080, "DE", "socks5");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void snapshot_shouldRoundTripProxiesAndHealth() throws IOException {
+        Path path = tempDir.resolve("proxy-pool.bin");
+        Instant checkedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<ProxyHealth> alive = List.of(new ProxyHealth(THIRD, 40, checkedAt), new ProxyHealth(FIRST, 300, checkedAt));
+
+        ProxySnapshot.write(path, List.of(FIRST, SECOND, THIRD), alive);
+        ProxySnapshot.Contents contents = ProxySnapshot.read(path);
+
+        assertEquals(List.of(FIRST, SECOND, THIRD), contents.proxies());
+        assertEquals(alive, contents.alive());
+    }
+
+    @Test
+    void read_shouldRejectForeignFile() throws IOException {
+        Path path = tempDir.resolve("proxy-pool.bin");
+        Files.writeString(path, "socks5://10.0.0.1:1080");
+
+        assertThrows(IOException.class, () -> ProxySnapshot.read(path));
+    }
+
+    @Test
+    void init_shouldServeSnapshotAndKeepItWhenSourcesAreEmpty() throws IOException {
+        Path path = tempDir.resolve("proxy-pool.bin");
+        ProxySnapshot.write(path, List.of(FIRST, SECOND, THIRD), List.of(new ProxyHealth(FIRST, 40, Instant.now())));
+        ProxyProperties properties = new ProxyProperties();
+        properties.getRefresh().setSnapshotPath(path.toString());
+        properties.getCheck().setEnabled(false);
+        ProxyProvider provider = provider(properties);
+
+        provider.init();
+
+        assertEquals(3, provider.getProxyCount());
+        assertEquals(1, provider.getLiveProxyCount());
+        provider.refreshAll();
+        assertEquals(3, provider.getProxyCount());
+    }
+
+    @Test
+    void refreshInterval_shouldGrowWithLiveProxies() throws IOException {
+        Path path = tempDir.resolve("proxy-pool.bin");
+        ProxyProperties properties = new ProxyProperties();
+        properties.getRefresh().setSnapshotPath(path.toString());
+        properties.getRefresh().setMinInterval(Duration.ofMinutes(2));
+        properties.getRefresh().setMaxInterval(Duration.ofMinutes(12));
+        properties.getRefresh().setTargetLive(6);
+        // Без проверки в расчёт идут все загруженные прокси
+        properties.getCheck().setEnabled(false);
+        ProxyProvider provider = provider(properties);
+
+        assertEquals(Duration.ofMinutes(2), provider.refreshInterval());
+
+        ProxySnapshot.write(path, List.of(FIRST, SECOND, THIRD), List.of());
+        provider.init();
+        assertEquals(Duration.ofMinutes(7), provider.refreshInterval());
+    }
+
+    private static ProxyProvider provider(ProxyProperties properties) {
+        ProxySource empty = new ProxySource() {
+            @Override
+            public List<ProxyDto> getProxies() {
+                return List.of();
+            }
+
+            @Override
+            public void refresh() {
+            }
+
+            @Override
+            public String getName() {
+                return "empty";
+            }
+        };
+        return new ProxyProvider(List.of(empty), new ProxyHealthChecker(properties), new ProxyFeedback(properties), properties);
+    }
+}
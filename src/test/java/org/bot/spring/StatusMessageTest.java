@@ -0,0 +1,64 @@
+package org.bot.spring;
+
+import org.bot.spring.service.TelegramMessageService;
+import org.bot.spring.service.telegram.StatusMessage;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusMessageTest {
+
+    private final TelegramMessageService telegramMessageService = mock(TelegramMessageService.class);
+
+    @Test
+    void update_shouldEditFallbackMessage_whenInitialSendFailed() {
+        CompletableFuture<Message> fallback = new CompletableFuture<>();
+        when(telegramMessageService.sendTextMessage(1L, "Подбираю формат...")).thenReturn(fallback);
+        when(telegramMessageService.editTextMessage(anyLong(), anyInt(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        StatusMessage status = new StatusMessage(telegramMessageService, 1L, "Обрабатываю...",
+                CompletableFuture.failedFuture(new IllegalStateException("нет сети")));
+
+        status.update("Подбираю формат...");
+        status.update("Загружаю видео...");
+        status.update("Загружаю видео... 50%");
+        fallback.complete(message(20));
+
+        // Новым сообщением уходит только первый текст, остальные — правкой этого сообщения
+        verify(telegramMessageService, times(1)).sendTextMessage(anyLong(), anyString());
+        verify(telegramMessageService).editTextMessage(1L, 20, "Загружаю видео... 50%");
+    }
+
+    @Test
+    void update_shouldEditFallbackMessage_whenEditFailed() {
+        when(telegramMessageService.editTextMessage(1L, 10, "Подбираю формат..."))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("сообщение удалено")));
+        when(telegramMessageService.editTextMessage(1L, 20, "Загружаю видео..."))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        when(telegramMessageService.sendTextMessage(1L, "Подбираю формат..."))
+                .thenReturn(CompletableFuture.completedFuture(message(20)));
+        StatusMessage status = new StatusMessage(telegramMessageService, 1L, "Обрабатываю...",
+                CompletableFuture.completedFuture(message(10)));
+
+        status.update("Подбираю формат...");
+        status.update("Загружаю видео...");
+
+        verify(telegramMessageService, times(1)).sendTextMessage(anyLong(), anyString());
+        verify(telegramMessageService).editTextMessage(1L, 20, "Загружаю видео...");
+    }
+
+    private static Message message(int messageId) {
+        Message message = mock(Message.class);
+        when(message.getMessageId()).thenReturn(messageId);
+        return message;
+    }
+}
@@ -0,0 +1,152 @@
+package org.bot.spring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.TelegramOutboundProperties;
+import org.bot.spring.service.telegram.TelegramOutboundDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelegramOutboundDispatcherTest {
+
+    private static final String TOO_MANY_REQUESTS = """
+            {"ok":false,"error_code":429,"description":"Too Many Requests: retry after 1","parameters":{"retry_after":1}}""";
+
+    private TelegramOutboundDispatcher dispatcher;
+
+    private TelegramOutboundDispatcher dispatcher(double chatPerSecond, int chatBurst) {
+        TelegramOutboundProperties properties = new TelegramOutboundProperties();
+        properties.setGlobalPerSecond(1000);
+        properties.setChatPerSecond(chatPerSecond);
+        properties.setChatBurst(chatBurst);
+        dispatcher = new TelegramOutboundDispatcher(properties, new SimpleMeterRegistry());
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void submitEdit_shouldSendOnlyLatestPendingText() throws Exception {
+        dispatcher(1000, 10);
+        CompletableFuture<String> busy = new CompletableFuture<>();
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+        // Занимаем чат, чтобы редактирования успели накопиться в очереди
+        dispatcher.submit(1L, () -> busy);
+        CompletableFuture<String> first = dispatcher.submitEdit(1L, 10, () -> send(sent, "Получаю список форматов..."));
+        CompletableFuture<String> second = dispatcher.submitEdit(1L, 10, () -> send(sent, "Подбираю формат..."));
+        CompletableFuture<String> third = dispatcher.submitEdit(1L, 10, () -> send(sent, "Загружаю видео..."));
+        busy.complete("busy");
+
+        assertEquals("Загружаю видео...", first.get(5, TimeUnit.SECONDS));
+        assertEquals("Загружаю видео...", second.get(5, TimeUnit.SECONDS));
+        assertEquals("Загружаю видео...", third.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("Загружаю видео..."), sent);
+    }
+
+    @Test
+    void submit_shouldKeepChatOrderAndRate() throws Exception {
+        dispatcher(20, 1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            int number = i;
+            results.add(dispatcher.submit(7L, () -> {
+                order.add(number);
+                return CompletableFuture.completedFuture(number);
+            }));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+        // Первый запрос сразу, остальные четыре — по одному раз в 50 мс
+        assertTrue(elapsedMillis >= 180, "Отправлено за " + elapsedMillis + " мс");
+    }
+
+    @Test
+    void submit_shouldRetryAfterTooManyRequests() throws Exception {
+        dispatcher(1000, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        SendMessage method = SendMessage.builder().chatId(1L).text("test").build();
+
+        long start = System.nanoTime();
+        CompletableFuture<String> result = dispatcher.submit(1L, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                method.deserializeResponse(TOO_MANY_REQUESTS);
+            }
+            return CompletableFuture.completedFuture("ok");
+        });
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900, "retry_after не соблюдён");
+    }
+
+    @Test
+    void submitBlocking_shouldNotHoldChat_whileRunning() throws Exception {
+        dispatcher(1000, 10);
+        CountDownLatch uploadRunning = new CountDownLatch(1);
+        CountDownLatch finishUpload = new CountDownLatch(1);
+
+        CompletableFuture<String> upload = dispatcher.submitBlocking(1L, () -> {
+            uploadRunning.countDown();
+            finishUpload.await();
+            return "uploaded";
+        });
+        assertTrue(uploadRunning.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> edit = dispatcher.submitEdit(1L, 10, () -> CompletableFuture.completedFuture("Загружаю видео..."));
+
+        // Правка статуса уходит, пока загрузка ещё идёт
+        assertEquals("Загружаю видео...", edit.get(5, TimeUnit.SECONDS));
+        assertFalse(upload.isDone());
+        finishUpload.countDown();
+        assertEquals("uploaded", upload.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submitUpload_shouldNotHoldEdits_andKeepUploadOrder() throws Exception {
+        dispatcher(1000, 10);
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        AtomicInteger secondCalls = new AtomicInteger();
+
+        CompletableFuture<String> first = dispatcher.submitUpload(1L, () -> firstResponse);
+        CompletableFuture<String> second = dispatcher.submitUpload(1L, () -> {
+            secondCalls.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        });
+        CompletableFuture<String> edit = dispatcher.submitEdit(1L, 10, () -> CompletableFuture.completedFuture("Загружаю видео..."));
+
+        // Правка статуса уходит, пока первая загрузка ещё идёт, а вторая загрузка её ждёт
+        assertEquals("Загружаю видео...", edit.get(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        assertEquals(0, secondCalls.get());
+        firstResponse.complete("first");
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, secondCalls.get());
+    }
+
+    private static CompletableFuture<String> send(List<String> sent, String text) {
+        sent.add(text);
+        return CompletableFuture.completedFuture(text);
+    }
+}
@@ -0,0 +1,94 @@
+package org.bot.spring;
+
+import org.bot.spring.dto.CanonicalUrl;
+import org.bot.spring.dto.Platform;
+import org.bot.spring.service.UrlCanonicalizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UrlCanonicalizerTest {
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer();
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', nullValues = "null", textBlock = """
+            https://youtu.be/dQw4w9WgXcQ                                      | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://youtu.be/dQw4w9WgXcQ?si=g7e39Pj57vySWStC                  | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://www.youtube.com/watch?v=dQw4w9WgXcQ                       | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://youtube.com/watch?si=abc&v=dQw4w9WgXcQ&t=42               | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://m.youtube.com/shorts/8e6GJkZTcfM                          | YOUTUBE   | 8e6GJkZTcfM | https://www.youtube.com/watch?v=8e6GJkZTcfM
+            https://youtube.com/shorts/8e6GJkZTcfM?si=g7e39Pj57vySWStC        | YOUTUBE   | 8e6GJkZTcfM | https://www.youtube.com/watch?v=8e6GJkZTcfM
+            https://music.youtube.com/watch?v=dQw4w9WgXcQ&list=RD             | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://www.youtube.com/embed/dQw4w9WgXcQ                         | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://YouTube.com:443/live/dQw4w9WgXcQ#t=10                     | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            https://youtube.com/video                                         | YOUTUBE   | null        | https://youtube.com/video
+            https://www.youtube.com/watch?v=short                             | YOUTUBE   | null        | https://www.youtube.com/watch?v=short
+            https://www.instagram.com/reel/C8abcDEF123/?igsh=MTc4MmM1YmI2Ng== | INSTAGRAM | C8abcDEF123 | https://www.instagram.com/reel/C8abcDEF123/
+            https://instagram.com/reels/C8abcDEF123                           | INSTAGRAM | C8abcDEF123 | https://www.instagram.com/reel/C8abcDEF123/
+            https://www.instagram.com/p/ABC123/                               | INSTAGRAM | ABC123      | https://www.instagram.com/p/ABC123/
+            https://www.instagram.com/some.user/reel/C8abcDEF123/             | INSTAGRAM | C8abcDEF123 | https://www.instagram.com/reel/C8abcDEF123/
+            https://www.instagram.com/some.user/                              | INSTAGRAM | null        | https://www.instagram.com/some.user/
+            https://vk.com/video-1_2                                          | VK        | -1_2        | https://vk.com/video-1_2
+            https://vkvideo.ru/video-1_2?list=ln-abc                          | VK        | -1_2        | https://vk.com/video-1_2
+            https://m.vk.com/video123_456                                     | VK        | 123_456     | https://vk.com/video123_456
+            https://vk.ru/clip-220754053_456239520                            | VK        | -220754053_456239520 | https://vk.com/clip-220754053_456239520
+            https://vk.com/feed?z=video-1_2%2Fpl_cat_trends                   | VK        | -1_2        | https://vk.com/video-1_2
+            https://vk.com/videos-1                                           | VK        | null        | https://vk.com/videos-1
+            https://example.com/video                                         | GENERIC   | null        | https://example.com/video
+            https://notyoutube.com/watch?v=dQw4w9WgXcQ                        | GENERIC   | null        | https://notyoutube.com/watch?v=dQw4w9WgXcQ
+            youtu.be/dQw4w9WgXcQ                                              | YOUTUBE   | dQw4w9WgXcQ | https://www.youtube.com/watch?v=dQw4w9WgXcQ
+            """)
+    void canonicalize_shouldResolvePlatformAndId(String url, Platform platform, String contentId, String cleanUrl) {
+        CanonicalUrl result = canonicalizer.canonicalize(url);
+
+        assertEquals(platform, result.platform());
+        assertEquals(contentId, result.contentId());
+        assertEquals(cleanUrl, result.cleanUrl());
+    }
+
+    @Test
+    void canonicalize_shouldGiveSameIdentity_forAllVariantsOfOneVideo() {
+        String identity = canonicalizer.canonicalize("https://youtu.be/dQw4w9WgXcQ").identity();
+
+        assertEquals(identity, canonicalizer.canonicalize("https://www.youtube.com/watch?v=dQw4w9WgXcQ&si=x").identity());
+        assertEquals(identity, canonicalizer.canonicalize("https://m.youtube.com/shorts/dQw4w9WgXcQ").identity());
+    }
+
+    @Test
+    void findFirst_shouldFindUrlInsideText() {
+        CanonicalUrl result = canonicalizer.findFirst("Посмотри это видео: https://youtube.com/watch?v=dQw4w9WgXcQ, оно очень интересное!");
+
+        assertEquals(Platform.YOUTUBE, result.platform());
+        assertEquals("dQw4w9WgXcQ", result.contentId());
+    }
+
+    @Test
+    void findFirst_shouldReturnNull_whenNoUrl() {
+        assertNull(canonicalizer.findFirst(null));
+        assertNull(canonicalizer.findFirst("Просто текст без ссылок про http и https"));
+        assertNull(canonicalizer.findFirst("youtube.com/video"));
+    }
+
+    @Test
+    void canonicalize_shouldReturnNull_whenNoHost() {
+        assertNull(canonicalizer.canonicalize(""));
+        assertNull(canonicalizer.canonicalize("https:///path"));
+    }
+
+    @Test
+    void findAllUrls_shouldKeepOrder_skipDuplicates_andRespectLimit() {
+        String text = "смотри https://youtu.be/dQw4w9WgXcQ и https://vk.com/video-1_2, "
+                + "https://www.youtube.com/watch?v=dQw4w9WgXcQ https://example.com/a https://example.com/b";
+
+        assertEquals(List.of("https://youtu.be/dQw4w9WgXcQ", "https://vk.com/video-1_2", "https://example.com/a"),
+                canonicalizer.findAllUrls(text, 3));
+        assertEquals(4, canonicalizer.findAllUrls(text, 10).size());
+        assertEquals(List.of(), canonicalizer.findAllUrls("без ссылок", 5));
+    }
+}
@@ -0,0 +1,115 @@
+package org.bot.spring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bot.spring.configuration.properties.FileIdCacheProperties;
+import org.bot.spring.dto.VideoKey;
+import org.bot.spring.service.cache.VideoFileIdCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VideoFileIdCacheTest {
+
+    private static final VideoKey FIRST = new VideoKey("youtube", "dQw4w9WgXcQ", "single:mp4/720p/50MB");
+    private static final VideoKey SECOND = new VideoKey("instagram", "C8abcDEF123", "single:mp4/720p/50MB");
+    private static final VideoKey THIRD = new VideoKey("vk", "-1_2", "single:mp4/720p/50MB");
+
+    @TempDir
+    Path tempDir;
+
+    private FileIdCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FileIdCacheProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsed_whenMaxEntriesExceeded() {
+        properties.setMaxEntries(2);
+        VideoFileIdCache cache = new VideoFileIdCache(properties, meterRegistry);
+
+        cache.put(FIRST, "file-1");
+        cache.put(SECOND, "file-2");
+        cache.get(FIRST);
+        cache.put(THIRD, "file-3");
+
+        assertEquals(2, cache.size());
+        assertEquals("file-1", cache.get(FIRST), "Недавно прочитанная запись остаётся");
+        assertNull(cache.get(SECOND), "Вытесняется давно не использованная запись");
+        assertEquals("file-3", cache.get(THIRD));
+    }
+
+    @Test
+    void get_shouldDropExpiredEntry() throws Exception {
+        properties.setTtl(Duration.ofMillis(20));
+        VideoFileIdCache cache = new VideoFileIdCache(properties, meterRegistry);
+        cache.put(FIRST, "file-1");
+
+        Thread.sleep(50);
+
+        assertNull(cache.get(FIRST));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_shouldCountHitsAndMisses() {
+        VideoFileIdCache cache = new VideoFileIdCache(properties, meterRegistry);
+        cache.put(FIRST, "file-1");
+
+        cache.get(FIRST);
+        cache.get(FIRST);
+        cache.get(SECOND);
+
+        assertEquals(2.0, meterRegistry.get("bot.file_id_cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("bot.file_id_cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void snapshot_shouldSurviveRestart_andSkipMalformedAndExpiredLines() throws Exception {
+        Path snapshot = tempDir.resolve("cache/file-ids.tsv");
+        properties.setSnapshotPath(snapshot.toString());
+        VideoFileIdCache cache = new VideoFileIdCache(properties, meterRegistry);
+        cache.put(FIRST, "file-1");
+        cache.put(SECOND, "file-2");
+        cache.saveSnapshot();
+
+        long expired = System.currentTimeMillis() - properties.getTtl().toMillis() - 1000;
+        List<String> lines = new ArrayList<>(Files.readAllLines(snapshot));
+        lines.add("not-a-timestamp\tvk\t-1_2\tsingle:mp4/720p/50MB\tfile-3");
+        lines.add("broken line");
+        lines.add(expired + "\tvk\t-3_4\tsingle:mp4/720p/50MB\tfile-4");
+        lines.add(System.currentTimeMillis() + "\tvk\t-5_6\tsingle:mp4/720p/50MB\t");
+        Files.write(snapshot, lines);
+
+        VideoFileIdCache restored = new VideoFileIdCache(properties, new SimpleMeterRegistry());
+        restored.loadSnapshot();
+
+        assertEquals(2, restored.size());
+        assertEquals("file-1", restored.get(FIRST));
+        assertEquals("file-2", restored.get(SECOND));
+        assertNull(restored.get(THIRD));
+    }
+
+    @Test
+    void disabledCache_shouldStoreNothing() {
+        properties.setEnabled(false);
+        VideoFileIdCache cache = new VideoFileIdCache(properties, meterRegistry);
+
+        cache.put(FIRST, "file-1");
+
+        assertNull(cache.get(FIRST));
+        assertEquals(0, cache.size());
+    }
+}
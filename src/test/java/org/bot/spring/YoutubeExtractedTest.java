@@ -1,8 +1,13 @@
 package org.bot.spring;
 
 import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
 import org.bot.spring.dto.VideoFormatDto;
-import org.bot.spring.service.proxy.ProxyProvider;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
 import org.bot.spring.service.YtDlpService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -59,7 +64,7 @@ class YoutubeExtractedTest {
         DownloadProperties properties = new DownloadProperties();
         properties.setDownloadPath("/");
         properties.setMaxFileSizeMB(BigDecimal.TWO);
-        YtDlpService service = new YtDlpService(properties, new ProxyProvider(List.of()));
+        YtDlpService service = new YtDlpService(properties, new YtDlpWorkerPool(new YtDlpWorkerProperties()), new TelegramApiProperties(), new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
         var result = new ArrayList<VideoFormatDto>();
         lines.forEach(it -> service.extracted(it, result));
         Assertions.assertTrue(result.size() > 0);
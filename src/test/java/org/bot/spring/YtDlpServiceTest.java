@@ -1,16 +1,32 @@
 package org.bot.spring;
 
 import org.bot.spring.configuration.properties.DownloadProperties;
-import org.bot.spring.service.proxy.ProxyProvider;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.dto.VideoFormatDto;
+import org.bot.spring.exceptions.FileSizeExceededException;
+import org.bot.spring.exceptions.StreamingUnavailableException;
+import org.bot.spring.exceptions.YtDlpExitException;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
 import org.bot.spring.service.YtDlpService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class YtDlpServiceTest {
 
@@ -22,7 +38,7 @@ class YtDlpServiceTest {
         downloadProperties = new DownloadProperties();
         downloadProperties.setDownloadPath("/tmp/");
         downloadProperties.setMaxFileSizeMB(new BigDecimal("50"));
-        ytDlpService = new YtDlpService(downloadProperties, new ProxyProvider(List.of()));
+        ytDlpService = new YtDlpService(downloadProperties, new YtDlpWorkerPool(new YtDlpWorkerProperties()), new TelegramApiProperties(), new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
     }
 
     @Test
@@ -175,4 +191,113 @@ class YtDlpServiceTest {
         String result = ytDlpService.extractUrl(input);
         assertEquals("https://192.168.1.1/video", result, "Метод должен извлекать URL с IP-адресом");
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamingCommand_shouldWriteSingleFileFormatToStdout() {
+        List<String> args = ytDlpService.streamingCommand("https://youtu.be/dQw4w9WgXcQ").getArgs();
+
+        assertEquals("-", args.get(args.indexOf("-o") + 1), "Видео должно писаться в stdout");
+        assertFalse(args.contains("-P"), "Каталог загрузки не нужен");
+        assertFalse(args.contains("-t"), "Перепаковка требует файла");
+        String selector = args.get(args.indexOf("-f") + 1);
+        for (String alternative : selector.split("/")) {
+            assertTrue(alternative.contains("[protocol^=http][protocol!*=dash]"),
+                    "Только форматы одним HTTP-запросом: " + alternative);
+        }
+    }
+
+    @Test
+    void singlePassCommand_shouldUseGivenLimit_forVideoThatFfmpegWillShrink() {
+        long ffmpegLimit = 200L * 1024 * 1024;
+        List<String> args = ytDlpService.singlePassCommand("https://youtu.be/dQw4w9WgXcQ", "video.mp4", null, ffmpegLimit)
+                .getArgs();
+
+        assertEquals(String.valueOf(ffmpegLimit), args.get(args.indexOf("--max-filesize") + 1));
+        assertTrue(args.get(args.indexOf("-f") + 1).contains("[filesize<" + ffmpegLimit + "]"));
+    }
+
+    @Test
+    void isStreaming_shouldYieldToAdaptiveSelection() {
+        FormatSelectionProperties selectionProperties = new FormatSelectionProperties();
+        YtDlpService service = new YtDlpService(downloadProperties, new YtDlpWorkerPool(new YtDlpWorkerProperties()),
+                new TelegramApiProperties(), selectionProperties, new ProxyFeedback(new ProxyProperties()));
+        downloadProperties.setStreaming(true);
+
+        assertTrue(service.isStreaming());
+        // Поток дал бы только готовый формат одним файлом, каталог — лучшую пару в бюджете
+        selectionProperties.setEnabled(true);
+        assertFalse(service.isStreaming());
+    }
+
+    @Test
+    void streamSinglePass_shouldAbortOversizedFormat() {
+        // Размер формата больше лимита: процесс убивается, не дожидаясь конца вывода
+        assertThrows(FileSizeExceededException.class, () -> streamFake("""
+                err("[format]22|mp4|1280x720|999999999")
+                sys.stdout.buffer.write(b"video")
+                sys.stdout.flush()
+                time.sleep(30)
+                """));
+    }
+
+    @Test
+    void streamSinglePass_shouldRethrowFailure_whenNoFormatWasSelected() {
+        YtDlpExitException e = assertThrows(YtDlpExitException.class, () -> streamFake("""
+                err("ERROR: [youtube] dQw4w9WgXcQ: Video unavailable")
+                sys.exit(1)
+                """));
+
+        assertTrue(e.getMessage().contains("Video unavailable"));
+    }
+
+    @Test
+    void streamSinglePass_shouldReportStreamingUnavailable_onlyWhenNoFormatMatched() {
+        assertThrows(StreamingUnavailableException.class, () -> streamFake("""
+                err("ERROR: [youtube] dQw4w9WgXcQ: Requested format is not available. Use --list-formats")
+                sys.exit(1)
+                """));
+    }
+
+    @Test
+    void streamSinglePass_shouldReturnVideoBytes() throws Exception {
+        assertEquals(5, streamFake("""
+                err("[format]18|mp4|640x360|5")
+                sys.stdout.buffer.write(b"video")
+                """));
+    }
+
+    @Test
+    void parseSelectedFormat_shouldReadIdContainerResolutionAndSize() {
+        VideoFormatDto format = ytDlpService.parseSelectedFormat("[format]136+140|mp4|1280x720|31457280");
+
+        assertEquals("136+140", format.getId());
+        assertEquals("mp4", format.getContainer());
+        assertEquals("1280x720", format.getResolution());
+        assertEquals(0, new BigDecimal("30").compareTo(format.getFileSizeInMB()));
+    }
+
+    @Test
+    void parseSelectedFormat_shouldLeaveSizeEmpty_whenUnknown() {
+        assertNull(ytDlpService.parseSelectedFormat("[format]18|mp4|640x360|0").getFileSizeInMB());
+        assertNull(ytDlpService.parseSelectedFormat("[format]18|mp4|640x360|NA").getFileSizeInMB());
+        assertNull(ytDlpService.parseSelectedFormat("[format]18").getFileSizeInMB());
+    }
+
+    /**
+     * Запускает вместо yt-dlp скрипт python: {@code err(...)} пишет строку в stderr, как журнал yt-dlp.
+     *
+     * @return сколько байт видео прочитано из stdout
+     */
+    private int streamFake(String script) throws IOException, InterruptedException {
+        Path python = Path.of("/usr/bin/python3");
+        assumeTrue(Files.isExecutable(python), "нужен python3 для заглушки yt-dlp");
+        String program = """
+                import sys, time
+                def err(line):
+                    print(line, file=sys.stderr, flush=True)
+                """ + script;
+        Process process = new ProcessBuilder(python.toString(), "-c", program).start();
+        return ytDlpService.streamSinglePass(process, format -> { }, progress -> { },
+                video -> video.readAllBytes().length);
+    }
+}
@@ -0,0 +1,222 @@
+package org.bot.spring;
+
+import org.bot.spring.configuration.properties.DownloadProperties;
+import org.bot.spring.configuration.properties.FormatSelectionProperties;
+import org.bot.spring.configuration.properties.ProxyProperties;
+import org.bot.spring.configuration.properties.TelegramApiProperties;
+import org.bot.spring.configuration.properties.YtDlpWorkerProperties;
+import org.bot.spring.exceptions.FileSizeExceededException;
+import org.bot.spring.exceptions.YtDlpWorkerException;
+import org.bot.spring.service.YtDlpService;
+import org.bot.spring.service.proxy.ProxyFeedback;
+import org.bot.spring.service.ytdlp.YtDlpWorkerPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Пул воркеров с драйвером-заглушкой: вместо python с yt-dlp запускается скрипт,
+ * который говорит по тому же протоколу и ведёт себя по последнему аргументу запроса (на месте ссылки).
+ */
+class YtDlpWorkerPoolTest {
+
+    private static final String FAKE_DRIVER = """
+            #!/usr/bin/env python3
+            import json, os, sys, time
+            def send(message):
+                print(json.dumps(message), flush=True)
+            send({"ready": True, "version": "test"})
+            for raw in sys.stdin:
+                request = json.loads(raw)
+                request_id = request["id"]
+                if request.get("ping"):
+                    send({"id": request_id, "pong": True})
+                    continue
+                command = request["args"][-1]
+                if command == "pid":
+                    send({"id": request_id, "line": str(os.getpid())})
+                    send({"id": request_id, "exit": 0})
+                    continue
+                if command == "oversized":
+                    send({"id": request_id, "line": "[format]137+140|mp4|1920x1080|999999999"})
+                    send({"id": request_id, "exit": 0})
+                    continue
+                if command == "size-unknown":
+                    send({"id": request_id, "line": "[format]18|mp4|640x360|0"})
+                    send({"id": request_id, "exit": 0})
+                    continue
+                if command == "crash":
+                    sys.exit(3)
+                if command == "sleep":
+                    time.sleep(30)
+                send({"id": request_id, "line": "first"})
+                if command == "crash-after-line":
+                    sys.exit(3)
+                send({"id": request_id, "line": "second"})
+                send({"id": request_id, "exit": 0})
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private YtDlpWorkerProperties properties;
+    private YtDlpWorkerPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(Files.isExecutable(Path.of("/usr/bin/env")), "нужен /usr/bin/env для запуска заглушки");
+        Path driver = Files.writeString(tempDir.resolve("fake-python"), FAKE_DRIVER);
+        assumeTrue(driver.toFile().setExecutable(true));
+
+        properties = new YtDlpWorkerProperties();
+        properties.setEnabled(true);
+        properties.setPoolSize(1);
+        properties.setPythonExecutable(driver.toString());
+        properties.setAcquireTimeout(Duration.ofMillis(200));
+        properties.setRequestTimeout(Duration.ofSeconds(5));
+        pool = new YtDlpWorkerPool(properties);
+        pool.init();
+        awaitAvailable();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void execute_shouldDeliverLinesAndExitCode() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        int exitCode = pool.execute(List.of("lines"), lines::add);
+
+        assertEquals(0, exitCode);
+        assertEquals(List.of("first", "second"), lines);
+    }
+
+    @Test
+    void crashBeforeOutput_isRetryable() {
+        YtDlpWorkerException e = assertThrows(YtDlpWorkerException.class,
+                () -> pool.execute(List.of("crash"), line -> { }));
+
+        assertTrue(e.isRetryable());
+    }
+
+    @Test
+    void crashAfterOutput_isNotRetryable() {
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        YtDlpWorkerException e = assertThrows(YtDlpWorkerException.class,
+                () -> pool.execute(List.of("crash-after-line"), lines::add));
+
+        assertFalse(e.isRetryable());
+        assertEquals(List.of("first"), lines);
+    }
+
+    @Test
+    void timeout_isNotRetryable() {
+        properties.setRequestTimeout(Duration.ofMillis(300));
+
+        YtDlpWorkerException e = assertThrows(YtDlpWorkerException.class,
+                () -> pool.execute(List.of("sleep"), line -> { }));
+
+        assertFalse(e.isRetryable());
+    }
+
+    @Test
+    void busyPool_isRetryable() throws Exception {
+        // Занявший воркер запрос снимается по таймауту, чтобы не оставлять процесс заглушки
+        properties.setRequestTimeout(Duration.ofSeconds(1));
+        CompletableFuture<Integer> busy = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.execute(List.of("sleep"), line -> { });
+            } catch (Exception e) {
+                return -1;
+            }
+        });
+        Thread.sleep(100);
+
+        YtDlpWorkerException e = assertThrows(YtDlpWorkerException.class,
+                () -> pool.execute(List.of("lines"), line -> { }));
+
+        assertTrue(e.isRetryable());
+        assertEquals(-1, busy.get());
+    }
+
+    @Test
+    void runYtDlp_shouldNotRepeatOutput_whenWorkerFailsMidRequest() {
+        YtDlpService service = service();
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        assertThrows(IOException.class, () -> service.runYtDlp(List.of("crash-after-line"), lines::add));
+
+        assertEquals(List.of("first"), lines);
+    }
+
+    @Test
+    void downloadSinglePass_shouldReportOversizedFormat_withoutRestartingWorker() throws Exception {
+        YtDlpService service = service();
+        String pid = pid();
+
+        FileSizeExceededException known = assertThrows(FileSizeExceededException.class, () -> service.downloadSinglePass(
+                service.singlePassCommand("oversized", "video.mp4", null), format -> { }, progress -> { }));
+        FileSizeExceededException unknown = assertThrows(FileSizeExceededException.class, () -> service.downloadSinglePass(
+                service.singlePassCommand("size-unknown", "video.mp4", null), format -> { }, progress -> { }));
+
+        assertNotNull(known.getFileSizeInMB());
+        assertNull(unknown.getFileSizeInMB(), "yt-dlp пропустил загрузку без файла, размер неизвестен");
+        assertEquals(pid, pid(), "Превышение лимита не должно перезапускать воркер");
+    }
+
+    @Test
+    void downloadSinglePass_shouldCheckSizeAgainstCommandLimit() {
+        YtDlpService service = service();
+
+        // Повторная загрузка для ffmpeg идёт с его лимитом, а не с лимитом Telegram
+        FileSizeExceededException e = assertThrows(FileSizeExceededException.class, () -> service.downloadSinglePass(
+                service.singlePassCommand("oversized", "video.mp4", null, 200L * 1024 * 1024), format -> { }, progress -> { }));
+
+        assertEquals(0, new BigDecimal(200).compareTo(e.getMaxFileSizeInMB()));
+    }
+
+    private YtDlpService service() {
+        DownloadProperties downloadProperties = new DownloadProperties();
+        downloadProperties.setDownloadPath(tempDir.toString());
+        return new YtDlpService(downloadProperties, pool, new TelegramApiProperties(),
+                new FormatSelectionProperties(), new ProxyFeedback(new ProxyProperties()));
+    }
+
+    private String pid() throws InterruptedException {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        pool.execute(List.of("pid"), lines::add);
+        return lines.getFirst();
+    }
+
+    private void awaitAvailable() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!pool.isAvailable() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assumeTrue(pool.isAvailable(), "заглушка воркера не запустилась");
+    }
+}